@@ -0,0 +1,190 @@
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Chỉ mục bộ lọc thuộc tính: với mỗi giá trị thông số (loại sản phẩm, xuất xứ, độ phân giải,
+ * năm ra mắt, kích cỡ màn hình, số người) lưu tập sản phẩm dạng RoaringBitmap.
+ * Bộ lọc có cấu trúc được trả lời bằng phép hợp/giao tập, không quét lại mô tả sản phẩm.
+ */
+public class AttributeFilterIndex {
+    public static final String RESOLUTION = "resolution";
+
+    // Các thuộc tính được hỗ trợ làm tham số lọc
+    public static final String[] ATTRIBUTES = {
+            FacetIndex.TYPE, FacetIndex.ORIGIN, RESOLUTION, FacetIndex.YEAR,
+            FacetIndex.SCREEN_SIZE, FacetIndex.HOUSEHOLD };
+
+    // Thuộc tính -> (giá trị đã chuẩn hóa -> tập sản phẩm), giá trị sắp xếp để tra theo tiền tố
+    private final Map<String, TreeMap<String, RoaringBitmap>> values;
+
+    private AttributeFilterIndex(Map<String, TreeMap<String, RoaringBitmap>> values) {
+        this.values = values;
+    }
+
+    /**
+     * Chuẩn hóa giá trị lọc: bỏ dấu, chữ thường, các từ cách nhau một khoảng trắng
+     */
+    public static String normalizeValue(String value) {
+        return String.join(" ", TextAnalyzer.analyze(value));
+    }
+
+    /**
+     * Tập sản phẩm thỏa mãn mọi bộ lọc: hợp trong cùng thuộc tính, giao giữa các thuộc tính
+     *
+     * @param filters Thuộc tính -> các giá trị đã chuẩn hóa
+     */
+    public RoaringBitmap filter(Map<String, String[]> filters) {
+        RoaringBitmap result = null;
+        for (Map.Entry<String, String[]> entry : filters.entrySet()) {
+            RoaringBitmap matches = resolve(entry.getKey(), entry.getValue());
+            result = result == null ? matches : result.and(matches);
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result == null ? RoaringBitmap.empty() : result;
+    }
+
+    /**
+     * Tập sản phẩm có một trong các giá trị của thuộc tính.
+     * Giá trị khớp đúng, hoặc khớp các từ đầu ("4k" khớp "4K (Ultra HD)").
+     */
+    private RoaringBitmap resolve(String attribute, String[] wanted) {
+        TreeMap<String, RoaringBitmap> attributeValues = values.get(attribute);
+        RoaringBitmap result = RoaringBitmap.empty();
+        if (attributeValues == null) {
+            return result;
+        }
+        for (String value : wanted) {
+            RoaringBitmap exact = attributeValues.get(value);
+            if (exact != null) {
+                result = result.or(exact);
+                continue;
+            }
+            for (RoaringBitmap prefixed : attributeValues.subMap(value + " ", value + " \uffff").values()) {
+                result = result.or(prefixed);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Liệt kê các giá trị thuộc tính (đã chuẩn hóa) của một sản phẩm
+     *
+     * @param consumer Nhận (thuộc tính, giá trị đã chuẩn hóa)
+     */
+    static void forEachValue(Product product, Specification[] specifications, BiConsumer<String, String> consumer) {
+        BiConsumer<String, String> normalized = (attribute, value) -> {
+            String key = value == null ? "" : normalizeValue(value);
+            if (!key.isEmpty()) {
+                consumer.accept(attribute, key);
+            }
+        };
+
+        normalized.accept(FacetIndex.TYPE, product.getProductType());
+        for (Specification spec : specifications) {
+            switch (spec.getLabel()) {
+                case "Nơi sản xuất":
+                    normalized.accept(FacetIndex.ORIGIN, ProductAttributes.originName(spec.getValue()));
+                    break;
+                case "Độ phân giải":
+                    normalized.accept(RESOLUTION, spec.getValue());
+                    break;
+                case "Năm ra mắt":
+                    normalized.accept(FacetIndex.YEAR, spec.getValue());
+                    break;
+                case "Kích cỡ màn hình":
+                    normalized.accept(FacetIndex.SCREEN_SIZE, spec.getValue());
+                    break;
+                case "Số người sử dụng":
+                    normalized.accept(FacetIndex.HOUSEHOLD, spec.getValue());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Xây dựng chỉ mục, thêm sản phẩm theo thứ tự số thứ tự tăng dần
+     */
+    public static class Builder {
+        private final Map<String, Map<String, RoaringBitmap.Builder>> builders = new HashMap<>();
+        private int size;
+
+        /**
+         * Thêm một sản phẩm với các thông số đã trích xuất
+         *
+         * @return Số thứ tự được gán cho sản phẩm
+         */
+        public int add(Product product, Specification[] specifications) {
+            int ordinal = size++;
+            forEachValue(product, specifications, (attribute, key) ->
+                    builders.computeIfAbsent(attribute, k -> new HashMap<>())
+                            .computeIfAbsent(key, k -> new RoaringBitmap.Builder())
+                            .add(ordinal));
+            return ordinal;
+        }
+
+        public AttributeFilterIndex build() {
+            Map<String, TreeMap<String, RoaringBitmap>> values = new HashMap<>();
+            for (Map.Entry<String, Map<String, RoaringBitmap.Builder>> attribute : builders.entrySet()) {
+                TreeMap<String, RoaringBitmap> attributeValues = new TreeMap<>();
+                for (Map.Entry<String, RoaringBitmap.Builder> value : attribute.getValue().entrySet()) {
+                    attributeValues.put(value.getKey(), value.getValue().build());
+                }
+                values.put(attribute.getKey(), attributeValues);
+            }
+            return new AttributeFilterIndex(values);
+        }
+    }
+
+    /**
+     * Cập nhật chỉ mục đã có theo từng sản phẩm; chỉ mục cũ không bị thay đổi
+     */
+    public static class Updater {
+        private final Map<String, TreeMap<String, RoaringBitmap>> values = new HashMap<>();
+
+        public Updater(AttributeFilterIndex base) {
+            for (Map.Entry<String, TreeMap<String, RoaringBitmap>> attribute : base.values.entrySet()) {
+                values.put(attribute.getKey(), new TreeMap<>(attribute.getValue()));
+            }
+        }
+
+        /**
+         * Gỡ sản phẩm khỏi mọi giá trị đang chứa nó
+         */
+        public void remove(int ordinal) {
+            RoaringBitmap single = RoaringBitmap.of(new int[] { ordinal }, 1);
+            for (TreeMap<String, RoaringBitmap> attributeValues : values.values()) {
+                Iterator<Map.Entry<String, RoaringBitmap>> it = attributeValues.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, RoaringBitmap> value = it.next();
+                    if (value.getValue().contains(ordinal)) {
+                        RoaringBitmap remaining = value.getValue().andNot(single);
+                        if (remaining.isEmpty()) {
+                            it.remove();
+                        } else {
+                            value.setValue(remaining);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Thêm sản phẩm tại số thứ tự cho trước
+         */
+        public void add(int ordinal, Product product, Specification[] specifications) {
+            RoaringBitmap single = RoaringBitmap.of(new int[] { ordinal }, 1);
+            forEachValue(product, specifications, (attribute, key) ->
+                    values.computeIfAbsent(attribute, k -> new TreeMap<>())
+                            .merge(key, single, RoaringBitmap::or));
+        }
+
+        public AttributeFilterIndex build() {
+            return new AttributeFilterIndex(values);
+        }
+    }
+}
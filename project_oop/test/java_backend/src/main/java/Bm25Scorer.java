@@ -0,0 +1,57 @@
+
+/**
+ * Chấm điểm độ liên quan theo BM25F: tên sản phẩm có trọng số cao hơn mô tả,
+ * tính đến tần suất từ, độ dài từng trường và độ hiếm của từ (IDF).
+ * Mọi thống kê được tính sẵn trong InvertedIndex khi tải.
+ */
+public class Bm25Scorer {
+    // Tham số BM25 thông dụng
+    private static final float K1 = 1.2f;
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float NAME_B = 0.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float DESCRIPTION_B = 0.75f;
+
+    private final InvertedIndex index;
+
+    public Bm25Scorer(InvertedIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Độ hiếm của từ khóa: từ càng ít sản phẩm chứa thì IDF càng lớn
+     *
+     * @param documentFrequency Số sản phẩm chứa từ khóa
+     */
+    public float idf(int documentFrequency) {
+        int n = index.getDocumentCount();
+        return (float) Math.log(1 + (n - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * Điểm BM25F của từ khóa cho sản phẩm tại vị trí position trong posting list
+     *
+     * @param postings Posting list của từ khóa
+     * @param position Vị trí trong posting list
+     * @param idf      IDF của từ khóa (tính một lần cho mỗi truy vấn)
+     */
+    public float score(InvertedIndex.Postings postings, int position, float idf) {
+        int ordinal = postings.ordinalAt(position);
+        float tf = 0;
+
+        int nameFrequency = postings.nameFrequencyAt(position);
+        if (nameFrequency > 0) {
+            float norm = 1 - NAME_B + NAME_B * index.nameLengthAt(ordinal) / Math.max(1f, index.getAverageNameLength());
+            tf += NAME_WEIGHT * nameFrequency / norm;
+        }
+
+        int descriptionFrequency = postings.descriptionFrequencyAt(position);
+        if (descriptionFrequency > 0) {
+            float norm = 1 - DESCRIPTION_B
+                    + DESCRIPTION_B * index.descriptionLengthAt(ordinal) / Math.max(1f, index.getAverageDescriptionLength());
+            tf += DESCRIPTION_WEIGHT * descriptionFrequency / norm;
+        }
+
+        return idf * tf * (K1 + 1) / (tf + K1);
+    }
+}
@@ -0,0 +1,89 @@
+
+/**
+ * Response toàn bộ danh mục (GET /api/products) dựng sẵn cho một phiên bản ảnh chụp:
+ * JSON thô và bản nén (dùng cho cả gzip và deflate). Danh mục chỉ đổi khi tải lại/cập nhật,
+ * nên mỗi phiên bản chỉ tuần tự hóa và nén một lần, các request sau chỉ ghi lại byte có sẵn.
+ */
+public class CatalogResponse {
+    private final long version;
+    private final long loadedAt;
+    private final byte[] json;
+    private final ResponseCompressor.Compressed compressed;
+
+    /**
+     * @param catalog    Ảnh chụp danh mục
+     * @param json       Mảng JSON tất cả sản phẩm (UTF-8)
+     * @param compressor Bộ nén response
+     */
+    public CatalogResponse(CatalogSnapshot catalog, byte[] json, ResponseCompressor compressor) {
+        this.version = catalog.getVersion();
+        this.loadedAt = catalog.getLoadedAt();
+        this.json = json;
+        this.compressed = compressor.compress(json);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public ResponseCompressor.Compressed getCompressed() {
+        return compressed;
+    }
+
+    /**
+     * ETag của chính response này (phiên bản ảnh chụp đã dựng nó, có thể cũ hơn ảnh chụp hiện tại)
+     */
+    public String etag(ProductView view, String encoding) {
+        return etag(version, loadedAt, view, encoding);
+    }
+
+    /**
+     * ETag mạnh của danh mục theo phiên bản, view và cách nén; tính được mà không cần dựng response.
+     * Bản gzip, deflate và bản không nén là các chuỗi byte khác nhau nên phải có ETag khác nhau.
+     *
+     * @param encoding Cách nén đã chọn theo Accept-Encoding (ResponseCompressor.negotiate), null nếu không nén
+     */
+    public static String etag(CatalogSnapshot catalog, ProductView view, String encoding) {
+        return etag(catalog.getVersion(), catalog.getLoadedAt(), view, encoding);
+    }
+
+    private static String etag(long version, long loadedAt, ProductView view, String encoding) {
+        // Phiên bản đánh số lại từ 1 mỗi lần khởi động, thêm thời điểm tạo ảnh chụp
+        // để ETag của hai lần chạy khác nhau không trùng nhau
+        StringBuilder etag = new StringBuilder("\"catalog-").append(version).append('-')
+                .append(Long.toString(loadedAt, 36));
+        if (!view.isFull()) {
+            etag.append('-').append(view.getKey());
+        }
+        if (encoding != null) {
+            etag.append('-').append(encoding);
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Kiểm tra header If-None-Match (danh sách ETag cách nhau bởi dấu phẩy, hoặc "*")
+     *
+     * @return true nếu client đã có đúng phiên bản etag
+     */
+    public static boolean matches(String etag, String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            // So sánh yếu theo RFC 7232: bỏ tiền tố W/
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,421 @@
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Ảnh chụp danh mục: danh sách sản phẩm cùng mọi chỉ mục dựng từ nó.
+ * Không thay đổi sau khi tạo; khi tải lại hoặc cập nhật, ảnh chụp mới được dựng riêng rồi thay thế
+ * ảnh chụp cũ bằng một lần gán tham chiếu, request đang chạy vẫn dùng ảnh chụp cũ.
+ *
+ * Số thứ tự của sản phẩm ổn định qua các lần cập nhật: sửa sản phẩm giữ nguyên số thứ tự,
+ * sản phẩm mới được nối vào cuối, sản phẩm bị xóa để lại chỗ trống (đánh dấu xóa)
+ * cho đến lần tải lại toàn bộ tiếp theo.
+ */
+public class CatalogSnapshot {
+    private final long version;
+    private final long loadedAt;
+    private final ProductStore store;
+    // Sản phẩm theo số thứ tự, null tại số thứ tự đã xóa
+    private final ChunkedArray slots;
+    private final int productCount;
+    private final SegmentedMap<String, Integer> ordinalsById;
+    private final FixedBitSet liveProducts;
+    private final InvertedIndex index;
+    private final ProductAttributes attributes;
+    private final PriceIndex priceIndex;
+    private final Bm25Scorer scorer;
+    private final PrefixSuggester suggester;
+    private final TrigramIndex trigramIndex;
+    private final FacetIndex facetIndex;
+    private final AttributeFilterIndex filterIndex;
+    // Phiên bản mà gợi ý và từ vựng sửa lỗi được dựng từ đó, và phiên bản gần nhất đổi tên/từ vựng
+    private final long suggestionsVersion;
+    private final long textChangedVersion;
+    // Danh sách sản phẩm còn hiệu lực, chỉ tạo khi cần
+    private volatile List<Product> products;
+
+    private CatalogSnapshot(long version, long loadedAt, ProductStore store, ChunkedArray slots, int productCount,
+            SegmentedMap<String, Integer> ordinalsById, FixedBitSet liveProducts, InvertedIndex index,
+            ProductAttributes attributes, PriceIndex priceIndex, PrefixSuggester suggester, TrigramIndex trigramIndex,
+            FacetIndex facetIndex, AttributeFilterIndex filterIndex, long suggestionsVersion,
+            long textChangedVersion) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.store = store;
+        this.slots = slots;
+        this.productCount = productCount;
+        this.ordinalsById = ordinalsById;
+        this.liveProducts = liveProducts;
+        this.index = index;
+        this.attributes = attributes;
+        this.priceIndex = priceIndex;
+        this.scorer = new Bm25Scorer(index);
+        this.suggester = suggester;
+        this.trigramIndex = trigramIndex;
+        this.facetIndex = facetIndex;
+        this.filterIndex = filterIndex;
+        this.suggestionsVersion = suggestionsVersion;
+        this.textChangedVersion = textChangedVersion;
+    }
+
+    /**
+     * Ảnh chụp rỗng, dùng trước lần tải đầu tiên
+     */
+    public static CatalogSnapshot empty() {
+        return new Builder(0, new ProductStore()).build();
+    }
+
+    /**
+     * Tạo ảnh chụp mới sau khi thêm, sửa hoặc xóa một số sản phẩm.
+     * Chỉ các khối/phân đoạn bị ảnh hưởng của từng chỉ mục được sao chép và cập nhật, nên chi phí
+     * tỉ lệ với số sản phẩm thay đổi chứ không với kích thước danh mục.
+     * Gợi ý tự động hoàn thành và từ vựng sửa lỗi chính tả được giữ nguyên (xem hasStaleSuggestions).
+     *
+     * @param changes Mã sản phẩm -> sản phẩm mới (đã phân tích văn bản), null để xóa
+     * @return Ảnh chụp mới; ảnh chụp hiện tại không bị thay đổi
+     */
+    public CatalogSnapshot withChanges(Map<String, Product> changes) {
+        ChunkedArray.Editor slotsEditor = slots.edit();
+        SegmentedMap.Editor<String, Integer> ordinalsEditor = ordinalsById.edit();
+
+        // Gán số thứ tự trước để biết kích thước mới của các tập bit
+        int newSize = slots.length();
+        for (Map.Entry<String, Product> change : changes.entrySet()) {
+            if (change.getValue() != null && ordinalsEditor.get(change.getKey()) == null) {
+                ordinalsEditor.put(change.getKey(), newSize++);
+            }
+        }
+
+        FixedBitSet newLive = liveProducts.copy(newSize);
+        InvertedIndex.Updater indexUpdater = new InvertedIndex.Updater(index);
+        ProductAttributes.Builder attributesBuilder = new ProductAttributes.Builder(attributes);
+        PriceIndex.Updater priceUpdater = new PriceIndex.Updater(priceIndex);
+        FacetIndex.Updater facetUpdater = new FacetIndex.Updater(facetIndex);
+        AttributeFilterIndex.Updater filterUpdater = new AttributeFilterIndex.Updater(filterIndex);
+        int newCount = productCount;
+        boolean namesChanged = false;
+        boolean textChanged = false;
+
+        for (Map.Entry<String, Product> change : changes.entrySet()) {
+            Product product = change.getValue();
+            Integer ordinal = ordinalsEditor.get(change.getKey());
+            if (ordinal == null) {
+                continue;
+            }
+            int i = ordinal;
+            Product old = i < slots.length() ? (Product) slots.get(i) : null;
+
+            // Chỉ gỡ/thêm lại posting list khi tên hoặc mô tả thay đổi (đổi giá không chạm chỉ mục ngược)
+            boolean sameText = old != null && product != null
+                    && Arrays.equals(old.getNameTokens(), product.getNameTokens())
+                    && Arrays.equals(old.getDescriptionTokens(), product.getDescriptionTokens());
+            if (!sameText) {
+                if (old != null) {
+                    indexUpdater.remove(i, old.getNameTokens(), old.getDescriptionTokens());
+                }
+                if (product != null) {
+                    indexUpdater.add(i, product.getNameTokens(), product.getDescriptionTokens());
+                }
+                textChanged = true;
+            }
+            namesChanged |= old == null || product == null || !Objects.equals(old.getName(), product.getName());
+
+            if (old != null) {
+                priceUpdater.remove(i, attributes.priceAt(i));
+                facetUpdater.remove(i);
+                filterUpdater.remove(i);
+                newCount--;
+            }
+            attributesBuilder.set(i, product);
+            if (product == null) {
+                newLive.clear(i);
+                slotsEditor.set(i, null);
+                ordinalsEditor.remove(change.getKey());
+            } else {
+                product.setId(change.getKey());
+                long price = product.parsePrice();
+                Specification[] specifications = product.getSpecifications();
+                priceUpdater.add(i, price);
+                facetUpdater.add(i, product, specifications, price);
+                filterUpdater.add(i, product, specifications);
+                newLive.set(i);
+                slotsEditor.set(i, product);
+                newCount++;
+            }
+        }
+
+        InvertedIndex newIndex = textChanged ? indexUpdater.build() : index;
+        boolean aidsChanged = namesChanged || (textChanged && indexUpdater.isVocabularyChanged());
+        return new CatalogSnapshot(version + 1, System.currentTimeMillis(), store, slotsEditor.build(), newCount,
+                ordinalsEditor.build(), newLive, newIndex, attributesBuilder.build(), priceUpdater.build(newSize),
+                suggester, trigramIndex, facetUpdater.build(), filterUpdater.build(), suggestionsVersion,
+                aidsChanged ? version + 1 : textChangedVersion);
+    }
+
+    /**
+     * @return true nếu tên sản phẩm hoặc từ vựng đã thay đổi sau khi dựng gợi ý tự động hoàn thành
+     *         và từ vựng sửa lỗi chính tả của ảnh chụp này
+     */
+    public boolean hasStaleSuggestions() {
+        return textChangedVersion > suggestionsVersion;
+    }
+
+    /**
+     * @return Phiên bản ảnh chụp mà gợi ý và từ vựng sửa lỗi được dựng từ đó
+     */
+    public long getSuggestionsVersion() {
+        return suggestionsVersion;
+    }
+
+    /**
+     * Dựng lại gợi ý tự động hoàn thành và từ vựng sửa lỗi chính tả từ sản phẩm của ảnh chụp này.
+     * Chi phí tỉ lệ với kích thước danh mục, nên được gọi ngoài luồng cập nhật.
+     *
+     * @return Ảnh chụp có gợi ý mới, hoặc chính ảnh chụp này nếu gợi ý chưa cũ
+     */
+    public CatalogSnapshot withRebuiltSuggestions() {
+        if (!hasStaleSuggestions()) {
+            return this;
+        }
+        PrefixSuggester.Builder suggesterBuilder = new PrefixSuggester.Builder();
+        for (Product product : getProducts()) {
+            suggesterBuilder.addName(product.getName());
+        }
+        return withSuggestions(suggesterBuilder.build(), TrigramIndex.build(index.getTerms()), version);
+    }
+
+    /**
+     * Ảnh chụp giống hệt ảnh chụp này (cùng phiên bản) nhưng với gợi ý khác
+     *
+     * @param builtFromVersion Phiên bản ảnh chụp mà suggester và trigramIndex được dựng từ đó
+     */
+    public CatalogSnapshot withSuggestions(PrefixSuggester suggester, TrigramIndex trigramIndex,
+            long builtFromVersion) {
+        return new CatalogSnapshot(version, loadedAt, store, slots, productCount, ordinalsById, liveProducts, index,
+                attributes, priceIndex, suggester, trigramIndex, facetIndex, filterIndex, builtFromVersion,
+                textChangedVersion);
+    }
+
+    /**
+     * @return Số thứ tự của lần tải hoặc cập nhật (tăng dần)
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Thời điểm dựng xong ảnh chụp (epoch millis)
+     */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * @return Nơi lưu văn bản của sản phẩm; sản phẩm thêm/sửa qua withChanges dùng chung store này
+     */
+    public ProductStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return Danh sách sản phẩm còn hiệu lực, không thể thay đổi
+     */
+    public List<Product> getProducts() {
+        List<Product> result = products;
+        if (result == null) {
+            List<Product> live = new ArrayList<>(productCount);
+            for (int i = 0; i < slots.length(); i++) {
+                Product product = (Product) slots.get(i);
+                if (product != null) {
+                    live.add(product);
+                }
+            }
+            result = Collections.unmodifiableList(live);
+            products = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return Sản phẩm tại số thứ tự, null nếu đã bị xóa
+     */
+    public Product productAt(int ordinal) {
+        return (Product) slots.get(ordinal);
+    }
+
+    /**
+     * @return Sản phẩm theo mã, null nếu không có
+     */
+    public Product productById(String id) {
+        Integer ordinal = ordinalsById.get(id);
+        return ordinal == null ? null : (Product) slots.get(ordinal);
+    }
+
+    /**
+     * @return Số số thứ tự đã cấp (kể cả số thứ tự đã xóa), dùng làm kích thước các mảng theo số thứ tự
+     */
+    public int size() {
+        return slots.length();
+    }
+
+    /**
+     * @return Số sản phẩm còn hiệu lực
+     */
+    public int getProductCount() {
+        return productCount;
+    }
+
+    public boolean hasDeletions() {
+        return productCount < slots.length();
+    }
+
+    /**
+     * @return Tập số thứ tự còn hiệu lực (chỉ đọc)
+     */
+    public FixedBitSet getLiveProducts() {
+        return liveProducts;
+    }
+
+    public InvertedIndex getIndex() {
+        return index;
+    }
+
+    public ProductAttributes getAttributes() {
+        return attributes;
+    }
+
+    public PriceIndex getPriceIndex() {
+        return priceIndex;
+    }
+
+    public Bm25Scorer getScorer() {
+        return scorer;
+    }
+
+    public PrefixSuggester getSuggester() {
+        return suggester;
+    }
+
+    public TrigramIndex getTrigramIndex() {
+        return trigramIndex;
+    }
+
+    public FacetIndex getFacetIndex() {
+        return facetIndex;
+    }
+
+    public AttributeFilterIndex getFilterIndex() {
+        return filterIndex;
+    }
+
+    /**
+     * Dựng ảnh chụp mới, thêm sản phẩm theo thứ tự danh mục
+     */
+    public static class Builder {
+        private final long version;
+        private final ProductStore store;
+        private final List<Product> products = new ArrayList<>();
+        private final Map<String, Integer> ordinalsById = new HashMap<>();
+        private final InvertedIndex.Builder indexBuilder = new InvertedIndex.Builder();
+        private final ProductAttributes.Builder attributesBuilder = new ProductAttributes.Builder();
+        private final PrefixSuggester.Builder suggesterBuilder = new PrefixSuggester.Builder();
+        private final FacetIndex.Builder facetBuilder = new FacetIndex.Builder();
+        private final AttributeFilterIndex.Builder filterBuilder = new AttributeFilterIndex.Builder();
+        // Chỉ mục ngược và bảng thuộc tính dựng sẵn (đọc từ ảnh chụp nhị phân), null để dựng từ sản phẩm
+        private InvertedIndex index;
+        private ProductAttributes attributes;
+
+        public Builder(long version, ProductStore store) {
+            this.version = version;
+            this.store = store;
+        }
+
+        /**
+         * @return Nơi lưu văn bản cho các sản phẩm thêm vào builder
+         */
+        public ProductStore getStore() {
+            return store;
+        }
+
+        /**
+         * Dùng chỉ mục ngược và bảng thuộc tính có sẵn thay vì dựng từ các sản phẩm được thêm.
+         * Phải gọi trước add; chỉ mục phải ứng với đúng các sản phẩm sẽ được thêm, theo cùng thứ tự.
+         */
+        public void setPrebuilt(InvertedIndex index, ProductAttributes attributes) {
+            if (!products.isEmpty()) {
+                throw new IllegalStateException("Đã thêm sản phẩm vào builder");
+            }
+            this.index = index;
+            this.attributes = attributes;
+        }
+
+        /**
+         * Thêm một sản phẩm (đã phân tích văn bản) vào danh sách và các chỉ mục.
+         * Sản phẩm không có mã được gán mã tính từ nội dung (xem contentId), không phụ thuộc
+         * vị trí trong file nên giữ nguyên qua các lần tải lại. Mã đã có sản phẩm khác dùng
+         * được thêm hậu tố "-2", "-3"... thay vì làm hỏng cả lần tải.
+         */
+        public void add(Product product) {
+            int ordinal = products.size();
+            boolean explicit = product.getId() != null && !product.getId().isEmpty();
+            String id = explicit ? product.getId() : contentId(product);
+            String uniqueId = id;
+            for (int n = 2; ordinalsById.putIfAbsent(uniqueId, ordinal) != null; n++) {
+                uniqueId = id + "-" + n;
+            }
+            if (explicit && !uniqueId.equals(id)) {
+                System.err.println("Trùng mã sản phẩm " + id + ", dùng " + uniqueId);
+            }
+            product.setId(uniqueId);
+
+            products.add(product);
+            if (index == null) {
+                indexBuilder.add(product.getNameTokens(), product.getDescriptionTokens());
+                attributesBuilder.add(product);
+            }
+            suggesterBuilder.addName(product.getName());
+            Specification[] specifications = product.getSpecifications();
+            facetBuilder.add(product, specifications, product.parsePrice());
+            filterBuilder.add(product, specifications);
+        }
+
+        /**
+         * Mã của sản phẩm không có "id": "p" + 64 bit đầu của SHA-256 từ tên, ảnh và nguồn dữ liệu.
+         * Không dùng giá hay mô tả để mã không đổi khi các trường hay sửa thay đổi.
+         */
+        static String contentId(Product product) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            for (String field : new String[] { product.getName(), product.getImage(), product.getSource() }) {
+                digest.update(field.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            byte[] hash = digest.digest();
+            StringBuilder id = new StringBuilder("p");
+            for (int i = 0; i < 8; i++) {
+                id.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return id.toString();
+        }
+
+        public CatalogSnapshot build() {
+            InvertedIndex index = this.index != null ? this.index : indexBuilder.build();
+            ProductAttributes attributes = this.attributes != null ? this.attributes : attributesBuilder.build();
+            int size = products.size();
+            if (index.getDocumentCount() != size || attributes.size() != size) {
+                throw new IllegalStateException("Chỉ mục dựng sẵn không khớp số sản phẩm");
+            }
+            return new CatalogSnapshot(version, System.currentTimeMillis(), store,
+                    ChunkedArray.of(products.toArray(new Product[0]), size), size, SegmentedMap.of(ordinalsById),
+                    FixedBitSet.full(size), index, attributes, PriceIndex.build(attributes), suggesterBuilder.build(),
+                    TrigramIndex.build(index.getTerms()), facetBuilder.build(), filterBuilder.build(), version,
+                    version);
+        }
+    }
+}
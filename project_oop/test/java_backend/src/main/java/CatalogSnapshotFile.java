@@ -0,0 +1,419 @@
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Ảnh chụp danh mục dạng nhị phân, ghi sau mỗi lần tải file JSON thành công.
+ * Lưu sản phẩm cùng kết quả đã phân tích (từ khóa, thông số kỹ thuật), chỉ mục ngược và bảng
+ * thuộc tính để lần khởi động sau chỉ cần ánh xạ file vào bộ nhớ, không phải parse JSON, chuẩn hóa
+ * văn bản, chạy lại regex hay dựng lại posting list. Gợi ý, facet và bộ lọc vẫn được dựng lại
+ * khi thêm từng sản phẩm.
+ *
+ * Mỗi lần ghi tạo một file mới "&lt;file JSON&gt;.snapshot.&lt;thế hệ&gt;" thay vì ghi đè: trên Windows
+ * file còn đang được ánh xạ (cho đến khi GC giải phóng) không thể bị thay thế. Khi đọc, thế hệ
+ * lớn nhất được dùng; các thế hệ cũ bị xóa sau mỗi lần ghi, file chưa xóa được sẽ xóa ở lần sau.
+ *
+ * Cấu trúc file (big-endian, số nguyên trong phần dữ liệu dạng varint):
+ * <pre>
+ * header  : magic, phiên bản định dạng, kích thước + thời điểm sửa của file JSON nguồn,
+ *           số sản phẩm, độ dài phần dữ liệu, CRC32 của phần dữ liệu
+ * dữ liệu : đường dẫn file nguồn,
+ *           bảng chuỗi dùng chung (từ khóa, tên thông số),
+ *           bảng thuộc tính: giá, mã xuất xứ, mã số người theo số thứ tự,
+ *           độ dài tên và mô tả theo số thứ tự,
+ *           posting list: chỉ số từ khóa, số phần tử, rồi (khoảng cách số thứ tự, tần suất trong tên,
+ *           tần suất trong mô tả) cho từng phần tử,
+ *           rồi từng sản phẩm: các trường văn bản, chỉ số từ khóa trong bảng, các cặp thông số
+ * </pre>
+ * Tăng FORMAT_VERSION mỗi khi đổi cấu trúc file hoặc cách phân tích văn bản/thông số,
+ * ảnh chụp cũ sẽ bị bỏ qua và danh mục được tải lại từ JSON.
+ */
+public class CatalogSnapshotFile {
+    private static final int MAGIC = 0x50534E50; // "PSNP"
+    private static final int FORMAT_VERSION = 3;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 8 + 8;
+    private static final String SUFFIX = ".snapshot";
+
+    /**
+     * @return File ảnh chụp mới nhất của file JSON nguồn, null nếu chưa có
+     */
+    public static Path latestFile(Path source) throws IOException {
+        Path latest = null;
+        long latestGeneration = -1;
+        for (Path file : listFiles(source)) {
+            long generation = generationOf(source, file);
+            if (generation > latestGeneration) {
+                latest = file;
+                latestGeneration = generation;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Các file ảnh chụp (mọi thế hệ, kể cả file tạm và file không đánh số của phiên bản trước)
+     */
+    private static List<Path> listFiles(Path source) throws IOException {
+        Path directory = source.toAbsolutePath().getParent();
+        List<Path> files = new ArrayList<>();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return files;
+        }
+        String prefix = source.getFileName() + SUFFIX;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                file -> file.getFileName().toString().startsWith(prefix))) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @return Thế hệ của file ảnh chụp, -1 nếu không phải file ảnh chụp đã ghi xong
+     */
+    private static long generationOf(Path source, Path file) {
+        String name = file.getFileName().toString();
+        String prefix = source.getFileName() + SUFFIX + ".";
+        if (!name.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Đọc ảnh chụp vào builder nếu ảnh chụp còn khớp với file nguồn
+     *
+     * @param file    File ảnh chụp
+     * @param source  File JSON nguồn
+     * @param builder Builder nhận các sản phẩm (chỉ được thêm khi ảnh chụp hợp lệ)
+     * @return Số sản phẩm đã đọc, -1 nếu chưa có ảnh chụp hoặc ảnh chụp đã cũ
+     * @throws IOException Nếu ảnh chụp bị hỏng (sai checksum hoặc cấu trúc)
+     */
+    public static int read(Path file, Path source, CatalogSnapshot.Builder builder) throws IOException {
+        if (!Files.isRegularFile(file) || !Files.isRegularFile(source)) {
+            return -1;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Ảnh chụp quá ngắn");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return -1;
+            }
+            long sourceSize = buffer.getLong();
+            long sourceModified = buffer.getLong();
+            if (sourceSize != Files.size(source)
+                    || sourceModified != Files.getLastModifiedTime(source).toMillis()) {
+                return -1;
+            }
+            int productCount = buffer.getInt();
+            long payloadLength = buffer.getLong();
+            long checksum = buffer.getLong();
+            if (payloadLength != channel.size() - HEADER_SIZE) {
+                throw new IOException("Ảnh chụp bị cắt cụt");
+            }
+
+            // Kiểm tra checksum trước khi thêm bất kỳ sản phẩm nào vào builder
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if (crc.getValue() != checksum) {
+                throw new IOException("Sai checksum ảnh chụp");
+            }
+
+            try {
+                if (!source.toAbsolutePath().toString().equals(readString(buffer))) {
+                    return -1;
+                }
+                String[] strings = new String[readVarInt(buffer)];
+                for (int i = 0; i < strings.length; i++) {
+                    strings[i] = readString(buffer);
+                }
+                builder.setPrebuilt(readIndex(buffer, strings, productCount), readAttributes(buffer, productCount));
+                for (int i = 0; i < productCount; i++) {
+                    readProduct(buffer, strings, builder);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Ảnh chụp không hợp lệ: " + e, e);
+            }
+            return productCount;
+        }
+    }
+
+    /**
+     * Ghi ảnh chụp cho danh mục vừa tải thành thế hệ tiếp theo. Ghi ra file tạm rồi đổi tên,
+     * nên file ảnh chụp mới nhất luôn hoàn chỉnh. Sau đó xóa các thế hệ cũ nếu được.
+     *
+     * @param source  File JSON nguồn của danh mục
+     * @param catalog Danh mục vừa đọc từ file nguồn (chưa có sản phẩm bị xóa)
+     * @return File ảnh chụp vừa ghi
+     */
+    public static Path write(Path source, CatalogSnapshot catalog) throws IOException {
+        if (catalog.hasDeletions()) {
+            throw new IllegalArgumentException("Ảnh chụp chỉ ghi danh mục đọc từ file nguồn");
+        }
+        List<Product> products = catalog.getProducts();
+        long sourceSize = Files.size(source);
+        long sourceModified = Files.getLastModifiedTime(source).toMillis();
+
+        // Bảng chuỗi dùng chung: từ khóa và tên thông số lặp lại giữa nhiều sản phẩm
+        Map<String, Integer> stringIds = new LinkedHashMap<>();
+        for (Product product : products) {
+            for (String token : product.getNameTokens()) {
+                stringIds.putIfAbsent(token, stringIds.size());
+            }
+            for (String token : product.getDescriptionTokens()) {
+                stringIds.putIfAbsent(token, stringIds.size());
+            }
+            for (Specification specification : product.getSpecifications()) {
+                stringIds.putIfAbsent(specification.getLabel(), stringIds.size());
+            }
+        }
+
+        Path latest = latestFile(source);
+        long generation = latest == null ? 1 : generationOf(source, latest) + 1;
+        Path file = source.toAbsolutePath().resolveSibling(source.getFileName() + SUFFIX + "." + generation);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Phần dữ liệu ghi trước, header (có checksum) ghi sau vào đầu file
+            channel.position(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024), crc));
+
+            writeString(out, source.toAbsolutePath().toString());
+            writeVarInt(out, stringIds.size());
+            for (String value : stringIds.keySet()) {
+                writeString(out, value);
+            }
+            writeIndex(out, catalog.getIndex(), stringIds);
+            writeAttributes(out, catalog.getAttributes());
+            for (Product product : products) {
+                writeProduct(out, product, stringIds);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION);
+            header.putLong(sourceSize).putLong(sourceModified);
+            header.putInt(products.size());
+            header.putLong(channel.position() - HEADER_SIZE).putLong(crc.getValue());
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (Path old : listFiles(source)) {
+            if (!old.equals(file)) {
+                try {
+                    Files.deleteIfExists(old);
+                } catch (IOException e) {
+                    // Có thể vẫn đang được ánh xạ (Windows): xóa ở lần ghi sau
+                }
+            }
+        }
+        return file;
+    }
+
+    private static void writeIndex(DataOutputStream out, InvertedIndex index, Map<String, Integer> stringIds)
+            throws IOException {
+        for (int i = 0; i < index.getDocumentCount(); i++) {
+            writeVarInt(out, index.nameLengthAt(i));
+            writeVarInt(out, index.descriptionLengthAt(i));
+        }
+        writeVarInt(out, index.getTerms().size());
+        for (String term : index.getTerms()) {
+            InvertedIndex.Postings postings = index.getPostings(term);
+            writeVarInt(out, stringIds.get(term));
+            writeVarInt(out, postings.size());
+            int previous = 0;
+            for (int i = 0; i < postings.size(); i++) {
+                writeVarInt(out, postings.ordinalAt(i) - previous);
+                writeVarInt(out, postings.nameFrequencyAt(i));
+                writeVarInt(out, postings.descriptionFrequencyAt(i));
+                previous = postings.ordinalAt(i);
+            }
+        }
+    }
+
+    private static InvertedIndex readIndex(ByteBuffer buffer, String[] strings, int productCount) {
+        int[] nameLengths = new int[productCount];
+        int[] descriptionLengths = new int[productCount];
+        for (int i = 0; i < productCount; i++) {
+            nameLengths[i] = readVarInt(buffer);
+            descriptionLengths[i] = readVarInt(buffer);
+        }
+        int termCount = readVarInt(buffer);
+        Map<String, InvertedIndex.Postings> postingsByTerm = new HashMap<>(termCount * 2);
+        for (int t = 0; t < termCount; t++) {
+            String term = strings[readVarInt(buffer)];
+            int size = readVarInt(buffer);
+            int[] ordinals = new int[size];
+            short[] nameFrequencies = new short[size];
+            short[] descriptionFrequencies = new short[size];
+            int ordinal = 0;
+            for (int i = 0; i < size; i++) {
+                ordinal += readVarInt(buffer);
+                ordinals[i] = ordinal;
+                nameFrequencies[i] = (short) readVarInt(buffer);
+                descriptionFrequencies[i] = (short) readVarInt(buffer);
+            }
+            postingsByTerm.put(term, new InvertedIndex.Postings(ordinals, nameFrequencies, descriptionFrequencies));
+        }
+        return InvertedIndex.of(postingsByTerm, nameLengths, descriptionLengths);
+    }
+
+    private static void writeAttributes(DataOutputStream out, ProductAttributes attributes) throws IOException {
+        for (int i = 0; i < attributes.size(); i++) {
+            writeVarLong(out, attributes.priceAt(i));
+            out.writeByte(attributes.originAt(i));
+            out.writeByte(attributes.householdSizeAt(i));
+        }
+    }
+
+    private static ProductAttributes readAttributes(ByteBuffer buffer, int productCount) {
+        ProductAttributes.Builder attributes = new ProductAttributes.Builder();
+        for (int i = 0; i < productCount; i++) {
+            attributes.set(i, readVarLong(buffer), buffer.get(), buffer.get());
+        }
+        return attributes.build();
+    }
+
+    private static void writeProduct(DataOutputStream out, Product product, Map<String, Integer> stringIds)
+            throws IOException {
+        Specification[] specifications = product.getSpecifications();
+        writeString(out, product.getId());
+        writeString(out, product.getName());
+        writeString(out, product.getImage());
+        writeString(out, product.getPrice());
+        writeString(out, product.getDescription());
+        writeString(out, product.getRating());
+        writeString(out, product.getRatingCount());
+        writeString(out, product.getSource());
+        writeString(out, product.getProductType());
+        writeString(out, product.getOldPrice());
+        writeTokens(out, product.getNameTokens(), stringIds);
+        writeTokens(out, product.getDescriptionTokens(), stringIds);
+        writeVarInt(out, specifications.length);
+        for (Specification specification : specifications) {
+            writeVarInt(out, stringIds.get(specification.getLabel()));
+            writeString(out, specification.getValue());
+        }
+    }
+
+    private static void readProduct(ByteBuffer buffer, String[] strings, CatalogSnapshot.Builder builder) {
+        String id = readString(buffer);
+        // Các trường được ghi theo đúng thứ tự tham số của constructor
+        Product product = new Product(builder.getStore(), readString(buffer), readString(buffer), readString(buffer),
+                readString(buffer), readString(buffer), readString(buffer), readString(buffer),
+                readString(buffer));
+        product.setOldPrice(readString(buffer));
+        product.setId(id);
+        product.setAnalyzedText(readTokens(buffer, strings), readTokens(buffer, strings));
+
+        Specification[] specifications = new Specification[readVarInt(buffer)];
+        for (int i = 0; i < specifications.length; i++) {
+            specifications[i] = new Specification(strings[readVarInt(buffer)], readString(buffer));
+        }
+        product.setSpecifications(specifications);
+        builder.add(product);
+    }
+
+    private static void writeTokens(DataOutputStream out, String[] tokens, Map<String, Integer> stringIds)
+            throws IOException {
+        writeVarInt(out, tokens.length);
+        for (String token : tokens) {
+            writeVarInt(out, stringIds.get(token));
+        }
+    }
+
+    private static String[] readTokens(ByteBuffer buffer, String[] strings) {
+        String[] tokens = new String[readVarInt(buffer)];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = strings[readVarInt(buffer)];
+        }
+        return tokens;
+    }
+
+    /**
+     * Chuỗi UTF-8 có độ dài + 1 đứng trước; 0 là null
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Số nguyên không âm dạng 7 bit mỗi byte (bit cao = còn byte tiếp theo);
+     * chỉ số từ khóa và độ dài chuỗi thường chỉ cần 1-2 byte
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Kết quả một lần cập nhật sản phẩm: ảnh chụp trước và sau cập nhật cùng các thay đổi đã áp dụng
+ */
+public class CatalogUpdate {
+    private final CatalogSnapshot previous;
+    private final CatalogSnapshot snapshot;
+    private final Map<String, Product> changes;
+
+    /**
+     * @param changes Thay đổi theo mã sản phẩm như truyền cho CatalogSnapshot.withChanges (null là xóa)
+     */
+    CatalogUpdate(CatalogSnapshot previous, CatalogSnapshot snapshot, Map<String, Product> changes) {
+        this.previous = previous;
+        this.snapshot = snapshot;
+        this.changes = changes;
+    }
+
+    public CatalogSnapshot getPrevious() {
+        return previous;
+    }
+
+    /**
+     * @return Ảnh chụp danh mục sau khi cập nhật
+     */
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return Từ khóa trong tên và mô tả trước và sau khi sửa của mọi sản phẩm thay đổi
+     */
+    public Set<String> getChangedTerms() {
+        Set<String> terms = new HashSet<>();
+        for (Map.Entry<String, Product> change : changes.entrySet()) {
+            addTerms(terms, previous.productById(change.getKey()));
+            addTerms(terms, change.getValue());
+        }
+        return terms;
+    }
+
+    private static void addTerms(Set<String> terms, Product product) {
+        if (product != null) {
+            Collections.addAll(terms, product.getNameTokens());
+            Collections.addAll(terms, product.getDescriptionTokens());
+        }
+    }
+
+    /**
+     * @return Số sản phẩm được thêm hoặc sửa (mỗi mã tính một lần)
+     */
+    public int getUpsertedCount() {
+        int count = 0;
+        for (Product product : changes.values()) {
+            if (product != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Số sản phẩm bị xóa; mã không có trong danh mục trước cập nhật không được tính
+     */
+    public int getDeletedCount() {
+        int count = 0;
+        for (Map.Entry<String, Product> change : changes.entrySet()) {
+            if (change.getValue() == null && previous.productById(change.getKey()) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,89 @@
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Theo dõi file danh mục và tải lại khi file thay đổi.
+ * Chạy trên luồng nền riêng; nhiều sự kiện liên tiếp (file đang được ghi)
+ * được gộp thành một lần tải lại sau khi file im lặng một khoảng thời gian.
+ */
+public class CatalogWatcher implements Runnable {
+    private final Path file;
+    private final ProductSearchService searchService;
+    private final long quietMillis;
+
+    public CatalogWatcher(Path file, ProductSearchService searchService, long quietMillis) {
+        this.file = file.toAbsolutePath();
+        this.searchService = searchService;
+        this.quietMillis = quietMillis;
+    }
+
+    /**
+     * Khởi động luồng nền theo dõi file
+     */
+    public Thread start() {
+        Thread thread = new Thread(this, "catalog-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    @Override
+    public void run() {
+        Path directory = file.getParent();
+        try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+
+                // Chờ đến khi không còn sự kiện nào trong quietMillis (file ghi xong)
+                while (changed) {
+                    WatchKey next = watchService.poll(quietMillis, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    drain(next);
+                }
+
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Không thể theo dõi file danh mục: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Đọc hết sự kiện của khóa
+     *
+     * @return True nếu có sự kiện liên quan tới file danh mục
+     */
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || (context instanceof Path && file.getFileName().equals(context))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload() {
+        try {
+            searchService.reload();
+        } catch (Exception e) {
+            // Giữ danh mục cũ, chờ lần thay đổi tiếp theo
+            System.err.println("Lỗi khi tải lại danh mục: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Mảng theo số thứ tự sản phẩm chia thành các khối cố định, không thay đổi sau khi tạo.
+ * Bản cập nhật (qua Editor) dùng chung các khối không bị sửa với bản cũ: sửa một phần tử chỉ
+ * sao chép khối chứa nó và mảng con trỏ khối, không sao chép cả mảng như Arrays.copyOf.
+ * Mỗi khối là một mảng nguyên thủy (int[], long[], byte[]) hoặc Object[] tùy loại mảng.
+ */
+public class ChunkedArray {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Kiểu phần tử của khối (int.class, long.class, byte.class hoặc Object.class)
+    private final Class<?> componentType;
+    private final Object[] chunks;
+    private final int length;
+
+    private ChunkedArray(Class<?> componentType, Object[] chunks, int length) {
+        this.componentType = componentType;
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    /**
+     * Tạo mảng từ length phần tử đầu của values (values là int[], long[], byte[] hoặc Object[])
+     */
+    public static ChunkedArray of(Object values, int length) {
+        Class<?> componentType = values.getClass().getComponentType();
+        if (!componentType.isPrimitive()) {
+            componentType = Object.class;
+        }
+        Object[] chunks = new Object[(length + CHUNK_MASK) >>> CHUNK_BITS];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = Array.newInstance(componentType, CHUNK_SIZE);
+            System.arraycopy(values, c << CHUNK_BITS, chunks[c], 0, Math.min(CHUNK_SIZE, length - (c << CHUNK_BITS)));
+        }
+        return new ChunkedArray(componentType, chunks, length);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int getInt(int index) {
+        return ((int[]) chunks[index >>> CHUNK_BITS])[index & CHUNK_MASK];
+    }
+
+    public long getLong(int index) {
+        return ((long[]) chunks[index >>> CHUNK_BITS])[index & CHUNK_MASK];
+    }
+
+    public byte getByte(int index) {
+        return ((byte[]) chunks[index >>> CHUNK_BITS])[index & CHUNK_MASK];
+    }
+
+    public Object get(int index) {
+        return ((Object[]) chunks[index >>> CHUNK_BITS])[index & CHUNK_MASK];
+    }
+
+    /**
+     * Bắt đầu sửa: các lần ghi chỉ có hiệu lực trên mảng trả về từ Editor.build(), mảng này không đổi
+     */
+    public Editor edit() {
+        return new Editor(this);
+    }
+
+    /**
+     * Ghi các phần tử rồi tạo mảng mới. Khối được sao chép ở lần ghi đầu tiên vào nó,
+     * các lần ghi sau vào cùng khối sửa trực tiếp bản sao.
+     */
+    public static class Editor {
+        private final Class<?> componentType;
+        private Object[] chunks;
+        private boolean[] copied;
+        private int length;
+
+        private Editor(ChunkedArray base) {
+            this.componentType = base.componentType;
+            this.chunks = base.chunks.clone();
+            this.copied = new boolean[chunks.length];
+            this.length = base.length;
+        }
+
+        public void setInt(int index, int value) {
+            ((int[]) writable(index))[index & CHUNK_MASK] = value;
+        }
+
+        public void setLong(int index, long value) {
+            ((long[]) writable(index))[index & CHUNK_MASK] = value;
+        }
+
+        public void setByte(int index, byte value) {
+            ((byte[]) writable(index))[index & CHUNK_MASK] = value;
+        }
+
+        public void set(int index, Object value) {
+            ((Object[]) writable(index))[index & CHUNK_MASK] = value;
+        }
+
+        /**
+         * Khối chứa index, sao chép nếu còn dùng chung với mảng cũ; index >= length thì nối dài mảng
+         */
+        private Object writable(int index) {
+            int c = index >>> CHUNK_BITS;
+            if (c >= chunks.length) {
+                int capacity = Math.max(c + 1, chunks.length * 2);
+                chunks = Arrays.copyOf(chunks, capacity);
+                copied = Arrays.copyOf(copied, capacity);
+            }
+            if (chunks[c] == null) {
+                chunks[c] = Array.newInstance(componentType, CHUNK_SIZE);
+                copied[c] = true;
+            } else if (!copied[c]) {
+                Object chunk = Array.newInstance(componentType, CHUNK_SIZE);
+                System.arraycopy(chunks[c], 0, chunk, 0, CHUNK_SIZE);
+                chunks[c] = chunk;
+                copied[c] = true;
+            }
+            length = Math.max(length, index + 1);
+            return chunks[c];
+        }
+
+        public ChunkedArray build() {
+            int chunkCount = (length + CHUNK_MASK) >>> CHUNK_BITS;
+            return new ChunkedArray(componentType, Arrays.copyOf(chunks, chunkCount), length);
+        }
+    }
+}
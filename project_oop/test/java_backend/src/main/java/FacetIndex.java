@@ -0,0 +1,237 @@
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Chỉ mục facet: với mỗi giá trị của mỗi thuộc tính (xuất xứ, loại sản phẩm, số người,
+ * kích cỡ màn hình, năm ra mắt, khoảng giá) lưu một tập bit các sản phẩm có giá trị đó.
+ * Số lượng theo facet được tính bằng AND + popcount với tập kết quả tìm kiếm.
+ */
+public class FacetIndex {
+    // Tên các facet trong response
+    public static final String ORIGIN = "origin";
+    public static final String TYPE = "type";
+    public static final String HOUSEHOLD = "household";
+    public static final String SCREEN_SIZE = "screen_size";
+    public static final String YEAR = "year";
+    public static final String PRICE = "price";
+
+    // Khoảng giá: cận trên (không bao gồm) của từng khoảng, đơn vị đồng
+    private static final long[] PRICE_BUCKET_LIMITS = { 5_000_000L, 10_000_000L, 20_000_000L, 30_000_000L };
+    private static final String[] PRICE_BUCKET_LABELS = {
+            "Dưới 5 triệu", "5 - 10 triệu", "10 - 20 triệu", "20 - 30 triệu", "Trên 30 triệu" };
+
+    // Tên facet -> (khóa giá trị -> tập sản phẩm), giữ thứ tự khai báo; khóa -> giá trị hiển thị
+    private final Map<String, Map<String, FixedBitSet>> facets;
+    private final Map<String, String> labels;
+    private final int size;
+
+    private FacetIndex(Map<String, Map<String, FixedBitSet>> facets, Map<String, String> labels, int size) {
+        this.facets = facets;
+        this.labels = labels;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Đếm số sản phẩm theo từng giá trị facet trong một tập sản phẩm
+     *
+     * @param matches Tập sản phẩm (kết quả tìm kiếm), null nghĩa là toàn bộ danh mục
+     * @return Tên facet -> (giá trị -> số lượng), giá trị sắp xếp theo số lượng giảm dần
+     */
+    public Map<String, Map<String, Integer>> count(FixedBitSet matches) {
+        Map<String, Map<String, Integer>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, FixedBitSet>> facet : facets.entrySet()) {
+            List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+            for (Map.Entry<String, FixedBitSet> value : facet.getValue().entrySet()) {
+                int count = matches == null
+                        ? value.getValue().cardinality()
+                        : value.getValue().intersectionCount(matches);
+                if (count > 0) {
+                    counts.add(new AbstractMap.SimpleEntry<>(labels.get(value.getKey()), count));
+                }
+            }
+            counts.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+
+            Map<String, Integer> ordered = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entry : counts) {
+                ordered.put(entry.getKey(), entry.getValue());
+            }
+            result.put(facet.getKey(), ordered);
+        }
+        return result;
+    }
+
+    /**
+     * Nhãn khoảng giá của một mức giá
+     */
+    static String priceBucket(long price) {
+        for (int i = 0; i < PRICE_BUCKET_LIMITS.length; i++) {
+            if (price < PRICE_BUCKET_LIMITS[i]) {
+                return PRICE_BUCKET_LABELS[i];
+            }
+        }
+        return PRICE_BUCKET_LABELS[PRICE_BUCKET_LABELS.length - 1];
+    }
+
+    /**
+     * Liệt kê các giá trị facet của một sản phẩm
+     *
+     * @param consumer Nhận (tên facet, giá trị)
+     */
+    static void forEachValue(Product product, Specification[] specifications, long price,
+            BiConsumer<String, String> consumer) {
+        consumer.accept(TYPE, product.getProductType());
+        for (Specification spec : specifications) {
+            switch (spec.getLabel()) {
+                case "Nơi sản xuất":
+                    consumer.accept(ORIGIN, ProductAttributes.originName(spec.getValue()));
+                    break;
+                case "Số người sử dụng":
+                    consumer.accept(HOUSEHOLD, spec.getValue());
+                    break;
+                case "Kích cỡ màn hình":
+                    consumer.accept(SCREEN_SIZE, spec.getValue());
+                    break;
+                case "Năm ra mắt":
+                    consumer.accept(YEAR, spec.getValue());
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (price > 0) {
+            consumer.accept(PRICE, priceBucket(price));
+        }
+    }
+
+    /**
+     * Chuẩn hóa giá trị facet để gộp các cách viết khác nhau (dạng Unicode, hoa thường)
+     *
+     * @return {khóa, giá trị hiển thị}, hoặc null nếu giá trị rỗng
+     */
+    private static String[] valueKey(String facet, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        String label = Normalizer.normalize(value.trim(), Normalizer.Form.NFC);
+        return new String[] { facet + "\u0000" + TextAnalyzer.fold(label), label };
+    }
+
+    /**
+     * Xây dựng chỉ mục facet, thêm sản phẩm theo thứ tự số thứ tự tăng dần
+     */
+    public static class Builder {
+        // Tên facet -> (khóa không dấu -> số thứ tự sản phẩm), và khóa -> giá trị hiển thị
+        private final Map<String, Map<String, List<Integer>>> ordinals = new LinkedHashMap<>();
+        private final Map<String, String> labels = new HashMap<>();
+        private int size;
+
+        public Builder() {
+            for (String facet : new String[] { ORIGIN, TYPE, HOUSEHOLD, SCREEN_SIZE, YEAR, PRICE }) {
+                ordinals.put(facet, new HashMap<>());
+            }
+        }
+
+        /**
+         * Thêm một sản phẩm với các thông số đã trích xuất
+         *
+         * @return Số thứ tự được gán cho sản phẩm
+         */
+        public int add(Product product, Specification[] specifications, long price) {
+            int ordinal = size++;
+            forEachValue(product, specifications, price, (facet, value) -> add(facet, value, ordinal));
+            return ordinal;
+        }
+
+        private void add(String facet, String value, int ordinal) {
+            String[] key = valueKey(facet, value);
+            if (key == null) {
+                return;
+            }
+            labels.putIfAbsent(key[0], key[1]);
+            ordinals.get(facet).computeIfAbsent(key[0], k -> new ArrayList<>()).add(ordinal);
+        }
+
+        public FacetIndex build() {
+            Map<String, Map<String, FixedBitSet>> facets = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, List<Integer>>> facet : ordinals.entrySet()) {
+                Map<String, FixedBitSet> values = new HashMap<>();
+                for (Map.Entry<String, List<Integer>> value : facet.getValue().entrySet()) {
+                    FixedBitSet bits = new FixedBitSet(size);
+                    for (int ordinal : value.getValue()) {
+                        bits.set(ordinal);
+                    }
+                    values.put(value.getKey(), bits);
+                }
+                facets.put(facet.getKey(), values);
+            }
+            return new FacetIndex(facets, labels, size);
+        }
+    }
+
+    /**
+     * Cập nhật chỉ mục đã có theo từng sản phẩm. Chỉ các tập bit chứa sản phẩm thay đổi
+     * được sao chép, chỉ mục cũ không bị thay đổi.
+     */
+    public static class Updater {
+        private final Map<String, Map<String, FixedBitSet>> facets = new LinkedHashMap<>();
+        private final Map<String, String> labels;
+        // Các tập bit đã sao chép trong lần cập nhật này (được phép sửa trực tiếp)
+        private final Set<FixedBitSet> copied = Collections.newSetFromMap(new IdentityHashMap<>());
+        private int size;
+
+        public Updater(FacetIndex base) {
+            for (Map.Entry<String, Map<String, FixedBitSet>> facet : base.facets.entrySet()) {
+                facets.put(facet.getKey(), new HashMap<>(facet.getValue()));
+            }
+            labels = new HashMap<>(base.labels);
+            size = base.size;
+        }
+
+        /**
+         * Gỡ sản phẩm khỏi mọi giá trị facet đang chứa nó
+         */
+        public void remove(int ordinal) {
+            for (Map<String, FixedBitSet> values : facets.values()) {
+                for (Map.Entry<String, FixedBitSet> value : values.entrySet()) {
+                    if (value.getValue().get(ordinal)) {
+                        writable(values, value.getKey()).clear(ordinal);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Thêm sản phẩm tại số thứ tự cho trước (số thứ tự mới thì nối vào cuối)
+         */
+        public void add(int ordinal, Product product, Specification[] specifications, long price) {
+            size = Math.max(size, ordinal + 1);
+            forEachValue(product, specifications, price, (facet, value) -> {
+                String[] key = valueKey(facet, value);
+                if (key != null) {
+                    labels.putIfAbsent(key[0], key[1]);
+                    writable(facets.get(facet), key[0]).set(ordinal);
+                }
+            });
+        }
+
+        private FixedBitSet writable(Map<String, FixedBitSet> values, String key) {
+            FixedBitSet bits = values.get(key);
+            if (bits == null || !copied.contains(bits) || bits.length() < size) {
+                bits = bits == null ? new FixedBitSet(size) : bits.copy(Math.max(size, bits.length()));
+                copied.add(bits);
+                values.put(key, bits);
+            }
+            return bits;
+        }
+
+        public FacetIndex build() {
+            return new FacetIndex(facets, labels, size);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+
+import java.util.Arrays;
+
+/**
+ * Tập bit kích thước cố định theo số thứ tự sản phẩm.
+ * Khác java.util.BitSet ở chỗ đếm được số phần tử chung của hai tập
+ * (AND + popcount) mà không cần tạo tập trung gian.
+ */
+public class FixedBitSet {
+    private final long[] words;
+    private final int length;
+
+    public FixedBitSet(int length) {
+        this.length = length;
+        this.words = new long[(length + 63) >>> 6];
+    }
+
+    private FixedBitSet(long[] words, int length) {
+        this.words = words;
+        this.length = length;
+    }
+
+    /**
+     * Tạo tập chứa mọi số thứ tự trong [0, length)
+     */
+    public static FixedBitSet full(int length) {
+        FixedBitSet set = new FixedBitSet(length);
+        Arrays.fill(set.words, -1L);
+        int extra = set.words.length * 64 - length;
+        if (extra > 0) {
+            set.words[set.words.length - 1] >>>= extra;
+        }
+        return set;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void set(int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public void clear(int index) {
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    public boolean get(int index) {
+        return index < length && (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return Số phần tử của tập
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return Số phần tử chung của hai tập
+     */
+    public int intersectionCount(FixedBitSet other) {
+        int n = Math.min(words.length, other.words.length);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            count += Long.bitCount(words[i] & other.words[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Giữ lại các phần tử cũng có trong tập kia (thay đổi tập hiện tại)
+     */
+    public void and(FixedBitSet other) {
+        int n = Math.min(words.length, other.words.length);
+        for (int i = 0; i < n; i++) {
+            words[i] &= other.words[i];
+        }
+        for (int i = n; i < words.length; i++) {
+            words[i] = 0;
+        }
+    }
+
+    /**
+     * Phần tử đầu tiên >= from, hoặc -1 nếu không còn
+     */
+    public int nextSetBit(int from) {
+        if (from >= length) {
+            return -1;
+        }
+        int i = from >>> 6;
+        long word = words[i] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++i == words.length) {
+                return -1;
+            }
+            word = words[i];
+        }
+    }
+
+    /**
+     * Bản sao với độ dài mới (dài hơn thì các bit thêm vào bằng 0)
+     */
+    public FixedBitSet copy(int newLength) {
+        FixedBitSet copy = new FixedBitSet(newLength);
+        System.arraycopy(words, 0, copy.words, 0, Math.min(words.length, copy.words.length));
+        if (newLength < length) {
+            int extra = copy.words.length * 64 - newLength;
+            if (extra > 0 && copy.words.length > 0) {
+                copy.words[copy.words.length - 1] &= -1L >>> extra;
+            }
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,352 @@
+
+import java.util.*;
+
+/**
+ * Chỉ mục ngược: từ khóa -> danh sách sản phẩm (theo số thứ tự) chứa từ khóa đó.
+ * Lưu kèm độ dài tên/mô tả của từng sản phẩm và độ dài trung bình để chấm điểm BM25.
+ * Không thay đổi sau khi tạo; cập nhật sản phẩm tạo chỉ mục mới dùng chung các posting list không đổi,
+ * các phân đoạn từ vựng và các khối độ dài không bị sửa.
+ */
+public class InvertedIndex {
+    private final SegmentedMap<String, Postings> postingsByTerm;
+    // Số sản phẩm còn hiệu lực (không tính số thứ tự đã xóa)
+    private final int documentCount;
+    // Độ dài theo số thứ tự (int), sản phẩm đã xóa có độ dài 0
+    private final ChunkedArray nameLengths;
+    private final ChunkedArray descriptionLengths;
+    // Tổng độ dài, cập nhật cùng từng sản phẩm thay vì cộng lại cả mảng
+    private final long totalNameLength;
+    private final long totalDescriptionLength;
+
+    private InvertedIndex(SegmentedMap<String, Postings> postingsByTerm, int documentCount,
+            ChunkedArray nameLengths, ChunkedArray descriptionLengths, long totalNameLength,
+            long totalDescriptionLength) {
+        this.postingsByTerm = postingsByTerm;
+        this.documentCount = documentCount;
+        this.nameLengths = nameLengths;
+        this.descriptionLengths = descriptionLengths;
+        this.totalNameLength = totalNameLength;
+        this.totalDescriptionLength = totalDescriptionLength;
+    }
+
+    /**
+     * Tạo chỉ mục từ các posting list và độ dài đã có sẵn (đọc từ ảnh chụp nhị phân)
+     *
+     * @param postingsByTerm     Từ khóa -> posting list
+     * @param nameLengths        Số từ trong tên theo số thứ tự
+     * @param descriptionLengths Số từ trong mô tả theo số thứ tự
+     */
+    static InvertedIndex of(Map<String, Postings> postingsByTerm, int[] nameLengths, int[] descriptionLengths) {
+        long totalNameLength = 0;
+        long totalDescriptionLength = 0;
+        for (int i = 0; i < nameLengths.length; i++) {
+            totalNameLength += nameLengths[i];
+            totalDescriptionLength += descriptionLengths[i];
+        }
+        return new InvertedIndex(SegmentedMap.of(postingsByTerm), nameLengths.length,
+                ChunkedArray.of(nameLengths, nameLengths.length),
+                ChunkedArray.of(descriptionLengths, descriptionLengths.length), totalNameLength,
+                totalDescriptionLength);
+    }
+
+    /**
+     * Lấy danh sách posting của một từ khóa
+     *
+     * @param term Từ khóa (đã chuẩn hóa)
+     * @return Posting list hoặc null nếu từ khóa không có trong chỉ mục
+     */
+    public Postings getPostings(String term) {
+        return postingsByTerm.get(term);
+    }
+
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * @return Tập từ vựng của chỉ mục
+     */
+    public Set<String> getTerms() {
+        return postingsByTerm.keySet();
+    }
+
+    /**
+     * @return Số từ trong tên của sản phẩm
+     */
+    public int nameLengthAt(int ordinal) {
+        return nameLengths.getInt(ordinal);
+    }
+
+    /**
+     * @return Số từ trong mô tả của sản phẩm
+     */
+    public int descriptionLengthAt(int ordinal) {
+        return descriptionLengths.getInt(ordinal);
+    }
+
+    public float getAverageNameLength() {
+        return documentCount == 0 ? 0 : (float) totalNameLength / documentCount;
+    }
+
+    public float getAverageDescriptionLength() {
+        return documentCount == 0 ? 0 : (float) totalDescriptionLength / documentCount;
+    }
+
+    /**
+     * Danh sách posting của một từ khóa: số thứ tự sản phẩm (tăng dần)
+     * cùng số lần xuất hiện trong tên và trong mô tả.
+     * Độ dài danh sách chính là tần suất tài liệu (document frequency) của từ khóa.
+     */
+    public static class Postings {
+        private final int[] ordinals;
+        private final short[] nameFrequencies;
+        private final short[] descriptionFrequencies;
+
+        Postings(int[] ordinals, short[] nameFrequencies, short[] descriptionFrequencies) {
+            this.ordinals = ordinals;
+            this.nameFrequencies = nameFrequencies;
+            this.descriptionFrequencies = descriptionFrequencies;
+        }
+
+        public int size() {
+            return ordinals.length;
+        }
+
+        public int ordinalAt(int i) {
+            return ordinals[i];
+        }
+
+        public int nameFrequencyAt(int i) {
+            return nameFrequencies[i];
+        }
+
+        public int descriptionFrequencyAt(int i) {
+            return descriptionFrequencies[i];
+        }
+
+        /**
+         * Vị trí đầu tiên trong posting list có số thứ tự >= ordinal
+         */
+        public int lowerBound(int ordinal) {
+            int low = 0;
+            int high = ordinals.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ordinals[mid] < ordinal) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Tìm vị trí của sản phẩm trong posting list
+         *
+         * @return Vị trí hoặc -1 nếu sản phẩm không chứa từ khóa
+         */
+        public int find(int ordinal) {
+            int position = lowerBound(ordinal);
+            return position < ordinals.length && ordinals[position] == ordinal ? position : -1;
+        }
+    }
+
+    /**
+     * Xây dựng chỉ mục ngược, thêm sản phẩm theo thứ tự số thứ tự tăng dần
+     */
+    public static class Builder {
+        private final Map<String, PostingsBuffer> buffers = new HashMap<>();
+        private int[] nameLengths = new int[16];
+        private int[] descriptionLengths = new int[16];
+        private int documentCount;
+        private long totalNameLength;
+        private long totalDescriptionLength;
+
+        /**
+         * Thêm một sản phẩm vào chỉ mục
+         *
+         * @param nameTokens        Các từ của tên sản phẩm (đã phân tích bằng TextAnalyzer)
+         * @param descriptionTokens Các từ của mô tả sản phẩm (đã phân tích bằng TextAnalyzer)
+         * @return Số thứ tự được gán cho sản phẩm
+         */
+        public int add(String[] nameTokens, String[] descriptionTokens) {
+            int ordinal = documentCount++;
+            if (ordinal == nameLengths.length) {
+                nameLengths = Arrays.copyOf(nameLengths, ordinal * 2);
+                descriptionLengths = Arrays.copyOf(descriptionLengths, ordinal * 2);
+            }
+            nameLengths[ordinal] = nameTokens.length;
+            descriptionLengths[ordinal] = descriptionTokens.length;
+            totalNameLength += nameTokens.length;
+            totalDescriptionLength += descriptionTokens.length;
+
+            for (Map.Entry<String, int[]> entry : termFrequencies(nameTokens, descriptionTokens).entrySet()) {
+                int[] tf = entry.getValue();
+                buffers.computeIfAbsent(entry.getKey(), k -> new PostingsBuffer()).add(ordinal, tf[0], tf[1]);
+            }
+            return ordinal;
+        }
+
+        public InvertedIndex build() {
+            Map<String, Postings> postings = new HashMap<>(buffers.size() * 2);
+            for (Map.Entry<String, PostingsBuffer> entry : buffers.entrySet()) {
+                postings.put(entry.getKey(), entry.getValue().toPostings());
+            }
+            return new InvertedIndex(SegmentedMap.of(postings), documentCount,
+                    ChunkedArray.of(nameLengths, documentCount), ChunkedArray.of(descriptionLengths, documentCount),
+                    totalNameLength, totalDescriptionLength);
+        }
+    }
+
+    /**
+     * Cập nhật chỉ mục đã có: gỡ/thêm từng sản phẩm theo số thứ tự rồi tạo chỉ mục mới.
+     * Chỉ các posting list của từ khóa bị ảnh hưởng được sao chép, chỉ mục cũ không bị thay đổi.
+     */
+    public static class Updater {
+        private final InvertedIndex base;
+        // Từ khóa -> (số thứ tự -> {tần suất trong tên, trong mô tả}), null nghĩa là gỡ khỏi posting list
+        private final Map<String, TreeMap<Integer, short[]>> changes = new HashMap<>();
+        private final ChunkedArray.Editor nameLengths;
+        private final ChunkedArray.Editor descriptionLengths;
+        private int documentCount;
+        private long totalNameLength;
+        private long totalDescriptionLength;
+        private boolean vocabularyChanged;
+
+        public Updater(InvertedIndex base) {
+            this.base = base;
+            this.nameLengths = base.nameLengths.edit();
+            this.descriptionLengths = base.descriptionLengths.edit();
+            this.documentCount = base.documentCount;
+            this.totalNameLength = base.totalNameLength;
+            this.totalDescriptionLength = base.totalDescriptionLength;
+        }
+
+        /**
+         * Gỡ một sản phẩm khỏi chỉ mục
+         *
+         * @param nameTokens        Các từ của tên sản phẩm đang có trong chỉ mục
+         * @param descriptionTokens Các từ của mô tả sản phẩm đang có trong chỉ mục
+         */
+        public void remove(int ordinal, String[] nameTokens, String[] descriptionTokens) {
+            for (String term : termFrequencies(nameTokens, descriptionTokens).keySet()) {
+                changes.computeIfAbsent(term, k -> new TreeMap<>()).put(ordinal, null);
+            }
+            nameLengths.setInt(ordinal, 0);
+            descriptionLengths.setInt(ordinal, 0);
+            totalNameLength -= nameTokens.length;
+            totalDescriptionLength -= descriptionTokens.length;
+            documentCount--;
+        }
+
+        /**
+         * Thêm sản phẩm tại số thứ tự cho trước (số thứ tự mới thì nối vào cuối)
+         */
+        public void add(int ordinal, String[] nameTokens, String[] descriptionTokens) {
+            nameLengths.setInt(ordinal, nameTokens.length);
+            descriptionLengths.setInt(ordinal, descriptionTokens.length);
+            totalNameLength += nameTokens.length;
+            totalDescriptionLength += descriptionTokens.length;
+            documentCount++;
+
+            for (Map.Entry<String, int[]> entry : termFrequencies(nameTokens, descriptionTokens).entrySet()) {
+                int[] tf = entry.getValue();
+                changes.computeIfAbsent(entry.getKey(), k -> new TreeMap<>()).put(ordinal, new short[] {
+                        (short) Math.min(tf[0], Short.MAX_VALUE), (short) Math.min(tf[1], Short.MAX_VALUE) });
+            }
+        }
+
+        public InvertedIndex build() {
+            SegmentedMap.Editor<String, Postings> postings = base.postingsByTerm.edit();
+            for (Map.Entry<String, TreeMap<Integer, short[]>> entry : changes.entrySet()) {
+                Postings merged = merge(base.getPostings(entry.getKey()), entry.getValue());
+                if (merged.size() == 0) {
+                    vocabularyChanged |= postings.remove(entry.getKey()) != null;
+                } else {
+                    vocabularyChanged |= postings.put(entry.getKey(), merged) == null;
+                }
+            }
+            return new InvertedIndex(postings.build(), documentCount, nameLengths.build(), descriptionLengths.build(),
+                    totalNameLength, totalDescriptionLength);
+        }
+
+        /**
+         * @return True nếu lần build gần nhất thêm hoặc bớt từ khóa trong từ vựng
+         */
+        public boolean isVocabularyChanged() {
+            return vocabularyChanged;
+        }
+
+        /**
+         * Trộn posting list cũ với các thay đổi (cả hai đều sắp xếp theo số thứ tự)
+         */
+        private static Postings merge(Postings postings, TreeMap<Integer, short[]> changes) {
+            int baseSize = postings == null ? 0 : postings.size();
+            PostingsBuffer buffer = new PostingsBuffer();
+            int i = 0;
+            for (Map.Entry<Integer, short[]> change : changes.entrySet()) {
+                int ordinal = change.getKey();
+                while (i < baseSize && postings.ordinals[i] < ordinal) {
+                    buffer.add(postings.ordinals[i], postings.nameFrequencies[i], postings.descriptionFrequencies[i]);
+                    i++;
+                }
+                if (i < baseSize && postings.ordinals[i] == ordinal) {
+                    i++;
+                }
+                short[] tf = change.getValue();
+                if (tf != null) {
+                    buffer.add(ordinal, tf[0], tf[1]);
+                }
+            }
+            for (; i < baseSize; i++) {
+                buffer.add(postings.ordinals[i], postings.nameFrequencies[i], postings.descriptionFrequencies[i]);
+            }
+            return buffer.toPostings();
+        }
+    }
+
+    /**
+     * Đếm số lần xuất hiện của từng từ trong tên ([0]) và trong mô tả ([1])
+     */
+    private static Map<String, int[]> termFrequencies(String[] nameTokens, String[] descriptionTokens) {
+        Map<String, int[]> frequencies = new HashMap<>();
+        for (String token : nameTokens) {
+            frequencies.computeIfAbsent(token, k -> new int[2])[0]++;
+        }
+        for (String token : descriptionTokens) {
+            frequencies.computeIfAbsent(token, k -> new int[2])[1]++;
+        }
+        return frequencies;
+    }
+
+    /**
+     * Bộ đệm tăng dần kích thước dùng khi xây dựng posting list
+     */
+    private static class PostingsBuffer {
+        private int[] ordinals = new int[4];
+        private short[] nameFrequencies = new short[4];
+        private short[] descriptionFrequencies = new short[4];
+        private int size;
+
+        void add(int ordinal, int nameFrequency, int descriptionFrequency) {
+            if (size == ordinals.length) {
+                int capacity = size * 2;
+                ordinals = Arrays.copyOf(ordinals, capacity);
+                nameFrequencies = Arrays.copyOf(nameFrequencies, capacity);
+                descriptionFrequencies = Arrays.copyOf(descriptionFrequencies, capacity);
+            }
+            ordinals[size] = ordinal;
+            nameFrequencies[size] = (short) Math.min(nameFrequency, Short.MAX_VALUE);
+            descriptionFrequencies[size] = (short) Math.min(descriptionFrequency, Short.MAX_VALUE);
+            size++;
+        }
+
+        Postings toPostings() {
+            return new Postings(
+                    Arrays.copyOf(ordinals, size),
+                    Arrays.copyOf(nameFrequencies, size),
+                    Arrays.copyOf(descriptionFrequencies, size));
+        }
+    }
+}
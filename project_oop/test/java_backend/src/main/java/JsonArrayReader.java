@@ -0,0 +1,64 @@
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import org.json.*;
+
+/**
+ * Đọc lần lượt từng đối tượng trong một mảng JSON từ luồng ký tự,
+ * không dựng toàn bộ mảng trong bộ nhớ (chỉ giữ một đối tượng tại một thời điểm).
+ */
+public class JsonArrayReader implements Closeable {
+    private final Reader reader;
+    private final JSONTokener tokener;
+    private boolean started;
+    private boolean finished;
+
+    public JsonArrayReader(Reader reader) {
+        this.reader = reader;
+        this.tokener = new JSONTokener(reader);
+    }
+
+    /**
+     * Đọc đối tượng tiếp theo của mảng
+     *
+     * @return Đối tượng JSON, hoặc null khi đã hết mảng
+     * @throws JSONException Nếu nội dung không phải mảng các đối tượng JSON hợp lệ
+     */
+    public JSONObject next() throws JSONException {
+        if (finished) {
+            return null;
+        }
+
+        char c = tokener.nextClean();
+        if (!started) {
+            if (c != '[') {
+                throw tokener.syntaxError("A JSON array text must start with '['");
+            }
+            started = true;
+            c = tokener.nextClean();
+            if (c == ']') {
+                finished = true;
+                return null;
+            }
+        } else if (c == ']') {
+            finished = true;
+            return null;
+        } else if (c != ',') {
+            throw tokener.syntaxError("Expected a ',' or ']'");
+        } else {
+            c = tokener.nextClean();
+        }
+
+        if (c != '{') {
+            throw tokener.syntaxError("A JSONObject text must begin with '{'");
+        }
+        tokener.back();
+        return new JSONObject(tokener);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
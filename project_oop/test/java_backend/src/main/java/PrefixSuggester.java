@@ -0,0 +1,273 @@
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Gợi ý tự động hoàn thành theo tiền tố, dựa trên cây tiền tố (trie) nén thành mảng.
+ * Mỗi nút lưu sẵn danh sách các gợi ý có trọng số cao nhất trong nhánh của nó,
+ * nên một lần tra cứu chỉ cần đi theo các ký tự của tiền tố.
+ */
+public class PrefixSuggester {
+    // Số gợi ý tối đa lưu ở mỗi nút
+    public static final int MAX_SUGGESTIONS = 10;
+
+    // Cây tiền tố dạng mảng: con của nút n nằm ở [childStart[n], childStart[n + 1])
+    private final int[] childStart;
+    private final char[] childLabels;
+    private final int[] childNodes;
+
+    // Gợi ý tốt nhất của nút n nằm ở topCompletions[topStart[n] .. topStart[n + 1])
+    private final int[] topStart;
+    private final int[] topCompletions;
+
+    private final String[] completionTexts;
+    private final int[] completionWeights;
+
+    private PrefixSuggester(int[] childStart, char[] childLabels, int[] childNodes,
+            int[] topStart, int[] topCompletions, String[] completionTexts, int[] completionWeights) {
+        this.childStart = childStart;
+        this.childLabels = childLabels;
+        this.childNodes = childNodes;
+        this.topStart = topStart;
+        this.topCompletions = topCompletions;
+        this.completionTexts = completionTexts;
+        this.completionWeights = completionWeights;
+    }
+
+    /**
+     * Lấy các gợi ý cho tiền tố (có dấu hoặc không dấu)
+     *
+     * @param prefix Tiền tố người dùng đã gõ
+     * @param limit  Số gợi ý tối đa
+     * @return Danh sách gợi ý, trọng số giảm dần
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalizeKey(prefix);
+        List<Suggestion> suggestions = new ArrayList<>();
+        if (key.isEmpty() || limit <= 0) {
+            return suggestions;
+        }
+
+        int node = 0;
+        for (int i = 0; i < key.length() && node >= 0; i++) {
+            node = findChild(node, key.charAt(i));
+        }
+        if (node < 0) {
+            return suggestions;
+        }
+
+        int end = Math.min(topStart[node + 1], topStart[node] + limit);
+        for (int i = topStart[node]; i < end; i++) {
+            int completion = topCompletions[i];
+            suggestions.add(new Suggestion(completionTexts[completion], completionWeights[completion]));
+        }
+        return suggestions;
+    }
+
+    public int getCompletionCount() {
+        return completionTexts.length;
+    }
+
+    private int findChild(int node, char label) {
+        // Nhãn các nút con được sắp xếp nên có thể tìm nhị phân
+        int low = childStart[node];
+        int high = childStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char c = childLabels[mid];
+            if (c < label) {
+                low = mid + 1;
+            } else if (c > label) {
+                high = mid - 1;
+            } else {
+                return childNodes[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Chuẩn hóa khóa tra cứu: bỏ dấu, chữ thường, gộp khoảng trắng
+     */
+    private static String normalizeKey(String text) {
+        String[] tokens = TextAnalyzer.analyze(text);
+        String key = String.join(" ", tokens);
+        // Giữ khoảng trắng cuối để "tu lanh " chỉ gợi ý cụm từ tiếp theo
+        if (!key.isEmpty() && text != null && Character.isWhitespace(text.charAt(text.length() - 1))) {
+            key += " ";
+        }
+        return key;
+    }
+
+    /**
+     * Một gợi ý: văn bản hiển thị (có dấu) và trọng số (số sản phẩm liên quan)
+     */
+    public static class Suggestion {
+        private final String text;
+        private final int weight;
+
+        Suggestion(String text, int weight) {
+            this.text = text;
+            this.weight = weight;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    }
+
+    /**
+     * Thu thập từ và cụm từ trong tên sản phẩm, sau đó dựng cây tiền tố
+     */
+    public static class Builder {
+        // Độ dài tối đa (số từ) của cụm từ đầu tên sản phẩm được gợi ý
+        private static final int MAX_PHRASE_WORDS = 3;
+
+        // Khóa không dấu -> số lần xuất hiện và các dạng hiển thị có dấu
+        private final Map<String, Integer> weights = new HashMap<>();
+        private final Map<String, Map<String, Integer>> surfaceForms = new HashMap<>();
+
+        /**
+         * Thêm tên một sản phẩm: mỗi từ và các cụm 2-3 từ đầu tên là một gợi ý
+         */
+        public void addName(String name) {
+            if (name == null || name.isEmpty()) {
+                return;
+            }
+            String[] surfaces = TextAnalyzer.tokenize(
+                    Normalizer.normalize(name, Normalizer.Form.NFC).toLowerCase(Locale.ROOT));
+            String[] keys = new String[surfaces.length];
+            for (int i = 0; i < surfaces.length; i++) {
+                keys[i] = TextAnalyzer.fold(surfaces[i]);
+            }
+
+            // Mỗi từ chỉ tính một lần cho một sản phẩm
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].length() > 1 && seen.add(keys[i])) {
+                    add(keys[i], surfaces[i]);
+                }
+            }
+
+            // Cụm từ đầu tên, ví dụ "tủ lạnh", "tủ lạnh samsung"
+            for (int words = 2; words <= Math.min(MAX_PHRASE_WORDS, keys.length); words++) {
+                add(String.join(" ", Arrays.copyOf(keys, words)),
+                        String.join(" ", Arrays.copyOf(surfaces, words)));
+            }
+        }
+
+        private void add(String key, String surface) {
+            weights.merge(key, 1, Integer::sum);
+            surfaceForms.computeIfAbsent(key, k -> new HashMap<>(2)).merge(surface, 1, Integer::sum);
+        }
+
+        public PrefixSuggester build() {
+            // Sắp xếp gợi ý theo trọng số giảm dần, bằng nhau thì theo thứ tự chữ cái
+            List<String> keys = new ArrayList<>(weights.keySet());
+            keys.sort((a, b) -> {
+                int byWeight = Integer.compare(weights.get(b), weights.get(a));
+                return byWeight != 0 ? byWeight : a.compareTo(b);
+            });
+
+            String[] texts = new String[keys.size()];
+            int[] completionWeights = new int[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                String key = keys.get(i);
+                texts[i] = mostFrequent(surfaceForms.get(key));
+                completionWeights[i] = weights.get(key);
+            }
+
+            // Dựng cây tạm bằng đối tượng, gợi ý được thêm theo thứ tự trọng số giảm dần
+            // nên MAX_SUGGESTIONS gợi ý đầu tiên đi qua một nút chính là tốt nhất của nút đó
+            TrieNode root = new TrieNode();
+            for (int i = 0; i < keys.size(); i++) {
+                TrieNode node = root;
+                node.offer(i);
+                for (char c : keys.get(i).toCharArray()) {
+                    node = node.children.computeIfAbsent(c, k -> new TrieNode());
+                    node.offer(i);
+                }
+            }
+
+            return flatten(root, texts, completionWeights);
+        }
+
+        private static String mostFrequent(Map<String, Integer> forms) {
+            String best = null;
+            int bestCount = -1;
+            for (Map.Entry<String, Integer> entry : forms.entrySet()) {
+                if (entry.getValue() > bestCount
+                        || (entry.getValue() == bestCount && entry.getKey().compareTo(best) < 0)) {
+                    best = entry.getKey();
+                    bestCount = entry.getValue();
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Nén cây đối tượng thành các mảng nguyên thủy (duyệt theo chiều rộng)
+         */
+        private static PrefixSuggester flatten(TrieNode root, String[] texts, int[] weights) {
+            List<TrieNode> nodes = new ArrayList<>();
+            nodes.add(root);
+            for (int i = 0; i < nodes.size(); i++) {
+                nodes.addAll(nodes.get(i).children.values());
+            }
+            Map<TrieNode, Integer> ids = new IdentityHashMap<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                ids.put(nodes.get(i), i);
+            }
+
+            int nodeCount = nodes.size();
+            int[] childStart = new int[nodeCount + 1];
+            char[] childLabels = new char[nodeCount - 1];
+            int[] childNodes = new int[nodeCount - 1];
+            int[] topStart = new int[nodeCount + 1];
+            int totalTop = 0;
+            for (TrieNode node : nodes) {
+                totalTop += node.topSize;
+            }
+            int[] topCompletions = new int[totalTop];
+
+            int edge = 0;
+            int top = 0;
+            for (int i = 0; i < nodeCount; i++) {
+                TrieNode node = nodes.get(i);
+                childStart[i] = edge;
+                for (Map.Entry<Character, TrieNode> child : node.children.entrySet()) {
+                    childLabels[edge] = child.getKey();
+                    childNodes[edge] = ids.get(child.getValue());
+                    edge++;
+                }
+                topStart[i] = top;
+                System.arraycopy(node.top, 0, topCompletions, top, node.topSize);
+                top += node.topSize;
+            }
+            childStart[nodeCount] = edge;
+            topStart[nodeCount] = top;
+
+            return new PrefixSuggester(childStart, childLabels, childNodes,
+                    topStart, topCompletions, texts, weights);
+        }
+    }
+
+    /**
+     * Nút tạm khi dựng cây; con được sắp xếp theo ký tự
+     */
+    private static class TrieNode {
+        private final TreeMap<Character, TrieNode> children = new TreeMap<>();
+        private final int[] top = new int[MAX_SUGGESTIONS];
+        private int topSize;
+
+        void offer(int completion) {
+            if (topSize < MAX_SUGGESTIONS) {
+                top[topSize++] = completion;
+            }
+        }
+    }
+}
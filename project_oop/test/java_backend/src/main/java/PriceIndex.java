@@ -0,0 +1,258 @@
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Chỉ mục giá: danh sách số thứ tự sản phẩm sắp xếp theo giá tăng dần (cùng giá thì theo số thứ tự).
+ * Trả lời truy vấn khoảng giá bằng tìm kiếm nhị phân, chi phí O(log n + số kết quả).
+ * Danh sách được chia thành các khối nhỏ để cập nhật giá chỉ sao chép khối chứa sản phẩm bị sửa.
+ */
+public class PriceIndex {
+    // Số phần tử mỗi khối khi dựng; khối được tách đôi khi dài gấp đôi
+    private static final int BLOCK_SIZE = 512;
+
+    private final Block[] blocks;
+    private final int size;
+    // Số thứ tự lớn nhất + 1 (kích thước tập bit trả về từ range)
+    private final int ordinalCount;
+
+    private PriceIndex(Block[] blocks, int size, int ordinalCount) {
+        this.blocks = blocks;
+        this.size = size;
+        this.ordinalCount = ordinalCount;
+    }
+
+    /**
+     * Xây dựng chỉ mục giá từ bảng thuộc tính
+     */
+    public static PriceIndex build(ProductAttributes attributes) {
+        int size = attributes.size();
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // Sắp xếp ổn định: cùng giá thì giữ thứ tự số thứ tự
+        Arrays.sort(order, (a, b) -> Long.compare(attributes.priceAt(a), attributes.priceAt(b)));
+
+        Block[] blocks = new Block[(size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        for (int b = 0; b < blocks.length; b++) {
+            int from = b * BLOCK_SIZE;
+            int length = Math.min(BLOCK_SIZE, size - from);
+            long[] prices = new long[length];
+            int[] ordinals = new int[length];
+            for (int i = 0; i < length; i++) {
+                ordinals[i] = order[from + i];
+                prices[i] = attributes.priceAt(ordinals[i]);
+            }
+            blocks[b] = new Block(prices, ordinals);
+        }
+        return new PriceIndex(blocks, size, size);
+    }
+
+    /**
+     * @return Số sản phẩm trong chỉ mục
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gọi action với số thứ tự của mọi sản phẩm có giá trong khoảng [minPrice, maxPrice],
+     * theo giá tăng dần
+     */
+    public void forEachInRange(long minPrice, long maxPrice, IntConsumer action) {
+        if (minPrice > maxPrice) {
+            return;
+        }
+        // Khối đầu tiên có giá cuối >= minPrice
+        int low = 0;
+        int high = blocks.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blocks[mid].lastPrice() < minPrice) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int b = low; b < blocks.length; b++) {
+            Block block = blocks[b];
+            for (int i = b == low ? block.lowerBound(minPrice) : 0; i < block.prices.length; i++) {
+                if (block.prices[i] > maxPrice) {
+                    return;
+                }
+                action.accept(block.ordinals[i]);
+            }
+        }
+    }
+
+    /**
+     * Tập sản phẩm có giá trong khoảng [minPrice, maxPrice]
+     *
+     * @return Tập bit theo số thứ tự sản phẩm
+     */
+    public FixedBitSet range(long minPrice, long maxPrice) {
+        FixedBitSet result = new FixedBitSet(ordinalCount);
+        forEachInRange(minPrice, maxPrice, result::set);
+        return result;
+    }
+
+    /**
+     * Một đoạn liên tiếp của danh sách sắp xếp theo giá; không thay đổi sau khi tạo
+     */
+    private static class Block {
+        private final long[] prices;
+        private final int[] ordinals;
+
+        Block(long[] prices, int[] ordinals) {
+            this.prices = prices;
+            this.ordinals = ordinals;
+        }
+
+        long lastPrice() {
+            return prices[prices.length - 1];
+        }
+
+        /**
+         * Vị trí đầu tiên có giá >= price
+         */
+        int lowerBound(long price) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (prices[mid] < price) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Vị trí đầu tiên có (giá, số thứ tự) >= (price, ordinal)
+         */
+        int lowerBound(long price, int ordinal) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(prices[mid], ordinals[mid], price, ordinal) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static int compare(long priceA, int ordinalA, long priceB, int ordinalB) {
+        return priceA != priceB ? Long.compare(priceA, priceB) : Integer.compare(ordinalA, ordinalB);
+    }
+
+    /**
+     * Cập nhật chỉ mục đã có khi giá của một số sản phẩm thay đổi, không sắp xếp lại toàn bộ:
+     * mỗi sản phẩm được gỡ khỏi khối chứa giá cũ và chèn vào khối ứng với giá mới.
+     * Chỉ các khối bị sửa được sao chép, chỉ mục cũ không bị thay đổi.
+     */
+    public static class Updater {
+        private final List<Block> blocks;
+        private int size;
+
+        public Updater(PriceIndex base) {
+            this.blocks = new ArrayList<>(Arrays.asList(base.blocks));
+            this.size = base.size;
+        }
+
+        /**
+         * Gỡ sản phẩm khỏi chỉ mục
+         *
+         * @param price Giá của sản phẩm đang có trong chỉ mục
+         */
+        public void remove(int ordinal, long price) {
+            int b = findBlock(price, ordinal);
+            if (b == blocks.size()) {
+                return;
+            }
+            Block block = blocks.get(b);
+            int i = block.lowerBound(price, ordinal);
+            if (i == block.ordinals.length || block.ordinals[i] != ordinal) {
+                return;
+            }
+            int length = block.ordinals.length - 1;
+            if (length == 0) {
+                blocks.remove(b);
+            } else {
+                long[] prices = new long[length];
+                int[] ordinals = new int[length];
+                System.arraycopy(block.prices, 0, prices, 0, i);
+                System.arraycopy(block.ordinals, 0, ordinals, 0, i);
+                System.arraycopy(block.prices, i + 1, prices, i, length - i);
+                System.arraycopy(block.ordinals, i + 1, ordinals, i, length - i);
+                blocks.set(b, new Block(prices, ordinals));
+            }
+            size--;
+        }
+
+        /**
+         * Thêm sản phẩm với giá cho trước
+         */
+        public void add(int ordinal, long price) {
+            if (blocks.isEmpty()) {
+                blocks.add(new Block(new long[] { price }, new int[] { ordinal }));
+                size++;
+                return;
+            }
+            // Không có khối nào có phần tử cuối >= phần tử mới: chèn vào cuối khối cuối
+            int b = Math.min(findBlock(price, ordinal), blocks.size() - 1);
+            Block block = blocks.get(b);
+            int i = block.lowerBound(price, ordinal);
+            int length = block.ordinals.length + 1;
+            long[] prices = new long[length];
+            int[] ordinals = new int[length];
+            System.arraycopy(block.prices, 0, prices, 0, i);
+            System.arraycopy(block.ordinals, 0, ordinals, 0, i);
+            prices[i] = price;
+            ordinals[i] = ordinal;
+            System.arraycopy(block.prices, i, prices, i + 1, length - i - 1);
+            System.arraycopy(block.ordinals, i, ordinals, i + 1, length - i - 1);
+
+            if (length < 2 * BLOCK_SIZE) {
+                blocks.set(b, new Block(prices, ordinals));
+            } else {
+                int half = length / 2;
+                blocks.set(b, new Block(Arrays.copyOf(prices, half), Arrays.copyOf(ordinals, half)));
+                blocks.add(b + 1, new Block(Arrays.copyOfRange(prices, half, length),
+                        Arrays.copyOfRange(ordinals, half, length)));
+            }
+            size++;
+        }
+
+        /**
+         * Khối đầu tiên có phần tử cuối >= (price, ordinal), blocks.size() nếu không có
+         */
+        private int findBlock(long price, int ordinal) {
+            int low = 0;
+            int high = blocks.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                Block block = blocks.get(mid);
+                int last = block.ordinals.length - 1;
+                if (compare(block.prices[last], block.ordinals[last], price, ordinal) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @param ordinalCount Số số thứ tự đã cấp (kích thước tập bit trả về từ range)
+         */
+        public PriceIndex build(int ordinalCount) {
+            return new PriceIndex(blocks.toArray(new Block[0]), size, ordinalCount);
+        }
+    }
+}
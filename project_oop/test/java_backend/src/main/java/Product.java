@@ -1,20 +1,89 @@
 
+import java.util.*;
+
+
 /**
- * Lớp đại diện cho một sản phẩm
+ * Lớp đại diện cho một sản phẩm.
+ * Văn bản của sản phẩm nằm trong ProductStore dùng chung (văn bản dài dạng UTF-8,
+ * trường lặp lại và từ khóa dạng mã từ điển); đối tượng Product chỉ giữ địa chỉ/mã,
+ * getter giải mã khi được gọi.
  */
 public class Product {
-    private String name;
-    private String image;
-    private String price;
-    private String oldPrice;
-    private String description;
-    private String rating;
-    private String ratingCount;
-    private String source;
-    private String productType;
+    // Ảnh mặc định khi sản phẩm không có ảnh (không lưu riêng cho từng sản phẩm)
+    public static final String PLACEHOLDER_IMAGE = "https://via.placeholder.com/400x300?text=No+Image";
+
+    private static final int[] NO_TOKENS = new int[0];
+
+    // Bảng nhãn thông số kỹ thuật: tên thông số, tiền tố trong mô tả, loại sản phẩm có nhãn này
+    // (null = mọi loại). Thêm nhãn mới chỉ cần thêm một dòng, không thêm lần duyệt mô tả nào.
+    private static final String[][] SPECIFICATION_TABLE = {
+            { "Loại sản phẩm", "Kiểu tủ", "Tủ lạnh" },
+            { "Kiểu sản phẩm", "Loại Tivi", "Tivi" },
+            { "Loại máy giặt", "Loại máy giặt", "Máy giặt" },
+            { "Dung tích sử dụng", "Dung tích sử dụng", "Tủ lạnh" },
+            { "Dung tích ngăn đá", "Dung tích ngăn đá", "Tủ lạnh" },
+            { "Dung tích ngăn lạnh", "Dung tích ngăn lạnh", "Tủ lạnh" },
+            { "Kích cỡ màn hình", "Kích cỡ màn hình", "Tivi" },
+            { "Độ phân giải", "Độ phân giải", "Tivi" },
+            { "Công nghệ hình ảnh", "Công nghệ hình ảnh", "Tivi" },
+            { "Khối lượng giặt", "Khối lượng giặt", "Máy giặt" },
+            { "Chất liệu cửa", "Chất liệu cửa tủ lạnh", "Tủ lạnh" },
+            { "Chất liệu khay", "Chất liệu khay ngăn lạnh", "Tủ lạnh" },
+            { "Năm ra mắt", "Năm ra mắt", null },
+            { "Nơi sản xuất", "Sản xuất tại", null }
+    };
+    private static final String HOUSEHOLD_LABEL = "Số người sử dụng";
+    private static final String[] HOUSEHOLD_SIZES = { "2 - 3 người", "4 - 5 người", "Trên 5 người" };
+    private static final String[] SPECIFICATION_LABELS = specificationLabels();
+
+    // Bộ quét nhãn theo loại sản phẩm; loại không có trong bảng dùng bộ quét mọi nhãn
+    private static final SpecificationScanner ALL_SPECIFICATIONS = specificationScanner(null);
+    private static final Map<String, SpecificationScanner> SPECIFICATIONS_BY_TYPE = specificationScanners();
+
+    // Thông số ghép thành thông tin quan trọng, theo thứ tự hiển thị
+    private static final String[] KEY_INFO_LABELS = {
+            "Dung tích sử dụng", "Kích cỡ màn hình", "Loại sản phẩm", "Kiểu sản phẩm", "Loại máy giặt",
+            "Nơi sản xuất", "Năm ra mắt"
+    };
+    private static final String[] KEY_INFO_PREFIXES = { "", "", "", "", "", "Sản xuất: ", "Năm: " };
+
+    private final ProductStore store;
+
+    // Mã sản phẩm: trường "id" trong JSON, hoặc mã tính từ nội dung nếu không có (xem CatalogSnapshot.Builder)
+    private String id;
+
+    // Địa chỉ văn bản trong store
+    private long name;
+    private long image;
+    private long price;
+    private long oldPrice = ProductStore.NULL_ADDRESS;
+    private long description;
+
+    // Mã từ điển của các trường ít giá trị khác nhau
+    private int rating;
+    private int ratingCount;
+    private int source;
+    private int productType;
+
+    // Giá và điểm đánh giá dạng số, phân tích một lần khi gán giá trị
+    private long priceValue;
+    private float ratingValue;
+
+    // Thông số kỹ thuật: chỉ số nhãn trong SPECIFICATION_LABELS và địa chỉ giá trị trong store
+    private byte[] specificationLabels = new byte[0];
+    private long[] specificationValues = new long[0];
+
+    // JSON của sản phẩm (UTF-8) đã tuần tự hóa cho response, tạo khi trả về lần đầu.
+    // Sản phẩm không đổi sau khi vào danh mục (sửa hoặc tải lại tạo đối tượng mới) nên không cần xóa.
+    private volatile byte[] cachedJson;
+
+    // Mã các từ đã phân tích (chữ thường, bỏ dấu) của tên và mô tả, tính một lần khi tải
+    private int[] nameTokens = NO_TOKENS;
+    private int[] descriptionTokens = NO_TOKENS;
 
     // Constructor
     public Product(
+            ProductStore store,
             String name,
             String image,
             String price,
@@ -23,204 +92,227 @@ public class Product {
             String ratingCount,
             String source,
             String productType) {
-        this.name = name;
-        this.image = image;
-        this.price = price;
-        this.description = description;
-        this.rating = rating;
-        this.ratingCount = ratingCount;
-        this.source = source;
-        this.productType = productType;
+        this.store = store;
+        this.name = store.append(name);
+        this.image = appendImage(image);
+        this.price = store.append(price);
+        this.priceValue = parsePriceValue(price);
+        this.description = store.append(description);
+        this.rating = store.encodeField(rating);
+        this.ratingValue = parseRatingValue(rating);
+        this.ratingCount = store.encodeField(ratingCount);
+        this.source = store.encodeField(source);
+        this.productType = store.encodeField(productType);
+    }
+
+    /**
+     * Bản sao dùng chung văn bản đã lưu trong store với sản phẩm gốc (chỉ sao chép địa chỉ/mã),
+     * dùng khi sửa sản phẩm: setter gọi sau đó chỉ ghi thêm trường bị đổi
+     */
+    public Product(Product other) {
+        this.store = other.store;
+        this.id = other.id;
+        this.name = other.name;
+        this.image = other.image;
+        this.price = other.price;
+        this.oldPrice = other.oldPrice;
+        this.description = other.description;
+        this.rating = other.rating;
+        this.ratingCount = other.ratingCount;
+        this.source = other.source;
+        this.productType = other.productType;
+        this.priceValue = other.priceValue;
+        this.ratingValue = other.ratingValue;
+        // Các mảng không bị sửa tại chỗ (setter gán mảng mới) nên dùng chung được
+        this.specificationLabels = other.specificationLabels;
+        this.specificationValues = other.specificationValues;
+        this.nameTokens = other.nameTokens;
+        this.descriptionTokens = other.descriptionTokens;
     }
 
     // Getters và Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getName() {
-        return name;
+        return store.text(name);
     }
 
     public void setName(String name) {
-        this.name = name;
+        this.name = store.append(name);
     }
 
+    /**
+     * @return Ảnh sản phẩm, hoặc ảnh mặc định nếu không có
+     */
     public String getImage() {
-        return image;
+        String value = store.text(image);
+        return value == null ? PLACEHOLDER_IMAGE : value;
     }
 
     public void setImage(String image) {
-        this.image = image;
+        this.image = appendImage(image);
+    }
+
+    private long appendImage(String image) {
+        return store.append(PLACEHOLDER_IMAGE.equals(image) ? null : image);
     }
 
     public String getPrice() {
-        return price;
+        return store.text(price);
     }
 
     public void setPrice(String price) {
-        this.price = price;
+        this.price = store.append(price);
+        this.priceValue = parsePriceValue(price);
     }
 
     public String getOldPrice() {
-        return oldPrice;
+        return store.text(oldPrice);
     }
 
     public void setOldPrice(String oldPrice) {
-        this.oldPrice = oldPrice;
+        this.oldPrice = store.append(oldPrice);
     }
 
     public String getDescription() {
-        return description;
+        return store.text(description);
     }
 
     public void setDescription(String description) {
-        this.description = description;
+        this.description = store.append(description);
     }
 
     public String getRating() {
-        return rating;
+        return store.field(rating);
     }
 
     public void setRating(String rating) {
-        this.rating = rating;
+        this.rating = store.encodeField(rating);
+        this.ratingValue = parseRatingValue(rating);
     }
 
     public String getRatingCount() {
-        return ratingCount;
+        return store.field(ratingCount);
     }
 
     public void setRatingCount(String ratingCount) {
-        this.ratingCount = ratingCount;
+        this.ratingCount = store.encodeField(ratingCount);
     }
 
     public String getSource() {
-        return source;
+        return store.field(source);
     }
 
     public void setSource(String source) {
-        this.source = source;
+        this.source = store.encodeField(source);
     }
 
     public String getProductType() {
-        return productType;
+        return store.field(productType);
     }
 
     public void setProductType(String productType) {
-        this.productType = productType;
+        this.productType = store.encodeField(productType);
     }
 
-    /**
-     * Phân tích thông số kỹ thuật từ mô tả sản phẩm
-     * 
-     * @return Mảng thông số kỹ thuật dưới dạng [tên, giá trị]
-     */
-    public Specification[] extractSpecifications() {
-        if (description == null || description.isEmpty()) {
-            return new Specification[0];
-        }
-
-        // Danh sách các mẫu thông số cần trích xuất
-        String[][] patterns = {
-                { "Loại sản phẩm", "Kiểu tủ: ([^\\.]+)" },
-                { "Kiểu sản phẩm", "Loại Tivi: ([^\\.]+)" },
-                { "Loại máy giặt", "Loại máy giặt: ([^\\.]+)" },
-                { "Dung tích sử dụng", "Dung tích sử dụng: ([^\\.]+)" },
-                { "Dung tích ngăn đá", "Dung tích ngăn đá: ([^\\.]+)" },
-                { "Dung tích ngăn lạnh", "Dung tích ngăn lạnh: ([^\\.]+)" },
-                { "Kích cỡ màn hình", "Kích cỡ màn hình: ([^\\.]+)" },
-                { "Độ phân giải", "Độ phân giải: ([^\\.]+)" },
-                { "Công nghệ hình ảnh", "Công nghệ hình ảnh: ([^\\.]+)" },
-                { "Khối lượng giặt", "Khối lượng giặt: ([^\\.]+)" },
-                { "Chất liệu cửa", "Chất liệu cửa tủ lạnh: ([^\\.]+)" },
-                { "Chất liệu khay", "Chất liệu khay ngăn lạnh: ([^\\.]+)" },
-                { "Năm ra mắt", "Năm ra mắt: ([^\\.]+)" },
-                { "Nơi sản xuất", "Sản xuất tại: ([^\\.]+)" }
-        };
-
-        // Sử dụng java.util.regex.Pattern để trích xuất thông tin
-        java.util.List<Specification> specsList = new java.util.ArrayList<>();
-
-        for (String[] pattern : patterns) {
-            java.util.regex.Pattern regex = java.util.regex.Pattern.compile(pattern[1]);
-            java.util.regex.Matcher matcher = regex.matcher(description);
-
-            if (matcher.find()) {
-                String value = matcher.groupCount() > 0 ? matcher.group(1).trim() : "Có";
-                specsList.add(new Specification(pattern[0], value));
-            }
-        }
-
-        // Xác định số người sử dụng
-        if (description.contains("2 - 3 người")) {
-            specsList.add(new Specification("Số người sử dụng", "2 - 3 người"));
-        } else if (description.contains("4 - 5 người")) {
-            specsList.add(new Specification("Số người sử dụng", "4 - 5 người"));
-        } else if (description.contains("Trên 5 người")) {
-            specsList.add(new Specification("Số người sử dụng", "Trên 5 người"));
-        }
+    public String[] getNameTokens() {
+        return store.tokens(nameTokens);
+    }
 
-        // Chuyển danh sách thành mảng
-        return specsList.toArray(new Specification[0]);
+    public String[] getDescriptionTokens() {
+        return store.tokens(descriptionTokens);
     }
 
     /**
-     * Trích xuất thông tin quan trọng từ mô tả
-     * 
-     * @return Thông tin ngắn gọn về sản phẩm
+     * @return JSON đã tuần tự hóa của sản phẩm, null nếu chưa có
      */
-    public String extractKeyInfo() {
-        if (description == null || description.isEmpty()) {
-            return "";
-        }
+    public byte[] getCachedJson() {
+        return cachedJson;
+    }
 
-        java.util.List<String> keyInfo = new java.util.ArrayList<>();
-
-        // Các regex pattern để trích xuất thông tin
-        java.util.regex.Pattern capacityPattern = java.util.regex.Pattern.compile("Dung tích sử dụng: ([^\\.]+)");
-        java.util.regex.Pattern screenSizePattern = java.util.regex.Pattern.compile("Kích cỡ màn hình: ([^\\.]+)");
-        java.util.regex.Pattern typePattern = java.util.regex.Pattern.compile("Kiểu tủ: ([^\\.]+)");
-        java.util.regex.Pattern tvTypePattern = java.util.regex.Pattern.compile("Loại Tivi: ([^\\.]+)");
-        java.util.regex.Pattern washerTypePattern = java.util.regex.Pattern.compile("Loại máy giặt: ([^\\.]+)");
-        java.util.regex.Pattern originPattern = java.util.regex.Pattern.compile("Sản xuất tại: ([^\\.]+)");
-        java.util.regex.Pattern yearPattern = java.util.regex.Pattern.compile("Năm ra mắt: ([^\\.]+)");
-
-        // Tìm và thêm thông tin về dung tích
-        java.util.regex.Matcher capacityMatcher = capacityPattern.matcher(description);
-        if (capacityMatcher.find()) {
-            keyInfo.add(capacityMatcher.group(1).trim());
-        }
+    public void setCachedJson(byte[] cachedJson) {
+        this.cachedJson = cachedJson;
+    }
 
-        // Tìm và thêm thông tin về kích thước màn hình
-        java.util.regex.Matcher screenSizeMatcher = screenSizePattern.matcher(description);
-        if (screenSizeMatcher.find()) {
-            keyInfo.add(screenSizeMatcher.group(1).trim());
-        }
+    /**
+     * Phân tích tên và mô tả một lần khi tải: thông số kỹ thuật trích xuất từ mô tả
+     * (một lần duyệt theo bảng nhãn của loại sản phẩm), tên đoán từ mô tả nếu tên rỗng,
+     * và các từ đã chuẩn hóa để phục vụ tìm kiếm. Gọi lại sau khi đổi tên, mô tả hoặc loại.
+     */
+    public void analyzeText() {
+        String description = getDescription();
+        Specification[] specifications = SPECIFICATIONS_BY_TYPE.getOrDefault(getProductType(), ALL_SPECIFICATIONS)
+                .scan(description);
+        setSpecifications(specifications);
 
-        // Tìm và thêm thông tin về kiểu tủ
-        java.util.regex.Matcher typeMatcher = typePattern.matcher(description);
-        if (typeMatcher.find()) {
-            keyInfo.add(typeMatcher.group(1).trim());
+        String name = getName();
+        if ((name == null || name.isEmpty()) && description != null && !description.isEmpty()) {
+            inferName(description, specifications);
         }
+        setAnalyzedText(TextAnalyzer.analyze(getName()), TextAnalyzer.analyze(description));
+    }
 
-        // Tìm và thêm thông tin về loại Tivi
-        java.util.regex.Matcher tvTypeMatcher = tvTypePattern.matcher(description);
-        if (tvTypeMatcher.find()) {
-            keyInfo.add(tvTypeMatcher.group(1).trim());
-        }
+    /**
+     * Khôi phục kết quả analyzeText đã lưu (ví dụ từ ảnh chụp nhị phân) thay vì phân tích lại
+     */
+    public void setAnalyzedText(String[] nameTokens, String[] descriptionTokens) {
+        this.nameTokens = store.encodeTokens(nameTokens);
+        this.descriptionTokens = store.encodeTokens(descriptionTokens);
+    }
 
-        // Tìm và thêm thông tin về loại máy giặt
-        java.util.regex.Matcher washerTypeMatcher = washerTypePattern.matcher(description);
-        if (washerTypeMatcher.find()) {
-            keyInfo.add(washerTypeMatcher.group(1).trim());
+    /**
+     * @return Thông số kỹ thuật đã trích xuất từ mô tả khi phân tích (mảng mới mỗi lần gọi)
+     */
+    public Specification[] getSpecifications() {
+        Specification[] specifications = new Specification[specificationLabels.length];
+        for (int i = 0; i < specifications.length; i++) {
+            specifications[i] = new Specification(SPECIFICATION_LABELS[specificationLabels[i]],
+                    store.text(specificationValues[i]));
         }
+        return specifications;
+    }
 
-        // Tìm và thêm thông tin về xuất xứ
-        java.util.regex.Matcher originMatcher = originPattern.matcher(description);
-        if (originMatcher.find()) {
-            keyInfo.add("Sản xuất: " + originMatcher.group(1).trim());
+    /**
+     * Khôi phục thông số kỹ thuật đã trích xuất (ví dụ từ ảnh chụp nhị phân) thay vì chạy lại regex.
+     * Thông số có nhãn không được hỗ trợ bị bỏ qua.
+     */
+    public void setSpecifications(Specification[] specifications) {
+        byte[] labels = new byte[specifications.length];
+        long[] values = new long[specifications.length];
+        int count = 0;
+        for (Specification specification : specifications) {
+            int label = Arrays.asList(SPECIFICATION_LABELS).indexOf(specification.getLabel());
+            if (label >= 0) {
+                labels[count] = (byte) label;
+                values[count++] = store.append(specification.getValue());
+            }
         }
+        this.specificationLabels = Arrays.copyOf(labels, count);
+        this.specificationValues = Arrays.copyOf(values, count);
+    }
 
-        // Tìm và thêm thông tin về năm ra mắt
-        java.util.regex.Matcher yearMatcher = yearPattern.matcher(description);
-        if (yearMatcher.find()) {
-            keyInfo.add("Năm: " + yearMatcher.group(1).trim());
+    /**
+     * Thông tin quan trọng của sản phẩm, ghép từ các thông số đã trích xuất
+     * (dung tích, màn hình, kiểu/loại, xuất xứ, năm ra mắt)
+     * 
+     * @return Thông tin ngắn gọn về sản phẩm
+     */
+    public String getKeyInfo() {
+        Specification[] specifications = getSpecifications();
+        List<String> keyInfo = new ArrayList<>();
+        for (int i = 0; i < KEY_INFO_LABELS.length; i++) {
+            for (Specification specification : specifications) {
+                if (specification.getLabel().equals(KEY_INFO_LABELS[i])) {
+                    keyInfo.add(KEY_INFO_PREFIXES[i] + specification.getValue());
+                    break;
+                }
+            }
         }
 
         // Kết hợp các thông tin đã trích xuất
@@ -233,64 +325,115 @@ public class Product {
      * @return Giá dưới dạng long
      */
     public long parsePrice() {
+        return priceValue;
+    }
+
+    private static String[] specificationLabels() {
+        String[] labels = new String[SPECIFICATION_TABLE.length + 1];
+        for (int i = 0; i < SPECIFICATION_TABLE.length; i++) {
+            labels[i] = SPECIFICATION_TABLE[i][0];
+        }
+        labels[SPECIFICATION_TABLE.length] = HOUSEHOLD_LABEL;
+        return labels;
+    }
+
+    private static SpecificationScanner specificationScanner(String productType) {
+        SpecificationScanner.Builder builder = new SpecificationScanner.Builder();
+        for (String[] row : SPECIFICATION_TABLE) {
+            if (productType == null || row[2] == null || row[2].equals(productType)) {
+                builder.label(row[0], row[1] + ": ");
+            }
+        }
+        for (String household : HOUSEHOLD_SIZES) {
+            builder.flag(HOUSEHOLD_LABEL, household);
+        }
+        return builder.build();
+    }
+
+    private static Map<String, SpecificationScanner> specificationScanners() {
+        Map<String, SpecificationScanner> scanners = new HashMap<>();
+        for (String[] row : SPECIFICATION_TABLE) {
+            if (row[2] != null && !scanners.containsKey(row[2])) {
+                scanners.put(row[2], specificationScanner(row[2]));
+            }
+        }
+        return scanners;
+    }
+
+    private static long parsePriceValue(String price) {
         if (price == null || price.isEmpty()) {
             return 0;
         }
 
-        // Loại bỏ các ký tự không phải số
-        String numericPrice = price.replaceAll("[^0-9]", "");
+        // Bỏ qua các ký tự không phải số
+        long value = 0;
+        boolean foundDigit = false;
+        for (int i = 0; i < price.length(); i++) {
+            char c = price.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (value > (Long.MAX_VALUE - 9) / 10) {
+                    return 0;
+                }
+                value = value * 10 + (c - '0');
+                foundDigit = true;
+            }
+        }
+        return foundDigit ? value : 0;
+    }
+
+    private static float parseRatingValue(String rating) {
         try {
-            return Long.parseLong(numericPrice);
-        } catch (NumberFormatException e) {
+            return Float.parseFloat(rating);
+        } catch (NumberFormatException | NullPointerException e) {
             return 0;
         }
     }
 
     /**
-     * Đoán tên sản phẩm từ mô tả nếu tên rỗng
+     * Đoán tên sản phẩm từ mô tả và thông số đã trích xuất
      */
-    public void inferNameFromDescription() {
-        if ((name == null || name.isEmpty()) && description != null && !description.isEmpty()) {
-            // Xác định loại sản phẩm
-            String productType = "Sản phẩm";
-
-            if (description.contains("Kiểu tủ:")) {
-                productType = "Tủ lạnh";
-            } else if (description.contains("Loại Tivi:")) {
-                productType = "Tivi";
-            } else if (description.contains("Loại máy giặt:")) {
-                productType = "Máy giặt";
-            }
+    private void inferName(String description, Specification[] specifications) {
+        // Xác định loại sản phẩm
+        String productType = "Sản phẩm";
+
+        if (description.contains("Kiểu tủ:")) {
+            productType = "Tủ lạnh";
+        } else if (description.contains("Loại Tivi:")) {
+            productType = "Tivi";
+        } else if (description.contains("Loại máy giặt:")) {
+            productType = "Máy giặt";
+        }
 
-            // Tạo tên tạm thời
-            StringBuilder tempName = new StringBuilder(productType);
-            tempName.append(" ");
+        // Tạo tên tạm thời
+        StringBuilder tempName = new StringBuilder(productType);
+        tempName.append(" ");
 
-            // Thêm thông tin dung tích/kích thước
-            if (description.contains("Dung tích sử dụng:")) {
-                java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("Dung tích sử dụng: ([^\\.]+)");
-                java.util.regex.Matcher matcher = pattern.matcher(description);
-                if (matcher.find()) {
-                    tempName.append(matcher.group(1).trim());
-                }
-            } else if (description.contains("Kích cỡ màn hình:")) {
-                java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("Kích cỡ màn hình: ([^\\.]+)");
-                java.util.regex.Matcher matcher = pattern.matcher(description);
-                if (matcher.find()) {
-                    tempName.append(matcher.group(1).trim());
-                }
-            }
+        // Thêm thông tin dung tích/kích thước
+        String size = specificationValue(specifications, "Dung tích sử dụng");
+        if (size == null) {
+            size = specificationValue(specifications, "Kích cỡ màn hình");
+        }
+        if (size != null) {
+            tempName.append(size);
+        }
 
-            // Thêm thông tin năm ra mắt
-            java.util.regex.Pattern yearPattern = java.util.regex.Pattern.compile("Năm ra mắt: ([^\\.]+)");
-            java.util.regex.Matcher yearMatcher = yearPattern.matcher(description);
-            if (yearMatcher.find()) {
-                tempName.append(" (").append(yearMatcher.group(1).trim()).append(")");
-            }
+        // Thêm thông tin năm ra mắt
+        String year = specificationValue(specifications, "Năm ra mắt");
+        if (year != null) {
+            tempName.append(" (").append(year).append(")");
+        }
+
+        // Cập nhật tên sản phẩm
+        setName(tempName.toString());
+    }
 
-            // Cập nhật tên sản phẩm
-            this.name = tempName.toString();
+    private static String specificationValue(Specification[] specifications, String label) {
+        for (Specification specification : specifications) {
+            if (specification.getLabel().equals(label)) {
+                return specification.getValue();
+            }
         }
+        return null;
     }
 
     /**
@@ -299,32 +442,6 @@ public class Product {
      * @return True nếu sản phẩm có đánh giá cao
      */
     public boolean isFeatured() {
-        try {
-            float ratingValue = Float.parseFloat(this.rating);
-            return ratingValue >= 4.8;
-        } catch (NumberFormatException | NullPointerException e) {
-            return false;
-        }
-    }
-}
-
-/**
- * Lớp biểu diễn một thông số kỹ thuật
- */
-class Specification {
-    private String label;
-    private String value;
-
-    public Specification(String label, String value) {
-        this.label = label;
-        this.value = value;
-    }
-
-    public String getLabel() {
-        return label;
-    }
-
-    public String getValue() {
-        return value;
+        return ratingValue >= 4.8;
     }
 }
@@ -0,0 +1,211 @@
+
+import java.util.Arrays;
+
+/**
+ * Bảng thuộc tính dạng cột: giá, xuất xứ và số người sử dụng
+ * được phân tích một lần khi tải, lưu trong các mảng nguyên thủy theo số thứ tự sản phẩm
+ * (chia khối, để cập nhật chỉ sao chép khối chứa sản phẩm bị sửa).
+ */
+public class ProductAttributes {
+    // Mã xuất xứ
+    public static final byte ORIGIN_UNKNOWN = 0;
+    public static final byte ORIGIN_VIETNAM = 1;
+    public static final byte ORIGIN_THAILAND = 2;
+    public static final byte ORIGIN_CHINA = 3;
+    public static final byte ORIGIN_OTHER = 4;
+
+    // Các xuất xứ đã biết: dạng bỏ dấu, tên hiển thị, mã (theo cùng thứ tự)
+    private static final String[] KNOWN_ORIGINS = { "viet nam", "thai lan", "trung quoc" };
+    private static final String[] KNOWN_ORIGIN_NAMES = { "Việt Nam", "Thái Lan", "Trung Quốc" };
+    private static final byte[] KNOWN_ORIGIN_CODES = { ORIGIN_VIETNAM, ORIGIN_THAILAND, ORIGIN_CHINA };
+
+    // Mã số người sử dụng
+    public static final byte HOUSEHOLD_UNKNOWN = 0;
+    public static final byte HOUSEHOLD_2_3 = 1;
+    public static final byte HOUSEHOLD_4_5 = 2;
+    public static final byte HOUSEHOLD_OVER_5 = 3;
+
+    private final ChunkedArray prices;
+    private final ChunkedArray origins;
+    private final ChunkedArray householdSizes;
+
+    private ProductAttributes(ChunkedArray prices, ChunkedArray origins, ChunkedArray householdSizes) {
+        this.prices = prices;
+        this.origins = origins;
+        this.householdSizes = householdSizes;
+    }
+
+    public int size() {
+        return prices.length();
+    }
+
+    public long priceAt(int ordinal) {
+        return prices.getLong(ordinal);
+    }
+
+    public byte originAt(int ordinal) {
+        return origins.getByte(ordinal);
+    }
+
+    public byte householdSizeAt(int ordinal) {
+        return householdSizes.getByte(ordinal);
+    }
+
+    /**
+     * Chuyển tên nơi sản xuất (có dấu hoặc không dấu) thành mã xuất xứ.
+     * So khớp theo tiền tố như tìm "Sản xuất tại: Việt Nam" trong mô tả, vì dữ liệu thật có
+     * cả "Trung Quốc/Thái Lan" hay "Việt NamCông suất..." (thiếu dấu chấm sau xuất xứ).
+     */
+    public static byte originCode(String origin) {
+        String folded = TextAnalyzer.fold(origin).trim();
+        if (folded.isEmpty()) {
+            return ORIGIN_UNKNOWN;
+        }
+        int known = knownOrigin(folded);
+        return known < 0 ? ORIGIN_OTHER : KNOWN_ORIGIN_CODES[known];
+    }
+
+    /**
+     * Tên xuất xứ dùng cho facet và bộ lọc: giá trị bắt đầu bằng một xuất xứ đã biết được
+     * gộp về tên chuẩn ("Việt NamCông suất..." -> "Việt Nam"), giá trị khác giữ nguyên
+     */
+    public static String originName(String origin) {
+        if (origin == null) {
+            return null;
+        }
+        int known = knownOrigin(TextAnalyzer.fold(origin).trim());
+        return known < 0 ? origin.trim() : KNOWN_ORIGIN_NAMES[known];
+    }
+
+    private static int knownOrigin(String folded) {
+        for (int i = 0; i < KNOWN_ORIGINS.length; i++) {
+            if (folded.startsWith(KNOWN_ORIGINS[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Xác định mã số người sử dụng từ mô tả đã bỏ dấu
+     */
+    static byte householdSizeCode(String foldedDescription) {
+        if (foldedDescription.contains("2 - 3 nguoi")) {
+            return HOUSEHOLD_2_3;
+        }
+        if (foldedDescription.contains("4 - 5 nguoi")) {
+            return HOUSEHOLD_4_5;
+        }
+        if (foldedDescription.contains("tren 5 nguoi")) {
+            return HOUSEHOLD_OVER_5;
+        }
+        return HOUSEHOLD_UNKNOWN;
+    }
+
+    /**
+     * Xây dựng bảng thuộc tính, thêm sản phẩm theo thứ tự số thứ tự tăng dần.
+     * Cũng dùng để cập nhật: bắt đầu từ bảng cũ rồi ghi đè từng số thứ tự; chỉ các khối
+     * bị ghi được sao chép, bảng cũ không bị thay đổi.
+     */
+    public static class Builder {
+        private long[] prices;
+        private byte[] origins;
+        private byte[] householdSizes;
+        private int size;
+        // Khi cập nhật bảng đã có: ghi qua Editor thay vì mảng
+        private final ChunkedArray.Editor priceEditor;
+        private final ChunkedArray.Editor originEditor;
+        private final ChunkedArray.Editor householdSizeEditor;
+
+        public Builder() {
+            prices = new long[16];
+            origins = new byte[16];
+            householdSizes = new byte[16];
+            priceEditor = null;
+            originEditor = null;
+            householdSizeEditor = null;
+        }
+
+        /**
+         * Bắt đầu từ các cột của bảng đã có (bảng cũ không bị thay đổi)
+         */
+        public Builder(ProductAttributes base) {
+            priceEditor = base.prices.edit();
+            originEditor = base.origins.edit();
+            householdSizeEditor = base.householdSizes.edit();
+            size = base.size();
+        }
+
+        /**
+         * Phân tích thuộc tính của một sản phẩm và thêm vào bảng
+         *
+         * @return Số thứ tự được gán cho sản phẩm
+         */
+        public int add(Product product) {
+            int ordinal = size;
+            set(ordinal, product);
+            return ordinal;
+        }
+
+        /**
+         * Ghi thuộc tính của sản phẩm tại số thứ tự cho trước
+         *
+         * @param product Sản phẩm, null để xóa (mọi cột về 0)
+         */
+        public void set(int ordinal, Product product) {
+            long price = 0;
+            byte origin = ORIGIN_UNKNOWN;
+            byte householdSize = HOUSEHOLD_UNKNOWN;
+            if (product != null) {
+                String foldedDescription = TextAnalyzer.fold(product.getDescription());
+                price = product.parsePrice();
+                origin = originCode(extractOrigin(foldedDescription));
+                householdSize = householdSizeCode(foldedDescription);
+            }
+            set(ordinal, price, origin, householdSize);
+        }
+
+        /**
+         * Ghi các giá trị đã phân tích sẵn (đọc từ ảnh chụp nhị phân) tại số thứ tự cho trước
+         */
+        public void set(int ordinal, long price, byte origin, byte householdSize) {
+            size = Math.max(size, ordinal + 1);
+            if (priceEditor != null) {
+                priceEditor.setLong(ordinal, price);
+                originEditor.setByte(ordinal, origin);
+                householdSizeEditor.setByte(ordinal, householdSize);
+                return;
+            }
+            if (ordinal >= prices.length) {
+                int capacity = Math.max(ordinal + 1, prices.length * 2);
+                prices = Arrays.copyOf(prices, capacity);
+                origins = Arrays.copyOf(origins, capacity);
+                householdSizes = Arrays.copyOf(householdSizes, capacity);
+            }
+            prices[ordinal] = price;
+            origins[ordinal] = origin;
+            householdSizes[ordinal] = householdSize;
+        }
+
+        public ProductAttributes build() {
+            if (priceEditor != null) {
+                return new ProductAttributes(priceEditor.build(), originEditor.build(), householdSizeEditor.build());
+            }
+            return new ProductAttributes(ChunkedArray.of(prices, size), ChunkedArray.of(origins, size),
+                    ChunkedArray.of(householdSizes, size));
+        }
+
+        /**
+         * Lấy giá trị sau "Sản xuất tại:" trong mô tả đã bỏ dấu
+         */
+        static String extractOrigin(String foldedDescription) {
+            int start = foldedDescription.indexOf("san xuat tai:");
+            if (start < 0) {
+                return "";
+            }
+            start += "san xuat tai:".length();
+            int end = foldedDescription.indexOf('.', start);
+            return foldedDescription.substring(start, end < 0 ? foldedDescription.length() : end);
+        }
+    }
+}
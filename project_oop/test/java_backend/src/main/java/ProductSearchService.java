@@ -5,72 +5,511 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import org.json.*;
 
 /**
  * Lớp xử lý tìm kiếm sản phẩm
  */
 public class ProductSearchService {
-    private List<Product> products;
+    // Số kết quả mặc định và tối đa cho một trang tìm kiếm
+    public static final int DEFAULT_RESULT_LIMIT = 15;
+    public static final int MAX_RESULT_LIMIT = 100;
+
+    // Kích thước tối thiểu của một phân đoạn khi chấm điểm song song
+    private static final int MIN_SEGMENT_SIZE = 4096;
+
+    // Điểm cộng cho mỗi gợi ý về giá, số người, xuất xứ khớp với sản phẩm
+    private static final float HINT_BOOST = 3.0f;
+
+    // Từ khóa xuất hiện trong hơn tỉ lệ này của danh mục được coi là phổ biến
+    private static final double COMMON_TERM_RATIO = 0.2;
+
+    // Từ khóa không có trong từ vựng được thay bằng tối đa ngần này từ gần đúng,
+    // điểm nhân với hệ số phạt theo khoảng cách chỉnh sửa
+    private static final int MAX_FUZZY_TERMS = 3;
+    private static final float FUZZY_PENALTY = 0.6f;
+
+    // Kích thước bộ đệm khi đọc file danh mục
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    // Thời gian chờ trước khi dựng lại gợi ý sau cập nhật, để gộp các cập nhật liên tiếp
+    private static final long SUGGESTIONS_REBUILD_DELAY_MS = 1000;
+
+    // Ảnh chụp danh mục hiện tại: mỗi request đọc tham chiếu một lần và dùng đến hết,
+    // tải lại chỉ thay tham chiếu sau khi ảnh chụp mới đã dựng xong
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>(CatalogSnapshot.empty());
+
+    // Đường dẫn file của lần tải gần nhất, dùng khi tải lại
+    private volatile String catalogPath;
+    // Kích thước và thời điểm sửa của file đó lúc tải, ghi vào dòng đầu nhật ký cập nhật
+    private volatile UpdateJournal.SourceVersion catalogSource;
+
+    // Chấm điểm song song: pool riêng cho tìm kiếm và ngưỡng bật (cấu hình qua system property)
+    private final ForkJoinPool searchPool;
+    private final int parallelCatalogThreshold;
+    private final int parallelMatchThreshold;
+
+    // Đọc/ghi ảnh chụp nhị phân cạnh file danh mục để khởi động nhanh (cấu hình qua system property)
+    private final boolean snapshotFileEnabled;
+
+    // Ghi nhật ký cập nhật cạnh file danh mục để cập nhật còn lại sau khi tải lại (cấu hình qua system property)
+    private final boolean journalEnabled;
+
+    // Được gọi sau mỗi lần tải lại toàn bộ danh mục (ví dụ: xóa bộ nhớ đệm kết quả)
+    private final List<Runnable> reloadListeners = new java.util.concurrent.CopyOnWriteArrayList<>();
+    // Được gọi sau mỗi lần cập nhật một số sản phẩm (ví dụ: xóa các kết quả đệm liên quan)
+    private final List<Consumer<CatalogUpdate>> updateListeners = new java.util.concurrent.CopyOnWriteArrayList<>();
+    // Được gọi sau khi gợi ý và từ vựng sửa lỗi chính tả được dựng lại ở luồng nền
+    private final List<Runnable> suggestionsListeners = new java.util.concurrent.CopyOnWriteArrayList<>();
+
+    // Cập nhật không dựng lại gợi ý tự động hoàn thành và từ vựng sửa lỗi (chi phí theo cả danh mục),
+    // việc đó được làm ở luồng nền này
+    private final ScheduledExecutorService suggestionsRebuilder = Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "suggestions-rebuilder");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final AtomicBoolean suggestionsRebuildPending = new AtomicBoolean();
 
     public ProductSearchService() {
-        products = new ArrayList<>();
+        searchPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        parallelCatalogThreshold = Integer.getInteger("search.parallel.catalogThreshold", 50000);
+        parallelMatchThreshold = Integer.getInteger("search.parallel.matchThreshold", 20000);
+        snapshotFileEnabled = Boolean.parseBoolean(System.getProperty("catalog.snapshot", "true"));
+        journalEnabled = Boolean.parseBoolean(System.getProperty("catalog.journal", "true"));
     }
 
     /**
-     * Tải dữ liệu sản phẩm từ file JSON
+     * Tải dữ liệu sản phẩm từ file JSON.
+     * Danh mục mới được dựng riêng rồi mới thay thế danh mục cũ; nếu đọc file lỗi
+     * thì danh mục cũ vẫn được giữ nguyên.
+     * File được đọc tuần tự từng sản phẩm nên bộ nhớ dùng để đọc chỉ cỡ một bản ghi,
+     * không phụ thuộc kích thước file.
+     * Nếu có ảnh chụp nhị phân còn khớp với file JSON thì đọc từ ảnh chụp; sau khi đọc JSON
+     * thành công thì ghi lại ảnh chụp cho lần khởi động sau.
+     * Sau đó các cập nhật trong nhật ký (xem UpdateJournal) được áp dụng lại lên danh mục vừa đọc.
      * 
      * @param jsonFilePath Đường dẫn tới file JSON
      */
-    public void loadProductsFromJson(String jsonFilePath) throws IOException, JSONException {
-        products.clear();
-
-        // Đọc nội dung file JSON
+    public synchronized void loadProductsFromJson(String jsonFilePath) throws IOException, JSONException {
+        long version = snapshot.get().getVersion() + 1;
+        long startTime = System.nanoTime();
         Path path = Paths.get(jsonFilePath);
-        String jsonContent = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        // Lấy trước khi đọc: nếu file bị thay trong lúc đọc, lần tải sau sẽ thấy khác và bỏ nhật ký
+        UpdateJournal.SourceVersion source = UpdateJournal.SourceVersion.of(path);
+
+        CatalogSnapshot catalog = snapshotFileEnabled ? readSnapshotFile(path, version) : null;
+        String origin = "ảnh chụp nhị phân";
+        int records = catalog == null ? 0 : catalog.getProductCount();
+        boolean fromJson = catalog == null;
+
+        if (fromJson) {
+            origin = "file JSON";
+            CatalogSnapshot.Builder catalogBuilder = new CatalogSnapshot.Builder(version, new ProductStore());
+
+            // Đọc lần lượt từng đối tượng JSON và chuyển đổi thành đối tượng Product
+            try (JsonArrayReader reader = new JsonArrayReader(new BufferedReader(
+                    new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8), READ_BUFFER_SIZE))) {
+                JSONObject jsonProduct;
+                while ((jsonProduct = reader.next()) != null) {
+                    records++;
+                    Product product = parseProduct(jsonProduct, null, catalogBuilder.getStore());
+
+                    // Chỉ xử lý các sản phẩm có tên hoặc mô tả
+                    if (product == null) {
+                        continue;
+                    }
 
-        // Parse JSON
-        JSONArray jsonArray = new JSONArray(jsonContent);
+                    // Thêm sản phẩm vào danh sách và chỉ mục (số thứ tự = vị trí trong danh sách)
+                    catalogBuilder.add(product);
+                }
+            }
+            catalog = catalogBuilder.build();
+        }
 
-        // Duyệt qua từng đối tượng JSON và chuyển đổi thành đối tượng Product
-        for (int i = 0; i < jsonArray.length(); i++) {
-            JSONObject jsonProduct = jsonArray.getJSONObject(i);
+        // Ảnh chụp nhị phân chỉ chứa nội dung file JSON, cập nhật nằm riêng trong nhật ký
+        CatalogSnapshot fileCatalog = catalog;
+        if (journalEnabled) {
+            catalog = applyJournal(journalFileFor(path), source, catalog);
+        }
 
-            // Lấy các giá trị từ JSON
-            String name = jsonProduct.optString("Tên sản phẩm", "");
-            String description = jsonProduct.optString("Mô tả sản phẩm", "");
+        long elapsedNanos = Math.max(1, System.nanoTime() - startTime);
+        snapshot.set(catalog);
+        catalogPath = jsonFilePath;
+        catalogSource = source;
 
-            // Chỉ xử lý các sản phẩm có tên hoặc mô tả
-            if (name.isEmpty() && description.isEmpty()) {
-                continue;
+        for (Runnable listener : reloadListeners) {
+            listener.run();
+        }
+
+        System.out.println("Đã tải " + catalog.getProductCount() + " sản phẩm từ " + origin + " (phiên bản "
+                + catalog.getVersion() + ", " + records + " bản ghi trong " + elapsedNanos / 1_000_000 + " ms, "
+                + (long) (records * 1e9 / elapsedNanos) + " bản ghi/giây)");
+        int productCount = Math.max(1, catalog.getProductCount());
+        System.out.println("Văn bản sản phẩm: " + catalog.getStore().getSizeInBytes() / productCount
+                + " byte/sản phẩm (nếu lưu từng String riêng: "
+                + catalog.getStore().getStringSizeInBytes() / productCount + " byte/sản phẩm)");
+
+        if (fromJson && snapshotFileEnabled) {
+            writeSnapshotFile(path, fileCatalog);
+        }
+    }
+
+    /**
+     * Đường dẫn nhật ký cập nhật của file danh mục (cùng thư mục, thêm đuôi .updates)
+     */
+    private static Path journalFileFor(Path source) {
+        return source.resolveSibling(source.getFileName() + ".updates");
+    }
+
+    /**
+     * Áp dụng lại nhật ký cập nhật lên danh mục vừa đọc từ file; nhật ký có bản ghi thừa
+     * (nhiều lần sửa cùng sản phẩm) được ghi gọn lại. Nhật ký ghi trên phiên bản khác
+     * của file danh mục (file đã được thay bằng dữ liệu mới) bị xóa thay vì áp dụng.
+     */
+    private static CatalogSnapshot applyJournal(Path journal, UpdateJournal.SourceVersion source,
+            CatalogSnapshot catalog) throws IOException {
+        List<JSONObject> records = UpdateJournal.read(journal, source);
+        if (records == null) {
+            System.out.println("File danh mục đã thay đổi từ khi ghi " + journal.getFileName()
+                    + ", bỏ các cập nhật cũ");
+            Files.delete(journal);
+            return catalog;
+        }
+        if (records.isEmpty()) {
+            return catalog;
+        }
+        List<JSONObject> compacted = UpdateJournal.compact(records);
+        if (compacted.size() < records.size()) {
+            UpdateJournal.write(journal, source, compacted);
+        }
+        System.out.println("Áp dụng " + compacted.size() + " cập nhật từ " + journal.getFileName());
+        // Đang tải lại toàn bộ nên dựng luôn gợi ý thay vì để luồng nền làm
+        return catalog.withChanges(parseChanges(catalog, compacted, true)).withRebuiltSuggestions();
+    }
+
+    /**
+     * Đọc danh mục từ ảnh chụp nhị phân
+     *
+     * @return Danh mục, null nếu chưa có ảnh chụp, ảnh chụp đã cũ hoặc bị hỏng
+     */
+    private static CatalogSnapshot readSnapshotFile(Path source, long version) {
+        CatalogSnapshot.Builder catalogBuilder = new CatalogSnapshot.Builder(version, new ProductStore());
+        try {
+            Path file = CatalogSnapshotFile.latestFile(source);
+            if (file == null || CatalogSnapshotFile.read(file, source, catalogBuilder) < 0) {
+                return null;
             }
+            return catalogBuilder.build();
+        } catch (IOException e) {
+            System.err.println("Bỏ qua ảnh chụp nhị phân, đọc lại file JSON: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Ghi ảnh chụp nhị phân; lỗi khi ghi không ảnh hưởng danh mục đang phục vụ
+     */
+    private static void writeSnapshotFile(Path source, CatalogSnapshot catalog) {
+        try {
+            CatalogSnapshotFile.write(source, catalog);
+        } catch (IOException e) {
+            System.err.println("Không thể ghi ảnh chụp nhị phân: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Chuyển đối tượng JSON (cùng định dạng với file danh mục) thành sản phẩm đã phân tích văn bản
+     *
+     * @param jsonProduct Dữ liệu sản phẩm
+     * @param current     Sản phẩm hiện tại khi cập nhật (trường không có trong JSON giữ giá trị cũ), hoặc null
+     * @param store       Nơi lưu văn bản của sản phẩm
+     * @return Sản phẩm mới, null nếu không có tên lẫn mô tả
+     */
+    private static Product parseProduct(JSONObject jsonProduct, Product current, ProductStore store) {
+        if (current != null) {
+            return updateProduct(jsonProduct, current);
+        }
+
+        // Lấy các giá trị từ JSON
+        String name = jsonProduct.optString("Tên sản phẩm", "");
+        String description = jsonProduct.optString("Mô tả sản phẩm", "");
+
+        if (name.isEmpty() && description.isEmpty()) {
+            return null;
+        }
+
+        // Tạo đối tượng Product mới
+        Product product = new Product(
+                store,
+                name,
+                jsonProduct.optString("Ảnh", Product.PLACEHOLDER_IMAGE),
+                jsonProduct.optString("Giá", "0"),
+                description,
+                jsonProduct.optString("Điểm đánh giá trung bình", "0"),
+                jsonProduct.optString("Số lượt đánh giá", "0 đánh giá"),
+                jsonProduct.optString("Nguồn dữ liệu", ""),
+                jsonProduct.optString("Loại sản phẩm", ""));
+        product.setId(jsonProduct.has("id") ? jsonProduct.get("id").toString() : null);
+
+        // Đặt giá cũ (nếu có)
+        if (jsonProduct.has("Giá cũ")) {
+            product.setOldPrice(jsonProduct.getString("Giá cũ"));
+        }
+
+        // Phân tích văn bản một lần khi tải để không phải xử lý lại khi tìm kiếm
+        // (nếu không có tên, tên được tạo từ mô tả)
+        product.analyzeText();
+        return product;
+    }
+
+    /**
+     * Tạo bản sửa của sản phẩm từ bản ghi cập nhật. Sản phẩm cũ có thể đang được request khác đọc
+     * nên không bị sửa. Chỉ trường có trong JSON và khác giá trị cũ mới được ghi thêm vào store,
+     * các trường còn lại dùng lại địa chỉ cũ; văn bản chỉ được phân tích lại khi tên, mô tả hoặc
+     * loại sản phẩm đổi. Nhờ vậy cập nhật giá liên tục không làm vùng lưu trữ phình theo mô tả.
+     *
+     * @return Sản phẩm mới, null nếu không còn tên lẫn mô tả
+     */
+    private static Product updateProduct(JSONObject jsonProduct, Product current) {
+        Product product = new Product(current);
+        boolean textChanged = false;
+        String value;
+
+        if ((value = changedValue(jsonProduct, "Tên sản phẩm", current.getName())) != null) {
+            product.setName(value);
+            textChanged = true;
+        }
+        if ((value = changedValue(jsonProduct, "Mô tả sản phẩm", current.getDescription())) != null) {
+            product.setDescription(value);
+            textChanged = true;
+        }
+        if ((value = changedValue(jsonProduct, "Loại sản phẩm", current.getProductType())) != null) {
+            product.setProductType(value);
+            textChanged = true;
+        }
+        if ((value = changedValue(jsonProduct, "Ảnh", current.getImage())) != null) {
+            product.setImage(value);
+        }
+        if ((value = changedValue(jsonProduct, "Giá", current.getPrice())) != null) {
+            product.setPrice(value);
+        }
+        if ((value = changedValue(jsonProduct, "Điểm đánh giá trung bình", current.getRating())) != null) {
+            product.setRating(value);
+        }
+        if ((value = changedValue(jsonProduct, "Số lượt đánh giá", current.getRatingCount())) != null) {
+            product.setRatingCount(value);
+        }
+        if ((value = changedValue(jsonProduct, "Nguồn dữ liệu", current.getSource())) != null) {
+            product.setSource(value);
+        }
+        if (jsonProduct.has("Giá cũ") && !jsonProduct.getString("Giá cũ").equals(current.getOldPrice())) {
+            product.setOldPrice(jsonProduct.getString("Giá cũ"));
+        }
+
+        if (product.getName().isEmpty() && product.getDescription().isEmpty()) {
+            return null;
+        }
+        if (textChanged) {
+            product.analyzeText();
+        }
+        return product;
+    }
+
+    /**
+     * @return Giá trị của trường trong JSON nếu có và khác giá trị hiện tại, ngược lại null
+     */
+    private static String changedValue(JSONObject jsonProduct, String key, String currentValue) {
+        if (!jsonProduct.has(key)) {
+            return null;
+        }
+        String value = jsonProduct.optString(key);
+        return value.equals(currentValue) ? null : value;
+    }
 
-            // Tạo đối tượng Product
-            Product product = new Product(
-                    name,
-                    jsonProduct.optString("Ảnh", "https://via.placeholder.com/400x300?text=No+Image"),
-                    jsonProduct.optString("Giá", "0"),
-                    description,
-                    jsonProduct.optString("Điểm đánh giá trung bình", "0"),
-                    jsonProduct.optString("Số lượt đánh giá", "0 đánh giá"),
-                    jsonProduct.optString("Nguồn dữ liệu", ""),
-                    jsonProduct.optString("Loại sản phẩm", ""));
-
-            // Đặt giá cũ (nếu có)
-            if (jsonProduct.has("Giá cũ")) {
-                product.setOldPrice(jsonProduct.getString("Giá cũ"));
+    /**
+     * Thêm, sửa hoặc xóa sản phẩm mà không tải lại toàn bộ danh mục.
+     * Các thay đổi được áp dụng cùng lúc vào một ảnh chụp mới rồi mới thay thế ảnh chụp hiện tại,
+     * nên request đọc không bao giờ bị chặn hoặc thấy trạng thái dở dang.
+     * Bản ghi được ghi vào nhật ký trước khi thay ảnh chụp, nên vẫn còn sau khi tải lại danh mục.
+     *
+     * @param records Mỗi bản ghi có "id"; "op": "delete" để xóa, ngược lại là thêm/sửa
+     *                (khi sửa, trường không có trong bản ghi giữ giá trị cũ)
+     * @return Ảnh chụp trước và sau khi cập nhật cùng các thay đổi đã áp dụng
+     * @throws IllegalArgumentException Nếu bản ghi thiếu id hoặc sản phẩm mới không có tên lẫn mô tả
+     * @throws IOException              Nếu không ghi được nhật ký (ảnh chụp hiện tại được giữ nguyên)
+     */
+    public synchronized CatalogUpdate updateProducts(List<JSONObject> records) throws IOException {
+        CatalogSnapshot current = snapshot.get();
+        Map<String, Product> changes = parseChanges(current, records, false);
+        CatalogSnapshot updated = current.withChanges(changes);
+
+        // Chỉ thay ảnh chụp khi cập nhật đã được lưu
+        if (journalEnabled && catalogPath != null) {
+            UpdateJournal.append(journalFileFor(Paths.get(catalogPath)), catalogSource, records);
+        }
+        snapshot.set(updated);
+        if (updated.hasStaleSuggestions()) {
+            scheduleSuggestionsRebuild();
+        }
+
+        CatalogUpdate update = new CatalogUpdate(current, updated, changes);
+        for (Consumer<CatalogUpdate> listener : updateListeners) {
+            listener.accept(update);
+        }
+        return update;
+    }
+
+    /**
+     * Dựng lại ở luồng nền gợi ý tự động hoàn thành và từ vựng sửa lỗi chính tả sau khi cập nhật đổi tên
+     * sản phẩm hoặc từ vựng. Chờ SUGGESTIONS_REBUILD_DELAY_MS trước khi dựng nên nhiều cập nhật liên tiếp
+     * chỉ gây một lần dựng; trong lúc đó tìm kiếm dùng gợi ý của phiên bản trước.
+     */
+    private void scheduleSuggestionsRebuild() {
+        if (!suggestionsRebuildPending.compareAndSet(false, true)) {
+            return;
+        }
+        suggestionsRebuilder.schedule(this::rebuildSuggestions, SUGGESTIONS_REBUILD_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void rebuildSuggestions() {
+        suggestionsRebuildPending.set(false);
+        CatalogSnapshot base = snapshot.get();
+        try {
+            // Dựng ngoài khóa để không chặn cập nhật, chỉ khóa khi gắn vào ảnh chụp hiện tại
+            CatalogSnapshot rebuilt = base.withRebuiltSuggestions();
+            synchronized (this) {
+                CatalogSnapshot current = snapshot.get();
+                // Đã tải lại hoặc đã có gợi ý mới hơn thì bỏ kết quả này
+                if (current.getSuggestionsVersion() >= base.getVersion()) {
+                    return;
+                }
+                current = current.withSuggestions(rebuilt.getSuggester(), rebuilt.getTrigramIndex(),
+                        base.getVersion());
+                snapshot.set(current);
+                // Có cập nhật đổi tên trong lúc dựng: dựng thêm một lần
+                if (current.hasStaleSuggestions()) {
+                    scheduleSuggestionsRebuild();
+                }
+            }
+            for (Runnable listener : suggestionsListeners) {
+                listener.run();
             }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
 
-            // Nếu không có tên, tạo tên từ mô tả
-            if (name.isEmpty() && !description.isEmpty()) {
-                product.inferNameFromDescription();
+    /**
+     * Chuyển các bản ghi cập nhật thành thay đổi cho CatalogSnapshot.withChanges.
+     * Nhiều bản ghi cùng mã: áp dụng lần lượt, bản ghi sau dựa trên kết quả của bản ghi trước.
+     *
+     * @param skipInvalid true để bỏ qua (kèm cảnh báo) bản ghi không hợp lệ thay vì ném ngoại lệ
+     */
+    private static Map<String, Product> parseChanges(CatalogSnapshot current, List<JSONObject> records,
+            boolean skipInvalid) {
+        Map<String, Product> changes = new LinkedHashMap<>();
+        for (JSONObject record : records) {
+            try {
+                String id = record.has("id") ? record.get("id").toString() : "";
+                if (id.isEmpty()) {
+                    throw new IllegalArgumentException("Thiếu mã sản phẩm (id)");
+                }
+                if ("delete".equals(record.optString("op"))) {
+                    changes.put(id, null);
+                    continue;
+                }
+
+                Product existing = changes.containsKey(id) ? changes.get(id) : current.productById(id);
+                Product product = parseProduct(record, existing, current.getStore());
+                if (product == null) {
+                    throw new IllegalArgumentException("Sản phẩm " + id + " không có tên hoặc mô tả");
+                }
+                changes.put(id, product);
+            } catch (IllegalArgumentException | JSONException e) {
+                if (!skipInvalid) {
+                    throw e;
+                }
+                System.err.println("Bỏ qua cập nhật không hợp lệ: " + e.getMessage());
             }
+        }
+        return changes;
+    }
 
-            // Thêm sản phẩm vào danh sách
-            products.add(product);
+    /**
+     * Tải lại danh mục từ file của lần tải gần nhất
+     *
+     * @return Ảnh chụp danh mục mới
+     */
+    public CatalogSnapshot reload() throws IOException, JSONException {
+        String path = catalogPath;
+        if (path == null) {
+            throw new IllegalStateException("Chưa tải danh mục lần nào");
         }
+        loadProductsFromJson(path);
+        return snapshot.get();
+    }
+
+    /**
+     * @return Ảnh chụp danh mục hiện tại
+     */
+    public CatalogSnapshot getSnapshot() {
+        return snapshot.get();
+    }
 
-        System.out.println("Đã tải " + products.size() + " sản phẩm từ file JSON");
+    /**
+     * Đăng ký hàm được gọi mỗi khi toàn bộ danh mục được tải lại
+     */
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Đăng ký hàm được gọi sau mỗi lần updateProducts
+     */
+    public void addUpdateListener(Consumer<CatalogUpdate> listener) {
+        updateListeners.add(listener);
+    }
+
+    /**
+     * Đăng ký hàm được gọi sau khi gợi ý và từ vựng sửa lỗi chính tả được dựng lại sau cập nhật
+     */
+    public void addSuggestionsListener(Runnable listener) {
+        suggestionsListeners.add(listener);
+    }
+
+    /**
+     * Từ khóa quyết định kết quả của truy vấn: chỉ sản phẩm chứa một trong các từ này mới khớp,
+     * nên sửa sản phẩm không chứa từ nào trong đó không làm đổi tập kết quả.
+     *
+     * @return Từ khóa đã bỏ dấu, null nếu kết quả phụ thuộc toàn bộ danh mục (không có từ khóa,
+     *         hoặc có từ khóa không có trong từ vựng nên được mở rộng sang từ gần đúng)
+     */
+    public Set<String> getDependentTerms(QueryPlan plan) {
+        String[] keywords = plan.getKeywords();
+        if (plan.isEmpty() || keywords.length == 0) {
+            return null;
+        }
+        InvertedIndex index = snapshot.get().getIndex();
+        Set<String> terms = new HashSet<>();
+        for (String keyword : keywords) {
+            if (index.getPostings(keyword) == null) {
+                return null;
+            }
+            terms.add(keyword);
+        }
+        return terms;
     }
 
     /**
@@ -81,177 +520,467 @@ public class ProductSearchService {
      */
     public List<Product> searchProducts(String query) {
         if (query == null || query.trim().isEmpty()) {
-            return new ArrayList<>(products);
+            return snapshot.get().getProducts();
+        }
+        return searchProducts(query, 0, DEFAULT_RESULT_LIMIT);
+    }
+
+    /**
+     * Tìm kiếm sản phẩm dựa trên từ khóa, có phân trang
+     *
+     * @param query  Từ khóa tìm kiếm
+     * @param offset Số kết quả bỏ qua (tính từ kết quả tốt nhất)
+     * @param limit  Số kết quả tối đa trả về
+     * @return Danh sách sản phẩm phù hợp trong trang yêu cầu
+     */
+    public List<Product> searchProducts(String query, int offset, int limit) {
+        return searchProducts(QueryPlan.parse(query), offset, limit);
+    }
+
+    /**
+     * Tìm kiếm sản phẩm theo kế hoạch truy vấn đã phân tích sẵn
+     *
+     * @param plan   Kế hoạch truy vấn
+     * @param offset Số kết quả bỏ qua (tính từ kết quả tốt nhất)
+     * @param limit  Số kết quả tối đa trả về
+     * @return Danh sách sản phẩm phù hợp trong trang yêu cầu
+     */
+    public List<Product> searchProducts(QueryPlan plan, int offset, int limit) {
+        CatalogSnapshot catalog = snapshot.get();
+        offset = Math.max(0, Math.min(offset, catalog.size()));
+        limit = Math.max(0, Math.min(limit, MAX_RESULT_LIMIT));
+
+        FixedBitSet filter = buildFilter(catalog, plan);
+        if (plan.isEmpty()) {
+            return listProducts(catalog, filter, offset, limit);
         }
 
         List<Product> results = new ArrayList<>();
-        String[] keywords = query.toLowerCase().split("\\s+");
+        if (limit == 0 || offset >= catalog.size()) {
+            // Trang nằm ngoài danh mục: không cần chấm điểm
+            return results;
+        }
+        int k = offset + limit;
+        QueryTerm[] terms = prepareTerms(catalog, plan);
+
+        // Danh mục lớn hoặc truy vấn khớp nhiều sản phẩm: chấm điểm song song theo phân đoạn
+        TopKCollector collector;
+        if (shouldScoreInParallel(catalog, terms)) {
+            collector = scoreInParallel(catalog, plan, terms, filter, k);
+        } else {
+            collector = scoreSegment(catalog, plan, terms, filter, 0, catalog.size(), k, true);
+        }
 
-        // Tạo bảng điểm cho từng sản phẩm
-        Map<Product, Integer> productScores = new HashMap<>();
+        int[] topOrdinals = collector.drainSorted();
+        for (int i = offset; i < topOrdinals.length; i++) {
+            results.add(catalog.productAt(topOrdinals[i]));
+        }
 
-        for (Product product : products) {
-            int score = 0;
+        return results;
+    }
 
-            // Văn bản sản phẩm để tìm kiếm
-            String productText = (product.getName() + " " + product.getDescription()).toLowerCase();
+    /**
+     * Đếm số sản phẩm theo từng giá trị facet trong tập kết quả của truy vấn
+     *
+     * @param plan Kế hoạch truy vấn (truy vấn rỗng nghĩa là toàn bộ danh mục, có thể kèm bộ lọc)
+     * @return Tên facet -> (giá trị -> số lượng)
+     */
+    public Map<String, Map<String, Integer>> countFacets(QueryPlan plan) {
+        CatalogSnapshot catalog = snapshot.get();
+        FixedBitSet filter = buildFilter(catalog, plan);
+        if (plan.isEmpty()) {
+            return catalog.getFacetIndex().count(filter);
+        }
+
+        ScoreBoard board = scoreCandidates(catalog, plan, prepareTerms(catalog, plan), filter, 0, catalog.size(), true);
+        try {
+            return catalog.getFacetIndex().count(board.toBitSet(catalog.size()));
+        } finally {
+            board.release();
+        }
+    }
 
-            // Tính điểm cho từng từ khóa có trong văn bản sản phẩm
-            for (String keyword : keywords) {
-                if (productText.contains(keyword)) {
-                    score++;
+    /**
+     * Tập sản phẩm thỏa mãn các bộ lọc tường minh, tính trước khi chấm điểm để chỉ chấm
+     * điểm các ứng viên nằm trong tập. Khoảng giá dùng chỉ mục giá, thuộc tính dùng
+     * chỉ mục bộ lọc, không duyệt toàn bộ danh mục.
+     *
+     * @return Tập sản phẩm được phép, null nếu không có bộ lọc
+     */
+    private FixedBitSet buildFilter(CatalogSnapshot catalog, QueryPlan plan) {
+        FixedBitSet filter = null;
+        if (plan.hasPriceFilter()) {
+            filter = catalog.getPriceIndex().range(plan.getFilterMinPrice(), plan.getFilterMaxPrice());
+        }
+        if (plan.hasAttributeFilters()) {
+            FixedBitSet attributeFilter = catalog.getFilterIndex().filter(plan.getAttributeFilters())
+                    .toFixedBitSet(catalog.size());
+            if (filter == null) {
+                filter = attributeFilter;
+            } else {
+                filter.and(attributeFilter);
+            }
+        }
+        // Bỏ các số thứ tự đã xóa (tập dùng chung chỉ được đọc, không sửa)
+        if (catalog.hasDeletions()) {
+            if (filter == null) {
+                filter = catalog.getLiveProducts();
+            } else {
+                filter.and(catalog.getLiveProducts());
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Tra posting list và tính IDF cho từng từ khóa (một lần cho mỗi truy vấn).
+     * Từ khóa quá phổ biến chỉ được dùng để cộng điểm cho ứng viên đã có
+     * khi truy vấn còn từ khóa hiếm hơn, tránh duyệt cả posting list dài.
+     */
+    private QueryTerm[] prepareTerms(CatalogSnapshot catalog, QueryPlan plan) {
+        InvertedIndex index = catalog.getIndex();
+        Bm25Scorer scorer = catalog.getScorer();
+        List<QueryTerm> terms = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        boolean hasRareTerm = false;
+
+        for (String keyword : plan.getKeywords()) {
+            if (!seen.add(keyword)) {
+                continue;
+            }
+            InvertedIndex.Postings postings = index.getPostings(keyword);
+            if (postings != null) {
+                boolean common = postings.size() > COMMON_TERM_RATIO * index.getDocumentCount();
+                terms.add(new QueryTerm(postings, scorer.idf(postings.size()), 1.0f, common));
+                hasRareTerm |= !common;
+                continue;
+            }
+
+            // Từ khóa không có trong từ vựng (có thể gõ sai): mở rộng sang các từ gần đúng
+            for (TrigramIndex.FuzzyMatch match : catalog.getTrigramIndex().expand(keyword, MAX_FUZZY_TERMS)) {
+                if (!seen.add(match.getTerm())) {
+                    continue;
                 }
-                // Tăng điểm nếu từ khóa xuất hiện trong tên sản phẩm
-                if (product.getName().toLowerCase().contains(keyword)) {
-                    score += 2;
+                InvertedIndex.Postings fuzzyPostings = index.getPostings(match.getTerm());
+                // Từ vựng sửa lỗi có thể chưa được dựng lại sau cập nhật: bỏ qua từ đã không còn
+                if (fuzzyPostings == null) {
+                    continue;
                 }
+                boolean common = fuzzyPostings.size() > COMMON_TERM_RATIO * index.getDocumentCount();
+                float weight = (float) Math.pow(FUZZY_PENALTY, match.getDistance());
+                terms.add(new QueryTerm(fuzzyPostings, scorer.idf(fuzzyPostings.size()), weight, common));
+                hasRareTerm |= !common;
             }
+        }
 
-            // Kiểm tra giá trong query và so sánh với giá sản phẩm
-            if (query.contains("dưới") || query.contains("nhỏ hơn") || query.contains("it hon")) {
-                // Tìm giá trị số trong truy vấn
-                int priceLimit = extractPriceFromQuery(query, "dưới", "nhỏ hơn", "it hon");
-                if (priceLimit > 0 && product.parsePrice() <= priceLimit) {
-                    score += 3;
-                }
+        // Nếu mọi từ khóa đều phổ biến thì tất cả vẫn phải tạo ứng viên
+        if (!hasRareTerm) {
+            for (QueryTerm term : terms) {
+                term.essential = true;
             }
+        }
+        return terms.toArray(new QueryTerm[0]);
+    }
 
-            if (query.contains("trên") || query.contains("lớn hơn") || query.contains("lon hon")) {
-                // Tìm giá trị số trong truy vấn
-                int priceLimit = extractPriceFromQuery(query, "trên", "lớn hơn", "lon hon");
-                if (priceLimit > 0 && product.parsePrice() >= priceLimit) {
-                    score += 3;
-                }
+    private boolean shouldScoreInParallel(CatalogSnapshot catalog, QueryTerm[] terms) {
+        if (catalog.size() < 2 * MIN_SEGMENT_SIZE) {
+            return false;
+        }
+        if (catalog.size() >= parallelCatalogThreshold) {
+            return true;
+        }
+
+        // Ước lượng số lượt khớp từ độ dài các posting list
+        long matches = 0;
+        for (QueryTerm term : terms) {
+            if (term.essential) {
+                matches += term.postings.size();
+            }
+        }
+        return matches >= parallelMatchThreshold;
+    }
+
+    /**
+     * Chia danh mục thành các phân đoạn liên tiếp, chấm điểm song song trên ForkJoinPool riêng
+     * rồi gộp top-K của từng phân đoạn
+     */
+    private TopKCollector scoreInParallel(CatalogSnapshot catalog, QueryPlan plan, QueryTerm[] terms,
+            FixedBitSet filter, int k) {
+        int size = catalog.size();
+        int segmentCount = Math.min(searchPool.getParallelism() * 2, size / MIN_SEGMENT_SIZE);
+        int segmentSize = (size + segmentCount - 1) / segmentCount;
+
+        List<Callable<TopKCollector>> tasks = new ArrayList<>();
+        for (int from = 0; from < size; from += segmentSize) {
+            int segmentFrom = from;
+            int segmentTo = Math.min(size, from + segmentSize);
+            tasks.add(() -> scoreSegment(catalog, plan, terms, filter, segmentFrom, segmentTo, k, false));
+        }
+
+        List<TopKCollector> segments = new ArrayList<>();
+        int collected = 0;
+        for (Future<TopKCollector> future : searchPool.invokeAll(tasks)) {
+            try {
+                segments.add(future.get());
+                collected += segments.get(segments.size() - 1).size();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Tìm kiếm bị gián đoạn", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Lỗi khi chấm điểm phân đoạn", e.getCause());
             }
+        }
+
+        TopKCollector merged = new TopKCollector(Math.min(k, collected));
+        for (TopKCollector segment : segments) {
+            segment.collectInto(merged);
+        }
+        return merged;
+    }
 
-            // Tìm kiếm theo số người
-            if (query.contains("người") || query.contains("nguoi")) {
-                if ((query.contains("2") || query.contains("hai")) &&
-                        (query.contains("3") || query.contains("ba")) &&
-                        product.getDescription().contains("2 - 3 người")) {
-                    score += 3;
-                } else if ((query.contains("4") || query.contains("bốn") || query.contains("bon")) &&
-                        (query.contains("5") || query.contains("năm") || query.contains("nam")) &&
-                        product.getDescription().contains("4 - 5 người")) {
-                    score += 3;
-                } else if ((query.contains("5") || query.contains("năm") || query.contains("nam") ||
-                        query.contains("nhiều") || query.contains("nhieu")) &&
-                        product.getDescription().contains("Trên 5 người")) {
-                    score += 3;
+    /**
+     * Chấm điểm các sản phẩm có số thứ tự trong [from, to) và giữ k sản phẩm tốt nhất
+     *
+     * @param wholeCatalog True nếu phân đoạn là toàn bộ danh mục (dùng chỉ mục giá cho gợi ý giá)
+     */
+    private TopKCollector scoreSegment(CatalogSnapshot catalog, QueryPlan plan, QueryTerm[] terms,
+            FixedBitSet filter, int from, int to, int k, boolean wholeCatalog) {
+        ScoreBoard board = scoreCandidates(catalog, plan, terms, filter, from, to, wholeCatalog);
+
+        // Chỉ giữ k sản phẩm tốt nhất, không sắp xếp toàn bộ tập kết quả;
+        // kích thước bộ chọn không vượt quá số ứng viên (k lớn khi offset lớn)
+        TopKCollector collector = new TopKCollector(Math.min(k, board.candidateCount));
+        try {
+            board.collectInto(collector);
+        } finally {
+            board.release();
+        }
+        return collector;
+    }
+
+    /**
+     * Tính điểm cho mọi sản phẩm khớp truy vấn có số thứ tự trong [from, to)
+     *
+     * @param wholeCatalog True nếu phân đoạn là toàn bộ danh mục (dùng chỉ mục giá cho gợi ý giá)
+     */
+    private ScoreBoard scoreCandidates(CatalogSnapshot catalog, QueryPlan plan, QueryTerm[] terms,
+            FixedBitSet filter, int from, int to, boolean wholeCatalog) {
+        Bm25Scorer scorer = catalog.getScorer();
+        PriceIndex priceIndex = catalog.getPriceIndex();
+        // Bảng điểm theo số thứ tự sản phẩm, chỉ chạm tới sản phẩm có trong posting list
+        ScoreBoard board = new ScoreBoard(from, to, filter);
+
+        for (QueryTerm term : terms) {
+            if (!term.essential) {
+                continue;
+            }
+            InvertedIndex.Postings postings = term.postings;
+
+            // Posting list sắp xếp theo số thứ tự nên chỉ cần duyệt phần thuộc phân đoạn
+            for (int i = postings.lowerBound(from); i < postings.size(); i++) {
+                int ordinal = postings.ordinalAt(i);
+                if (ordinal >= to) {
+                    break;
                 }
+                board.add(ordinal, term.weight * scorer.score(postings, i, term.idf));
             }
+        }
 
-            // Tìm kiếm theo xuất xứ
-            if ((query.contains("việt nam") || query.contains("viet nam")) &&
-                    product.getDescription().contains("Sản xuất tại: Việt Nam")) {
-                score += 3;
+        if (wholeCatalog) {
+            // Gợi ý về giá trong câu truy vấn: chỉ duyệt khoảng giá phù hợp trên chỉ mục giá
+            if (plan.getMaxPrice() > 0) {
+                priceIndex.forEachInRange(Long.MIN_VALUE, plan.getMaxPrice(), ordinal -> board.add(ordinal, HINT_BOOST));
             }
-            if ((query.contains("thái lan") || query.contains("thai lan")) &&
-                    product.getDescription().contains("Sản xuất tại: Thái Lan")) {
-                score += 3;
+            if (plan.getMinPrice() > 0) {
+                priceIndex.forEachInRange(plan.getMinPrice(), Long.MAX_VALUE, ordinal -> board.add(ordinal, HINT_BOOST));
             }
-            if ((query.contains("trung quốc") || query.contains("trung quoc") || query.contains("tàu")
-                    || query.contains("tau")) &&
-                    product.getDescription().contains("Sản xuất tại: Trung Quốc")) {
-                score += 3;
+        }
+
+        // Gợi ý về số người, xuất xứ (và giá khi chấm theo phân đoạn) đọc từ các cột thuộc tính
+        boolean priceHints = !wholeCatalog && (plan.getMaxPrice() > 0 || plan.getMinPrice() > 0);
+        if (plan.hasAttributeHints() || priceHints) {
+            for (int ordinal = from; ordinal < to; ordinal++) {
+                float bonus = scoreQueryHints(catalog.getAttributes(), plan, ordinal, priceHints);
+                if (bonus > 0) {
+                    board.add(ordinal, bonus);
+                }
             }
+        }
 
-            // Lưu điểm số nếu sản phẩm có điểm > 0
-            if (score > 0) {
-                productScores.put(product, score);
+        // Từ khóa phổ biến: chỉ cộng điểm cho ứng viên đã có, tìm nhị phân trong posting list
+        for (QueryTerm term : terms) {
+            if (term.essential) {
+                continue;
+            }
+            for (int c = 0; c < board.candidateCount; c++) {
+                int position = term.postings.find(board.candidates[c]);
+                if (position >= 0) {
+                    board.add(board.candidates[c], term.weight * scorer.score(term.postings, position, term.idf));
+                }
             }
         }
+        return board;
+    }
 
-        // Sắp xếp sản phẩm theo điểm số giảm dần
-        List<Map.Entry<Product, Integer>> sortedEntries = new ArrayList<>(productScores.entrySet());
-        sortedEntries.sort((e1, e2) -> e2.getValue().compareTo(e1.getValue()));
+    /**
+     * Gợi ý tự động hoàn thành từ tên sản phẩm, không đi qua luồng chấm điểm
+     *
+     * @param prefix Tiền tố người dùng đã gõ
+     * @param limit  Số gợi ý tối đa
+     * @return Danh sách gợi ý
+     */
+    public List<PrefixSuggester.Suggestion> suggest(String prefix, int limit) {
+        return snapshot.get().getSuggester().suggest(prefix, Math.min(limit, PrefixSuggester.MAX_SUGGESTIONS));
+    }
 
-        // Lấy các sản phẩm phù hợp nhất, tối đa 15 sản phẩm
-        for (Map.Entry<Product, Integer> entry : sortedEntries) {
-            results.add(entry.getKey());
-            if (results.size() >= 15) {
-                break;
-            }
+    /**
+     * Liệt kê sản phẩm theo thứ tự danh mục khi không có từ khóa, có thể lọc theo giá
+     */
+    private List<Product> listProducts(CatalogSnapshot catalog, FixedBitSet filter, int offset, int limit) {
+        if (filter == null) {
+            List<Product> products = catalog.getProducts();
+            int to = Math.min(products.size(), offset + limit);
+            return new ArrayList<>(products.subList(Math.min(offset, to), to));
         }
 
+        List<Product> results = new ArrayList<>();
+        int skipped = 0;
+        for (int ordinal = filter.nextSetBit(0); ordinal >= 0 && results.size() < limit;
+                ordinal = filter.nextSetBit(ordinal + 1)) {
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                results.add(catalog.productAt(ordinal));
+            }
+        }
         return results;
     }
 
     /**
-     * Trích xuất giá trị giá tiền từ câu truy vấn
+     * Tính điểm cộng thêm cho sản phẩm dựa trên gợi ý về số người, xuất xứ (và giá nếu yêu cầu)
+     * của kế hoạch truy vấn. Chỉ đọc các cột thuộc tính đã phân tích sẵn, không xử lý chuỗi.
      */
-    private int extractPriceFromQuery(String query, String... priceKeywords) {
-        // Tìm các từ khóa giá tiền trong truy vấn
-        int startPos = -1;
-        for (String keyword : priceKeywords) {
-            if (query.contains(keyword)) {
-                int pos = query.indexOf(keyword);
-                if (startPos == -1 || pos < startPos) {
-                    startPos = pos + keyword.length();
-                }
+    private float scoreQueryHints(ProductAttributes attributes, QueryPlan plan, int ordinal, boolean includePrice) {
+        float score = 0;
+
+        // So sánh giá sản phẩm với khoảng giá trong truy vấn
+        if (includePrice) {
+            long price = attributes.priceAt(ordinal);
+            if (plan.getMaxPrice() > 0 && price <= plan.getMaxPrice()) {
+                score += HINT_BOOST;
             }
+            if (plan.getMinPrice() > 0 && price >= plan.getMinPrice()) {
+                score += HINT_BOOST;
+            }
+        }
+
+        // Tìm kiếm theo số người
+        if (plan.matchesHouseholdSize(attributes.householdSizeAt(ordinal))) {
+            score += HINT_BOOST;
         }
 
-        if (startPos != -1) {
-            // Tìm số trong truy vấn sau vị trí từ khóa giá tiền
-            StringBuilder priceStr = new StringBuilder();
-            boolean foundDigit = false;
+        // Tìm kiếm theo xuất xứ
+        if (plan.matchesOrigin(attributes.originAt(ordinal))) {
+            score += HINT_BOOST;
+        }
 
-            for (int i = startPos; i < query.length(); i++) {
-                char c = query.charAt(i);
+        return score;
+    }
 
-                if (Character.isDigit(c)) {
-                    priceStr.append(c);
-                    foundDigit = true;
-                } else if (foundDigit && c == ',' || c == '.') {
-                    // Bỏ qua các dấu phân cách số
-                    continue;
-                } else if (foundDigit && !Character.isDigit(c)) {
-                    // Nếu đã tìm thấy số và gặp ký tự không phải số, kiểm tra đơn vị
-                    String remainingText = query.substring(i).trim().toLowerCase();
-                    if (remainingText.startsWith("triệu") || remainingText.startsWith("trieu")) {
-                        // Nếu đơn vị là triệu, nhân với 1000000
-                        try {
-                            return Integer.parseInt(priceStr.toString()) * 1000000;
-                        } catch (NumberFormatException e) {
-                            return 0;
-                        }
-                    } else if (remainingText.startsWith("nghìn") ||
-                            remainingText.startsWith("nghin") ||
-                            remainingText.startsWith("k")) {
-                        // Nếu đơn vị là nghìn, nhân với 1000
-                        try {
-                            return Integer.parseInt(priceStr.toString()) * 1000;
-                        } catch (NumberFormatException e) {
-                            return 0;
-                        }
-                    } else {
-                        // Nếu không có đơn vị rõ ràng, giả định là giá trị đồng
-                        break;
-                    }
-                }
+    /**
+     * Bảng điểm theo số thứ tự sản phẩm, ghi nhớ các sản phẩm đã có điểm
+     * để không phải duyệt lại toàn bộ mảng điểm.
+     *
+     * Mảng điểm được dùng lại giữa các truy vấn của cùng một luồng thay vì cấp phát mảng
+     * cỡ danh mục mỗi lần; release() chỉ xóa các ô đã chạm (theo danh sách ứng viên).
+     */
+    private static class ScoreBoard {
+        // Mảng điểm rảnh của luồng; bị lấy ra khi đang dùng nên bảng lồng nhau không dùng chung
+        private static final ThreadLocal<float[]> FREE_SCORES = new ThreadLocal<>();
+
+        private final int base;
+        private final float[] scores;
+        private final FixedBitSet filter;
+        private int[] candidates = new int[16];
+        private int candidateCount;
+
+        /**
+         * Bảng điểm cho các sản phẩm có số thứ tự trong [from, to)
+         */
+        ScoreBoard(int from, int to, FixedBitSet filter) {
+            float[] free = FREE_SCORES.get();
+            FREE_SCORES.remove();
+            this.base = from;
+            this.scores = free != null && free.length >= to - from ? free : new float[to - from];
+            this.filter = filter;
+        }
+
+        /**
+         * Xóa các ô đã dùng và trả mảng điểm cho luồng; không dùng bảng sau khi gọi
+         */
+        void release() {
+            for (int i = 0; i < candidateCount; i++) {
+                scores[candidates[i] - base] = 0;
             }
+            candidateCount = 0;
+            FREE_SCORES.set(scores);
+        }
 
-            // Trả về giá trị tìm được
-            if (priceStr.length() > 0) {
-                try {
-                    return Integer.parseInt(priceStr.toString());
-                } catch (NumberFormatException e) {
-                    return 0;
+        void add(int ordinal, float points) {
+            if (filter != null && !filter.get(ordinal)) {
+                return;
+            }
+            int slot = ordinal - base;
+            if (scores[slot] == 0) {
+                if (candidateCount == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, candidateCount * 2);
                 }
+                candidates[candidateCount++] = ordinal;
+            }
+            scores[slot] += points;
+        }
+
+        void collectInto(TopKCollector collector) {
+            for (int i = 0; i < candidateCount; i++) {
+                collector.collect(candidates[i], scores[candidates[i] - base]);
             }
         }
 
-        return 0;
+        FixedBitSet toBitSet(int length) {
+            FixedBitSet bits = new FixedBitSet(length);
+            for (int i = 0; i < candidateCount; i++) {
+                bits.set(candidates[i]);
+            }
+            return bits;
+        }
+    }
+
+    /**
+     * Từ khóa của truy vấn cùng posting list, IDF và trọng số đã tính sẵn
+     */
+    private static class QueryTerm {
+        private final InvertedIndex.Postings postings;
+        private final float idf;
+        // 1 với từ khớp chính xác, nhỏ hơn 1 với từ gần đúng (sửa lỗi chính tả)
+        private final float weight;
+        // Từ khóa có được dùng để tạo ứng viên hay chỉ cộng điểm cho ứng viên đã có
+        private boolean essential;
+
+        QueryTerm(InvertedIndex.Postings postings, float idf, float weight, boolean common) {
+            this.postings = postings;
+            this.idf = idf;
+            this.weight = weight;
+            this.essential = !common;
+        }
     }
 
     /**
      * Lấy tất cả sản phẩm
      * 
-     * @return Danh sách tất cả sản phẩm
+     * @return Danh sách tất cả sản phẩm (không thể thay đổi)
      */
     public List<Product> getAllProducts() {
-        return new ArrayList<>(products);
+        return snapshot.get().getProducts();
     }
 
     /**
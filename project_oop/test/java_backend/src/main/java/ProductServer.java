@@ -1,6 +1,14 @@
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
@@ -9,6 +17,12 @@ import com.sun.net.httpserver.HttpServer;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.json.*;
 
 /**
@@ -18,8 +32,37 @@ public class ProductServer {
     private static final int PORT = 8080;
     private ProductSearchService searchService;
 
+    // Bộ nhớ đệm response tìm kiếm (đã tuần tự hóa), xóa khi danh mục được tải lại
+    private QueryCache<byte[]> searchCache;
+
+    // Response toàn bộ danh mục theo view định sẵn. Khi phiên bản đổi, response mới được dựng ở luồng nền
+    // trong lúc request vẫn nhận response của phiên bản trước
+    private final Map<String, CatalogResponse> catalogResponses = new ConcurrentHashMap<>();
+    private final Object catalogResponseLock = new Object();
+    private final ExecutorService catalogResponseBuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-response-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean catalogResponseRebuildPending = new AtomicBoolean();
+
+    // Nén response theo Accept-Encoding
+    private final ResponseCompressor compressor = new ResponseCompressor(
+            Integer.getInteger("compression.level", 6),
+            Integer.getInteger("compression.minBytes", 1024));
+
     public ProductServer() {
         searchService = new ProductSearchService();
+        searchCache = new QueryCache<>(
+                Integer.getInteger("search.cache.maxEntries", 1000),
+                Long.getLong("search.cache.ttlSeconds", 60L) * 1000);
+        // Tải lại: xóa hết; cập nhật: chỉ xóa kết quả của truy vấn có từ khóa trong sản phẩm thay đổi
+        searchService.addReloadListener(searchCache::invalidateAll);
+        searchService.addUpdateListener(update -> searchCache.invalidate(update.getChangedTerms()));
+        // Từ vựng sửa lỗi mới: xóa kết quả của truy vấn có từ khóa ngoài từ vựng
+        searchService.addSuggestionsListener(() -> searchCache.invalidate(Collections.emptySet()));
+        searchService.addReloadListener(this::rebuildCatalogResponses);
+        searchService.addUpdateListener(update -> rebuildCatalogResponses());
     }
 
     /**
@@ -30,15 +73,27 @@ public class ProductServer {
             // Tải dữ liệu sản phẩm
             searchService.loadProductsFromJson(jsonFilePath);
 
+            // Tự động tải lại khi file danh mục thay đổi
+            if (Boolean.parseBoolean(System.getProperty("catalog.watch", "true"))) {
+                new CatalogWatcher(Paths.get(jsonFilePath), searchService,
+                        Long.getLong("catalog.watch.quietMillis", 500L)).start();
+            }
+
             // Tạo HTTP server
             HttpServer server = HttpServer.create(new InetSocketAddress(PORT), 0);
 
             // Đăng ký các endpoint API
             server.createContext("/api/products", new ProductsHandler());
             server.createContext("/api/search", new SearchHandler());
+            server.createContext("/api/suggest", new SuggestHandler());
+            server.createContext("/api/facets", new FacetsHandler());
+            server.createContext("/api/stats", new StatsHandler());
+            server.createContext("/api/admin/reload", new ReloadHandler());
 
-            // Thiết lập executor
-            server.setExecutor(null);
+            // Thiết lập executor: nhiều luồng xử lý request thay vì luồng mặc định duy nhất
+            int handlerThreads = Integer.getInteger("server.threads",
+                    Runtime.getRuntime().availableProcessors() * 2);
+            server.setExecutor(Executors.newFixedThreadPool(handlerThreads));
 
             // Bắt đầu server
             server.start();
@@ -46,7 +101,16 @@ public class ProductServer {
             System.out.println("Server đang chạy ở cổng " + PORT);
             System.out.println("API endpoints:");
             System.out.println("  - http://localhost:" + PORT + "/api/products - Lấy tất cả sản phẩm");
-            System.out.println("  - http://localhost:" + PORT + "/api/search?q={query} - Tìm kiếm sản phẩm");
+            System.out.println("  - http://localhost:" + PORT + "/api/products/{id} (PUT/DELETE) - Thêm, sửa hoặc xóa sản phẩm");
+            System.out.println("  - http://localhost:" + PORT + "/api/products/bulk (POST, NDJSON) - Cập nhật nhiều sản phẩm");
+            System.out.println("  - http://localhost:" + PORT + "/api/search?q={query}&limit={n}&offset={m} - Tìm kiếm sản phẩm");
+            System.out.println("  - http://localhost:" + PORT + "/api/suggest?q={prefix} - Gợi ý tự động hoàn thành");
+            System.out.println("  - http://localhost:" + PORT + "/api/facets?q={query} - Đếm sản phẩm theo thuộc tính");
+            System.out.println("  - http://localhost:" + PORT + "/api/stats - Thống kê bộ nhớ đệm");
+            System.out.println("  - http://localhost:" + PORT + "/api/admin/reload (POST) - Tải lại danh mục");
+            if (System.getProperty("admin.token", "").isEmpty()) {
+                System.out.println("Chưa đặt -Dadmin.token: các thao tác ghi (PUT/DELETE/bulk/reload) bị từ chối");
+            }
 
         } catch (IOException e) {
             System.err.println("Lỗi khi khởi động server: " + e.getMessage());
@@ -56,30 +120,108 @@ public class ProductServer {
     }
 
     /**
-     * Handler xử lý endpoint trả về tất cả sản phẩm
+     * Handler xử lý endpoint sản phẩm:
+     * GET /api/products trả về tất cả sản phẩm (chọn trường bằng fields= hoặc view=card),
+     * PUT/DELETE /api/products/{id} thêm/sửa/xóa một sản phẩm,
+     * POST /api/products/bulk áp dụng nhiều thay đổi (NDJSON, mỗi dòng một bản ghi có "id")
      */
     private class ProductsHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
-            if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            String id = path.length() > "/api/products/".length()
+                    ? java.net.URLDecoder.decode(path.substring("/api/products/".length()), "UTF-8")
+                    : null;
+
+            if (id == null && method.equalsIgnoreCase("GET")) {
+                handleList(exchange);
+                return;
+            }
+            boolean allowed = id != null && ("bulk".equals(id)
+                    ? method.equalsIgnoreCase("POST")
+                    : method.equalsIgnoreCase("PUT") || method.equalsIgnoreCase("DELETE"));
+            if (!allowed) {
                 exchange.sendResponseHeaders(405, 0); // Method Not Allowed
                 exchange.getResponseBody().close();
                 return;
             }
+            if (!isAuthorized(exchange)) {
+                exchange.sendResponseHeaders(403, 0); // Forbidden
+                exchange.getResponseBody().close();
+                return;
+            }
 
             try {
-                List<Product> allProducts = searchService.getAllProducts();
-                JSONArray jsonResponse = convertProductsToJson(allProducts);
+                byte[] responseBytes;
+                if ("bulk".equals(id)) {
+                    responseBytes = handleBulk(exchange).toString().getBytes(StandardCharsets.UTF_8);
+                } else if (method.equalsIgnoreCase("DELETE")) {
+                    if (searchService.getSnapshot().productById(id) == null) {
+                        exchange.sendResponseHeaders(404, -1); // Not Found
+                        return;
+                    }
+                    searchService.updateProducts(Collections.singletonList(
+                            new JSONObject().put("id", id).put("op", "delete")));
+                    exchange.sendResponseHeaders(204, -1); // No Content
+                    return;
+                } else {
+                    JSONObject record = new JSONObject(readBody(exchange));
+                    // PUT luôn là thêm/sửa; xóa phải dùng DELETE
+                    record.remove("op");
+                    record.put("id", id);
+                    CatalogSnapshot catalog = searchService.updateProducts(Collections.singletonList(record))
+                            .getSnapshot();
+                    responseBytes = productJson(catalog.productById(id));
+                }
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                compressor.send(exchange, 200, responseBytes);
+
+            } catch (JSONException | IllegalArgumentException e) {
+                // Dữ liệu gửi lên không hợp lệ
+                String errorMessage = "{\"error\": \"" + e.getMessage() + "\"}";
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                byte[] responseBytes = errorMessage.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(400, responseBytes.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(responseBytes);
+                }
+
+            } catch (Exception e) {
+                String errorMessage = "{\"error\": \"" + e.getMessage() + "\"}";
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                byte[] responseBytes = errorMessage.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(500, responseBytes.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(responseBytes);
+                }
+                e.printStackTrace();
+            }
+        }
+
+        private void handleList(HttpExchange exchange) throws IOException {
+            try {
+                Map<String, String> params = parseQueryParameters(exchange.getRequestURI().getRawQuery());
+                ProductView view = ProductView.parse(params.get("view"), params.get("fields"));
 
                 // Thiết lập response headers
                 exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
                 exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
 
-                // Gửi response
-                byte[] responseBytes = jsonResponse.toString().getBytes(StandardCharsets.UTF_8);
-                exchange.sendResponseHeaders(200, responseBytes.length);
+                // Gửi response dựng sẵn (hoặc 304 nếu client đã có phiên bản này)
+                sendCatalog(exchange, view);
+
+            } catch (ResponseAbortedException e) {
+                e.printStackTrace();
+                throw e;
 
-                // Ghi dữ liệu
+            } catch (IllegalArgumentException e) {
+                // Tên trường hoặc view không hợp lệ
+                String errorMessage = "{\"error\": \"" + e.getMessage() + "\"}";
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                byte[] responseBytes = errorMessage.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(400, responseBytes.length);
                 try (OutputStream os = exchange.getResponseBody()) {
                     os.write(responseBytes);
                 }
@@ -95,6 +237,32 @@ public class ProductServer {
                 e.printStackTrace();
             }
         }
+
+        /**
+         * Đọc các bản ghi NDJSON và áp dụng tất cả trong một lần cập nhật
+         */
+        private JSONObject handleBulk(HttpExchange exchange) throws IOException {
+            List<JSONObject> records = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    records.add(new JSONObject(line));
+                }
+            }
+
+            CatalogUpdate update = searchService.updateProducts(records);
+
+            JSONObject jsonResponse = new JSONObject();
+            jsonResponse.put("upserted", update.getUpsertedCount());
+            jsonResponse.put("deleted", update.getDeletedCount());
+            jsonResponse.put("version", update.getSnapshot().getVersion());
+            jsonResponse.put("products", update.getSnapshot().getProductCount());
+            return jsonResponse;
+        }
     }
 
     /**
@@ -111,29 +279,152 @@ public class ProductServer {
 
             try {
                 // Lấy tham số truy vấn
-                String query = exchange.getRequestURI().getQuery();
-                String searchQuery = "";
+                Map<String, String> params = parseQueryParameters(exchange.getRequestURI().getRawQuery());
+                String searchQuery = params.getOrDefault("q", "");
 
-                if (query != null && query.startsWith("q=")) {
-                    searchQuery = java.net.URLDecoder.decode(query.substring(2), "UTF-8");
-                }
+                int offset = parseIntParameter(params.get("offset"), 0);
+                int limit = parseIntParameter(params.get("limit"), ProductSearchService.DEFAULT_RESULT_LIMIT);
+                QueryPlan plan = parseQueryPlan(searchQuery, params);
+
+                boolean withFacets = "true".equalsIgnoreCase(params.get("facets"));
+                ProductView view = ProductView.parse(params.get("view"), params.get("fields"));
 
-                // Thực hiện tìm kiếm
-                List<Product> searchResults = searchService.searchProducts(searchQuery);
-                JSONArray jsonResponse = convertProductsToJson(searchResults);
+                // Truy vấn rỗng không có tham số phân trang/lọc: trả về toàn bộ sản phẩm
+                boolean listAll = plan.isEmpty() && !plan.hasPriceFilter() && !plan.hasAttributeFilters()
+                        && !withFacets && !params.containsKey("limit") && !params.containsKey("offset");
 
                 // Thiết lập response headers
                 exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
                 exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
 
+                if (listAll) {
+                    sendCatalog(exchange, view);
+                    return;
+                }
+
+                // Thử bộ nhớ đệm trước, bỏ qua cả chấm điểm lẫn tuần tự hóa khi trúng
+                String cacheKey = plan.getCacheKey() + "|" + offset + "|" + limit + "|" + withFacets
+                        + "|" + view.getKey();
+                byte[] responseBytes = searchCache.get(cacheKey);
+                if (responseBytes == null) {
+                    long generation = searchCache.getGeneration();
+                    byte[] results = convertProductsToJson(searchService.searchProducts(plan, offset, limit), view);
+                    if (withFacets) {
+                        // Kèm số lượng theo facet: response là object thay vì mảng
+                        ByteArrayOutputStream jsonResponse = new ByteArrayOutputStream(results.length + 1024);
+                        jsonResponse.write("{\"results\":".getBytes(StandardCharsets.UTF_8));
+                        jsonResponse.write(results);
+                        jsonResponse.write(",\"facets\":".getBytes(StandardCharsets.UTF_8));
+                        jsonResponse.write(convertFacetsToJson(searchService.countFacets(plan)).toString()
+                                .getBytes(StandardCharsets.UTF_8));
+                        jsonResponse.write('}');
+                        responseBytes = jsonResponse.toByteArray();
+                    } else {
+                        responseBytes = results;
+                    }
+                    searchCache.put(cacheKey, responseBytes, generation, searchService.getDependentTerms(plan));
+                }
+
                 // Gửi response
+                compressor.send(exchange, 200, responseBytes);
+
+            } catch (ResponseAbortedException e) {
+                e.printStackTrace();
+                throw e;
+
+            } catch (IllegalArgumentException e) {
+                // Tên trường hoặc view không hợp lệ
+                String errorMessage = "{\"error\": \"" + e.getMessage() + "\"}";
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                byte[] responseBytes = errorMessage.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(400, responseBytes.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(responseBytes);
+                }
+
+            } catch (Exception e) {
+                String errorMessage = "{\"error\": \"" + e.getMessage() + "\"}";
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                byte[] responseBytes = errorMessage.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(500, responseBytes.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(responseBytes);
+                }
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Handler xử lý endpoint gợi ý tự động hoàn thành
+     */
+    private class SuggestHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+                exchange.sendResponseHeaders(405, 0); // Method Not Allowed
+                exchange.getResponseBody().close();
+                return;
+            }
+
+            try {
+                Map<String, String> params = parseQueryParameters(exchange.getRequestURI().getRawQuery());
+                int limit = parseIntParameter(params.get("limit"), PrefixSuggester.MAX_SUGGESTIONS);
+
+                JSONArray jsonResponse = new JSONArray();
+                for (PrefixSuggester.Suggestion suggestion : searchService.suggest(params.getOrDefault("q", ""), limit)) {
+                    JSONObject jsonSuggestion = new JSONObject();
+                    jsonSuggestion.put("text", suggestion.getText());
+                    jsonSuggestion.put("count", suggestion.getWeight());
+                    jsonResponse.put(jsonSuggestion);
+                }
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
                 byte[] responseBytes = jsonResponse.toString().getBytes(StandardCharsets.UTF_8);
-                exchange.sendResponseHeaders(200, responseBytes.length);
+                compressor.send(exchange, 200, responseBytes);
 
-                // Ghi dữ liệu
+            } catch (Exception e) {
+                String errorMessage = "{\"error\": \"" + e.getMessage() + "\"}";
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                byte[] responseBytes = errorMessage.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(500, responseBytes.length);
                 try (OutputStream os = exchange.getResponseBody()) {
                     os.write(responseBytes);
                 }
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Handler xử lý endpoint đếm sản phẩm theo facet (xuất xứ, loại, số người, màn hình, năm, khoảng giá)
+     */
+    private class FacetsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+                exchange.sendResponseHeaders(405, 0); // Method Not Allowed
+                exchange.getResponseBody().close();
+                return;
+            }
+
+            try {
+                Map<String, String> params = parseQueryParameters(exchange.getRequestURI().getRawQuery());
+                QueryPlan plan = parseQueryPlan(params.getOrDefault("q", ""), params);
+
+                String cacheKey = "facets|" + plan.getCacheKey();
+                byte[] responseBytes = searchCache.get(cacheKey);
+                if (responseBytes == null) {
+                    long generation = searchCache.getGeneration();
+                    responseBytes = convertFacetsToJson(searchService.countFacets(plan))
+                            .toString().getBytes(StandardCharsets.UTF_8);
+                    searchCache.put(cacheKey, responseBytes, generation, searchService.getDependentTerms(plan));
+                }
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+                compressor.send(exchange, 200, responseBytes);
 
             } catch (Exception e) {
                 String errorMessage = "{\"error\": \"" + e.getMessage() + "\"}";
@@ -149,38 +440,228 @@ public class ProductServer {
     }
 
     /**
-     * Chuyển đổi danh sách sản phẩm thành JSON
-     * 
-     * @param products Danh sách sản phẩm
-     * @return JSONArray chứa dữ liệu sản phẩm
+     * Handler trả về thống kê bộ nhớ đệm tìm kiếm
+     */
+    private class StatsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+                exchange.sendResponseHeaders(405, 0); // Method Not Allowed
+                exchange.getResponseBody().close();
+                return;
+            }
+
+            JSONObject cacheStats = new JSONObject();
+            cacheStats.put("size", searchCache.size());
+            cacheStats.put("hits", searchCache.getHits());
+            cacheStats.put("misses", searchCache.getMisses());
+            cacheStats.put("evictions", searchCache.getEvictions());
+
+            CatalogSnapshot catalog = searchService.getSnapshot();
+            JSONObject catalogStats = new JSONObject();
+            catalogStats.put("version", catalog.getVersion());
+            catalogStats.put("products", catalog.getProductCount());
+            catalogStats.put("loaded_at", catalog.getLoadedAt());
+            catalogStats.put("text_bytes", catalog.getStore().getSizeInBytes());
+            catalogStats.put("text_bytes_as_strings", catalog.getStore().getStringSizeInBytes());
+
+            JSONObject jsonResponse = new JSONObject();
+            jsonResponse.put("search_cache", cacheStats);
+            jsonResponse.put("catalog", catalogStats);
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            byte[] responseBytes = jsonResponse.toString().getBytes(StandardCharsets.UTF_8);
+            compressor.send(exchange, 200, responseBytes);
+        }
+    }
+
+    /**
+     * Phân tích chuỗi tham số URL (chưa giải mã) thành bảng tên -> giá trị
+     *
+     * @param rawQuery Chuỗi tham số, ví dụ "q=tivi&limit=20"
+     * @return Bảng tham số đã giải mã
+     */
+    private static Map<String, String> parseQueryParameters(String rawQuery) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            params.putIfAbsent(
+                    java.net.URLDecoder.decode(name, "UTF-8"),
+                    java.net.URLDecoder.decode(value, "UTF-8"));
+        }
+        return params;
+    }
+
+    /**
+     * Handler tải lại danh mục theo yêu cầu quản trị
+     */
+    private class ReloadHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+                exchange.sendResponseHeaders(405, 0); // Method Not Allowed
+                exchange.getResponseBody().close();
+                return;
+            }
+
+            if (!isAuthorized(exchange)) {
+                exchange.sendResponseHeaders(403, 0); // Forbidden
+                exchange.getResponseBody().close();
+                return;
+            }
+
+            try {
+                long start = System.nanoTime();
+                CatalogSnapshot catalog = searchService.reload();
+
+                JSONObject jsonResponse = new JSONObject();
+                jsonResponse.put("version", catalog.getVersion());
+                jsonResponse.put("products", catalog.getProductCount());
+                jsonResponse.put("duration_ms", (System.nanoTime() - start) / 1_000_000);
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                byte[] responseBytes = jsonResponse.toString().getBytes(StandardCharsets.UTF_8);
+                compressor.send(exchange, 200, responseBytes);
+
+            } catch (Exception e) {
+                String errorMessage = "{\"error\": \"" + e.getMessage() + "\"}";
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                byte[] responseBytes = errorMessage.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(500, responseBytes.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(responseBytes);
+                }
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Kiểm tra quyền cho các thao tác ghi: request phải gửi header X-Admin-Token khớp
+     * system property admin.token. Nếu không đặt admin.token thì mọi thao tác ghi bị từ chối.
+     */
+    private static boolean isAuthorized(HttpExchange exchange) {
+        String adminToken = System.getProperty("admin.token");
+        String requestToken = exchange.getRequestHeaders().getFirst("X-Admin-Token");
+        if (adminToken == null || adminToken.isEmpty() || requestToken == null) {
+            return false;
+        }
+        // So sánh thời gian không đổi để không lộ token qua thời gian phản hồi
+        return MessageDigest.isEqual(adminToken.getBytes(StandardCharsets.UTF_8),
+                requestToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Đọc toàn bộ nội dung request dạng UTF-8
      */
-    private JSONArray convertProductsToJson(List<Product> products) throws JSONException {
-        JSONArray jsonArray = new JSONArray();
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream is = exchange.getRequestBody()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = is.read(chunk)) != -1) {
+                buffer.write(chunk, 0, read);
+            }
+            return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Tạo kế hoạch truy vấn từ câu truy vấn và các tham số lọc (minPrice, maxPrice, type, origin, ...)
+     */
+    private static QueryPlan parseQueryPlan(String query, Map<String, String> params) {
+        QueryPlan plan = QueryPlan.parse(query).withPriceFilter(
+                parseLongParameter(params.get("minPrice"), 0),
+                parseLongParameter(params.get("maxPrice"), Long.MAX_VALUE));
+        for (String attribute : AttributeFilterIndex.ATTRIBUTES) {
+            plan = plan.withAttributeFilter(attribute, params.get(attribute));
+        }
+        return plan;
+    }
 
-        for (Product product : products) {
-            JSONObject jsonProduct = new JSONObject();
+    /**
+     * Đọc tham số số nguyên, trả về giá trị mặc định nếu thiếu hoặc không hợp lệ
+     */
+    private static int parseIntParameter(String value, int defaultValue) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
 
-            // Thêm các thông tin cơ bản
+    /**
+     * Đọc tham số số nguyên dài, trả về giá trị mặc định nếu thiếu hoặc không hợp lệ
+     */
+    private static long parseLongParameter(String value, long defaultValue) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Chuyển đổi một sản phẩm thành JSON, chỉ gồm các trường của view
+     */
+    private static JSONObject convertProductToJson(Product product, ProductView view) throws JSONException {
+        JSONObject jsonProduct = new JSONObject();
+
+        // Thêm các thông tin cơ bản
+        if (view.includes(ProductView.ID)) {
+            jsonProduct.put("id", product.getId());
+        }
+        if (view.includes(ProductView.NAME)) {
             jsonProduct.put("Tên sản phẩm", product.getName());
+        }
+        if (view.includes(ProductView.IMAGE)) {
             jsonProduct.put("Ảnh", product.getImage());
+        }
+        if (view.includes(ProductView.PRICE)) {
             jsonProduct.put("Giá", product.getPrice());
+        }
+        if (view.includes(ProductView.RATING)) {
             jsonProduct.put("Điểm đánh giá trung bình", product.getRating());
+        }
+        if (view.includes(ProductView.RATING_COUNT)) {
             jsonProduct.put("Số lượt đánh giá", product.getRatingCount());
+        }
+        if (view.includes(ProductView.DESCRIPTION)) {
             jsonProduct.put("Mô tả sản phẩm", product.getDescription());
+        }
 
-            // Thêm giá cũ nếu có
-            if (product.getOldPrice() != null && !product.getOldPrice().isEmpty()) {
-                jsonProduct.put("Giá cũ", product.getOldPrice());
-            }
+        // Thêm giá cũ nếu có
+        if (view.includes(ProductView.OLD_PRICE)
+                && product.getOldPrice() != null && !product.getOldPrice().isEmpty()) {
+            jsonProduct.put("Giá cũ", product.getOldPrice());
+        }
 
-            // Thêm nguồn dữ liệu nếu có
-            if (product.getSource() != null && !product.getSource().isEmpty()) {
-                jsonProduct.put("Nguồn dữ liệu", product.getSource());
-            }
+        // Thêm nguồn dữ liệu nếu có
+        if (view.includes(ProductView.SOURCE)
+                && product.getSource() != null && !product.getSource().isEmpty()) {
+            jsonProduct.put("Nguồn dữ liệu", product.getSource());
+        }
 
-            // Thêm các thông số kỹ thuật
+        // Thêm các thông số kỹ thuật
+        if (view.includes(ProductView.SPECIFICATIONS)) {
             JSONArray specsArray = new JSONArray();
-            Specification[] specs = product.extractSpecifications();
+            Specification[] specs = product.getSpecifications();
 
             for (Specification spec : specs) {
                 JSONObject jsonSpec = new JSONObject();
@@ -190,18 +671,229 @@ public class ProductServer {
             }
 
             jsonProduct.put("specifications", specsArray);
+        }
 
-            // Thêm thông tin key info tóm tắt
-            jsonProduct.put("key_info", product.extractKeyInfo());
+        // Thêm thông tin key info tóm tắt
+        if (view.includes(ProductView.KEY_INFO)) {
+            jsonProduct.put("key_info", product.getKeyInfo());
+        }
 
-            // Thêm trạng thái nổi bật
+        // Thêm trạng thái nổi bật
+        if (view.includes(ProductView.FEATURED)) {
             jsonProduct.put("is_featured", product.isFeatured());
+        }
+
+        return jsonProduct;
+    }
+
+    /**
+     * JSON UTF-8 đầy đủ của một sản phẩm; tuần tự hóa lần đầu rồi dùng lại cho mọi response sau
+     */
+    private static byte[] productJson(Product product) throws JSONException {
+        byte[] json = product.getCachedJson();
+        if (json == null) {
+            json = convertProductToJson(product, ProductView.FULL).toString().getBytes(StandardCharsets.UTF_8);
+            product.setCachedJson(json);
+        }
+        return json;
+    }
 
-            // Thêm sản phẩm vào mảng JSON
-            jsonArray.put(jsonProduct);
+    /**
+     * JSON UTF-8 của một sản phẩm theo view; chỉ view đầy đủ được lưu lại trong sản phẩm
+     */
+    private static byte[] productJson(Product product, ProductView view) throws JSONException {
+        if (view.isFull()) {
+            return productJson(product);
         }
+        return convertProductToJson(product, view).toString().getBytes(StandardCharsets.UTF_8);
+    }
 
-        return jsonArray;
+    /**
+     * Ghép mảng JSON từ JSON đã tuần tự hóa của từng sản phẩm (chỉ sao chép byte)
+     *
+     * @param products Danh sách sản phẩm
+     * @param view     Tập trường của mỗi sản phẩm
+     * @return Mảng JSON dạng UTF-8
+     */
+    static byte[] convertProductsToJson(List<Product> products, ProductView view) throws JSONException {
+        byte[][] fragments = new byte[products.size()][];
+        int length = 2 + Math.max(0, fragments.length - 1);
+        for (int i = 0; i < fragments.length; i++) {
+            fragments[i] = productJson(products.get(i), view);
+            length += fragments[i].length;
+        }
+
+        byte[] json = new byte[length];
+        int position = 0;
+        json[position++] = '[';
+        for (int i = 0; i < fragments.length; i++) {
+            if (i > 0) {
+                json[position++] = ',';
+            }
+            System.arraycopy(fragments[i], 0, json, position, fragments[i].length);
+            position += fragments[i].length;
+        }
+        json[position] = ']';
+        return json;
+    }
+
+    /**
+     * Gửi mảng JSON sản phẩm dạng luồng (chunked): mỗi sản phẩm được tuần tự hóa rồi ghi ngay,
+     * bộ nhớ mỗi request chỉ gồm JSON của một sản phẩm và bộ đệm của luồng,
+     * byte đầu tiên được gửi trước khi tuần tự hóa xong.
+     *
+     * @throws ResponseAbortedException Nếu lỗi sau khi header đã gửi; nơi gọi không được gửi response lỗi
+     *                                  mà phải ném tiếp để server cắt kết nối
+     */
+    private void sendProducts(HttpExchange exchange, List<Product> products, ProductView view) throws IOException {
+        ResponseCompressor.ResponseStream os = compressor.openStream(exchange, 200);
+        try {
+            os.write('[');
+            for (int i = 0; i < products.size(); i++) {
+                if (i > 0) {
+                    os.write(',');
+                }
+                os.write(productJson(products.get(i), view));
+            }
+            os.write(']');
+        } catch (IOException | RuntimeException e) {
+            // Header 200 đã gửi nên không đổi được sang response lỗi. Không đóng luồng (đóng sẽ ghi
+            // chunk kết thúc và client nhận một mảng JSON cụt như response hợp lệ)
+            os.abort();
+            throw new ResponseAbortedException(e);
+        }
+        os.close();
+    }
+
+    /**
+     * Lỗi khi response đã bắt đầu gửi dạng luồng. Handler ném tiếp ra ngoài, HttpServer đóng kết nối
+     * mà không kết thúc response, client thấy response bị cắt ngang.
+     */
+    private static class ResponseAbortedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ResponseAbortedException(Throwable cause) {
+            super("Response bị hủy khi đang gửi", cause);
+        }
+    }
+
+    /**
+     * Response toàn bộ danh mục theo view định sẵn. Nếu danh mục đã đổi mà response mới chưa dựng xong
+     * thì trả response của phiên bản trước; chỉ lần đầu view được yêu cầu mới dựng ngay trong request
+     * (chỉ một luồng dựng, các luồng khác chờ rồi dùng chung kết quả).
+     */
+    private CatalogResponse getCatalogResponse(ProductView view) {
+        CatalogResponse response = catalogResponses.get(view.getKey());
+        if (response != null) {
+            if (response.getVersion() != searchService.getSnapshot().getVersion()) {
+                rebuildCatalogResponses();
+            }
+            return response;
+        }
+        synchronized (catalogResponseLock) {
+            response = catalogResponses.get(view.getKey());
+            if (response == null) {
+                response = buildCatalogResponse(searchService.getSnapshot(), view);
+                catalogResponses.put(view.getKey(), response);
+            }
+            return response;
+        }
+    }
+
+    private CatalogResponse buildCatalogResponse(CatalogSnapshot catalog, ProductView view) {
+        return new CatalogResponse(catalog, convertProductsToJson(catalog.getProducts(), view), compressor);
+    }
+
+    /**
+     * Dựng lại ở luồng nền các response đã từng được yêu cầu cho ảnh chụp hiện tại. Nhiều lần cập nhật
+     * liên tiếp trong lúc đang dựng chỉ gây thêm một lần dựng, theo ảnh chụp mới nhất.
+     */
+    private void rebuildCatalogResponses() {
+        if (!catalogResponseRebuildPending.compareAndSet(false, true)) {
+            return;
+        }
+        catalogResponseBuilder.execute(() -> {
+            catalogResponseRebuildPending.set(false);
+            CatalogSnapshot catalog = searchService.getSnapshot();
+            for (String key : catalogResponses.keySet()) {
+                if (catalogResponses.get(key).getVersion() == catalog.getVersion()) {
+                    continue;
+                }
+                try {
+                    CatalogResponse response = buildCatalogResponse(catalog, ProductView.parse(key, null));
+                    synchronized (catalogResponseLock) {
+                        // Không thay bằng response cũ hơn cái đang có
+                        if (catalogResponses.get(key).getVersion() < response.getVersion()) {
+                            catalogResponses.put(key, response);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Gửi toàn bộ danh mục: 304 nếu If-None-Match khớp ETag, bản nén sẵn nếu client chấp nhận.
+     * View tự chọn trường không được lưu sẵn mà tuần tự hóa và gửi dạng luồng theo từng request.
+     */
+    private void sendCatalog(HttpExchange exchange, ProductView view) throws IOException {
+        CatalogSnapshot catalog = searchService.getSnapshot();
+        CatalogResponse response = view.isPredefined() ? getCatalogResponse(view) : null;
+        String encoding = ResponseCompressor.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        // ETag theo cách nén client đã chọn (kể cả khi response nhỏ được gửi không nén): cùng request
+        // luôn cho cùng ETag, và một ETag không bao giờ ứng với hai chuỗi byte khác nhau.
+        // Response dựng sẵn dùng ETag của phiên bản đã dựng nó
+        String etag = response != null ? response.etag(view, encoding) : CatalogResponse.etag(catalog, view, encoding);
+        exchange.getResponseHeaders().set("ETag", etag);
+        // Client luôn hỏi lại server, nhưng chỉ tải lại khi danh mục đã đổi
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+
+        if (CatalogResponse.matches(etag, exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1); // Not Modified
+            exchange.close();
+            return;
+        }
+        if (response == null) {
+            sendProducts(exchange, catalog.getProducts(), view);
+            return;
+        }
+
+        if (encoding == null || response.getJson().length < compressor.getMinBytes()) {
+            exchange.sendResponseHeaders(200, response.getJson().length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response.getJson());
+            }
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        exchange.sendResponseHeaders(200, response.getCompressed().length(encoding));
+        try (OutputStream os = exchange.getResponseBody()) {
+            response.getCompressed().writeTo(os, encoding);
+        }
+    }
+
+    /**
+     * Chuyển đổi số lượng theo facet thành JSON
+     *
+     * @param facets Tên facet -> (giá trị -> số lượng)
+     * @return JSONObject, mỗi facet là mảng {value, count} giữ thứ tự số lượng giảm dần
+     */
+    private JSONObject convertFacetsToJson(Map<String, Map<String, Integer>> facets) throws JSONException {
+        JSONObject jsonFacets = new JSONObject();
+        for (Map.Entry<String, Map<String, Integer>> facet : facets.entrySet()) {
+            JSONArray values = new JSONArray();
+            for (Map.Entry<String, Integer> value : facet.getValue().entrySet()) {
+                JSONObject jsonValue = new JSONObject();
+                jsonValue.put("value", value.getKey());
+                jsonValue.put("count", value.getValue());
+                values.put(jsonValue);
+            }
+            jsonFacets.put(facet.getKey(), values);
+        }
+        return jsonFacets;
     }
 
     public static void main(String[] args) {
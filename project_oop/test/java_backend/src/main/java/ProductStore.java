@@ -0,0 +1,198 @@
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Vùng lưu trữ dùng chung cho dữ liệu văn bản của các sản phẩm trong một lần tải danh mục.
+ * - Trường ít giá trị khác nhau (nguồn, loại sản phẩm, điểm/lượt đánh giá) và các từ khóa
+ *   đã phân tích được mã hóa thành số nguyên qua từ điển, mỗi giá trị chỉ lưu một lần.
+ * - Văn bản còn lại (tên, mô tả, ảnh, giá) được ghi nối tiếp dạng UTF-8 vào các khối byte,
+ *   sản phẩm chỉ giữ địa chỉ.
+ *
+ * Chỉ ghi thêm, không sửa dữ liệu đã ghi: request đọc không cần khóa. Khi sửa sản phẩm, chỉ
+ * trường bị đổi được ghi thêm (trường khác dùng lại địa chỉ cũ); giá trị cũ của trường bị đổi
+ * và văn bản của sản phẩm bị xóa vẫn nằm trong vùng lưu trữ cho đến lần tải lại toàn bộ tiếp theo
+ * (khi đó vùng lưu trữ mới được tạo và vùng cũ được thu hồi cùng ảnh chụp cũ).
+ */
+public class ProductStore {
+    // Địa chỉ của giá trị null
+    public static final long NULL_ADDRESS = -1;
+
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private final Dictionary fields = new Dictionary();
+    private final Dictionary tokens = new Dictionary();
+
+    // Các khối UTF-8; mảng được thay mới khi thêm khối để request đọc luôn thấy mảng đầy đủ
+    private volatile byte[][] chunks = new byte[0][];
+    private int position;
+
+    // Số byte của mảng mã từ khóa, và ước lượng bộ nhớ nếu mỗi giá trị là một String riêng
+    // như trước (để so sánh trong thống kê)
+    private long tokenCodeBytes;
+    private long stringBytes;
+
+    /**
+     * Ghi văn bản vào vùng lưu trữ
+     *
+     * @return Địa chỉ để đọc lại bằng text(), NULL_ADDRESS nếu value là null
+     */
+    public synchronized long append(String value) {
+        if (value == null) {
+            return NULL_ADDRESS;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        stringBytes += estimateStringBytes(value);
+
+        // Độ dài (varint, tối đa 5 byte) đứng trước nội dung
+        byte[][] current = chunks;
+        int needed = bytes.length + 5;
+        if (current.length == 0 || position + needed > current[current.length - 1].length) {
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = new byte[Math.max(CHUNK_SIZE, needed)];
+            position = 0;
+        }
+        int chunkIndex = current.length - 1;
+        int offset = position;
+        byte[] chunk = current[chunkIndex];
+        int length = bytes.length;
+        while ((length & ~0x7F) != 0) {
+            chunk[position++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        chunk[position++] = (byte) length;
+        System.arraycopy(bytes, 0, chunk, position, bytes.length);
+        position += bytes.length;
+
+        // Ghi dữ liệu trước, công bố mảng khối sau
+        chunks = current;
+        return ((long) chunkIndex << 32) | offset;
+    }
+
+    /**
+     * Đọc văn bản tại địa chỉ
+     */
+    public String text(long address) {
+        if (address == NULL_ADDRESS) {
+            return null;
+        }
+        byte[] chunk = chunks[(int) (address >>> 32)];
+        int offset = (int) address;
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = chunk[offset++];
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        return new String(chunk, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Mã hóa giá trị của trường ít giá trị khác nhau
+     */
+    public synchronized int encodeField(String value) {
+        if (value != null) {
+            stringBytes += estimateStringBytes(value);
+        }
+        return fields.encode(value);
+    }
+
+    public String field(int code) {
+        return fields.decode(code);
+    }
+
+    /**
+     * Mã hóa các từ khóa đã phân tích
+     */
+    public synchronized int[] encodeTokens(String[] values) {
+        int[] codes = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            codes[i] = tokens.encode(values[i]);
+            stringBytes += estimateStringBytes(values[i]);
+        }
+        tokenCodeBytes += 16 + 4L * codes.length;
+        stringBytes += 16 + 4L * codes.length;
+        return codes;
+    }
+
+    /**
+     * Giải mã từ khóa; các từ giống nhau dùng chung một đối tượng String
+     */
+    public String[] tokens(int[] codes) {
+        String[] values = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            values[i] = tokens.decode(codes[i]);
+        }
+        return values;
+    }
+
+    /**
+     * @return Số byte dữ liệu văn bản đang lưu (khối UTF-8 đã dùng, từ điển, mảng mã từ khóa)
+     */
+    public synchronized long getSizeInBytes() {
+        long size = tokenCodeBytes + fields.getSizeInBytes() + tokens.getSizeInBytes();
+        // Các khối trước đã đầy, khối cuối chỉ tính phần đã ghi
+        for (int i = 0; i < chunks.length; i++) {
+            size += 16 + (i == chunks.length - 1 ? position : chunks[i].length);
+        }
+        return size;
+    }
+
+    /**
+     * @return Ước lượng số byte nếu mỗi giá trị được lưu thành String riêng như trước
+     */
+    public synchronized long getStringSizeInBytes() {
+        return stringBytes;
+    }
+
+    /**
+     * Kích thước ước lượng của một String: đối tượng + mảng byte (Latin-1 1 byte/ký tự, ngược lại 2)
+     */
+    private static long estimateStringBytes(String value) {
+        boolean latin1 = true;
+        for (int i = 0; i < value.length() && latin1; i++) {
+            latin1 = value.charAt(i) < 256;
+        }
+        return 24 + 16 + (long) value.length() * (latin1 ? 1 : 2);
+    }
+
+    /**
+     * Từ điển chỉ ghi thêm: giá trị -> mã, mã -> giá trị (ghi dưới khóa của ProductStore)
+     */
+    private static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private volatile String[] values = new String[16];
+        private int size;
+        private long bytes;
+
+        int encode(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = size;
+                String[] current = values;
+                if (size == current.length) {
+                    current = Arrays.copyOf(current, size * 2);
+                }
+                current[size++] = value;
+                values = current;
+                codes.put(value, code);
+                // String + mục trong HashMap + Integer
+                bytes += estimateStringBytes(value) + 48;
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return code < 0 ? null : values[code];
+        }
+
+        long getSizeInBytes() {
+            return bytes + 16 + values.length * 4L;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tập trường của sản phẩm được trả về trong response (tham số fields= hoặc view=).
+ * Trường không được chọn thì không được tính cũng không được tuần tự hóa.
+ *
+ * Mỗi trường là một bit; khóa của view (dùng cho bộ nhớ đệm và ETag) là tên view
+ * định sẵn hoặc mặt nạ bit, nên cùng tập trường luôn cho cùng một khóa.
+ */
+public class ProductView {
+    public static final int ID = 0;
+    public static final int NAME = 1;
+    public static final int IMAGE = 2;
+    public static final int PRICE = 3;
+    public static final int RATING = 4;
+    public static final int RATING_COUNT = 5;
+    public static final int DESCRIPTION = 6;
+    public static final int OLD_PRICE = 7;
+    public static final int SOURCE = 8;
+    public static final int SPECIFICATIONS = 9;
+    public static final int KEY_INFO = 10;
+    public static final int FEATURED = 11;
+
+    // Tên trường trong JSON và tên ngắn dùng trong tham số fields=, theo thứ tự bit
+    private static final String[][] FIELD_NAMES = {
+            {"id", "id"},
+            {"Tên sản phẩm", "name"},
+            {"Ảnh", "image"},
+            {"Giá", "price"},
+            {"Điểm đánh giá trung bình", "rating"},
+            {"Số lượt đánh giá", "rating_count"},
+            {"Mô tả sản phẩm", "description"},
+            {"Giá cũ", "old_price"},
+            {"Nguồn dữ liệu", "source"},
+            {"specifications", "specifications"},
+            {"key_info", "key_info"},
+            {"is_featured", "is_featured"}
+    };
+
+    private static final Map<String, Integer> FIELDS_BY_NAME = new LinkedHashMap<>();
+    static {
+        for (int field = 0; field < FIELD_NAMES.length; field++) {
+            for (String name : FIELD_NAMES[field]) {
+                FIELDS_BY_NAME.put(name, field);
+            }
+        }
+    }
+
+    public static final ProductView FULL = new ProductView("full", (1 << FIELD_NAMES.length) - 1);
+
+    // Thẻ sản phẩm trong trang danh sách: không có mô tả và thông số
+    public static final ProductView CARD = new ProductView("card", 1 << ID | 1 << NAME | 1 << IMAGE
+            | 1 << PRICE | 1 << OLD_PRICE | 1 << RATING | 1 << RATING_COUNT | 1 << FEATURED);
+
+    private final String key;
+    private final int mask;
+
+    private ProductView(String key, int mask) {
+        this.key = key;
+        this.mask = mask;
+    }
+
+    /**
+     * Tạo view từ tham số request
+     *
+     * @param view   Tên view định sẵn ("full", "card"), có thể null
+     * @param fields Danh sách trường cách nhau bởi dấu phẩy (tên JSON hoặc tên ngắn),
+     *               ưu tiên hơn view nếu có
+     * @throws IllegalArgumentException Nếu tên view hoặc tên trường không tồn tại
+     */
+    public static ProductView parse(String view, String fields) {
+        if (fields != null && !fields.trim().isEmpty()) {
+            int mask = 0;
+            for (String name : fields.split(",")) {
+                if (name.trim().isEmpty()) {
+                    continue;
+                }
+                Integer field = FIELDS_BY_NAME.get(name.trim());
+                if (field == null) {
+                    throw new IllegalArgumentException("Trường không tồn tại: " + name.trim());
+                }
+                mask |= 1 << field;
+            }
+            return mask == FULL.mask ? FULL : mask == CARD.mask ? CARD
+                    : new ProductView(Integer.toHexString(mask), mask);
+        }
+        if (view == null || view.isEmpty() || view.equals(FULL.key)) {
+            return FULL;
+        }
+        if (view.equals(CARD.key)) {
+            return CARD;
+        }
+        throw new IllegalArgumentException("View không tồn tại: " + view);
+    }
+
+    public boolean includes(int field) {
+        return (mask & (1 << field)) != 0;
+    }
+
+    public boolean isFull() {
+        return this == FULL;
+    }
+
+    /**
+     * @return true nếu là view định sẵn (số lượng có hạn, có thể lưu response dựng sẵn)
+     */
+    public boolean isPredefined() {
+        return this == FULL || this == CARD;
+    }
+
+    /**
+     * @return Khóa ngắn, giống nhau cho cùng một tập trường
+     */
+    public String getKey() {
+        return key;
+    }
+}
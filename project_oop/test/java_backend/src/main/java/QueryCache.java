@@ -0,0 +1,159 @@
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bộ nhớ đệm kết quả truy vấn: giới hạn số mục (LRU) và thời gian sống (TTL),
+ * có bộ đếm hit/miss/eviction. Khi danh mục được tải lại, toàn bộ bộ nhớ đệm bị xóa;
+ * khi chỉ một số sản phẩm thay đổi, chỉ các mục có từ khóa nằm trong văn bản của chúng bị xóa.
+ * Mỗi lần xóa, thế hệ (generation) tăng lên để loại bỏ kết quả đang tính trên dữ liệu cũ.
+ *
+ * @param <V> Kiểu giá trị lưu trữ
+ */
+public class QueryCache<V> {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, CacheEntry<V>> entries;
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxEntries Số mục tối đa
+     * @param ttlMillis  Thời gian sống của một mục (mili giây)
+     */
+    public QueryCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        // accessOrder = true: mục ít được dùng gần đây nhất nằm đầu danh sách
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Lấy giá trị trong bộ nhớ đệm
+     *
+     * @return Giá trị hoặc null nếu không có hoặc đã hết hạn
+     */
+    public synchronized V get(String key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.nanoTime() - entry.createdAt > ttlNanos) {
+            entries.remove(key);
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Thế hệ hiện tại; lấy trước khi tính kết quả và truyền lại cho put
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Lưu giá trị phụ thuộc toàn bộ danh mục. Bỏ qua nếu bộ nhớ đệm đã bị xóa kể từ khi bắt đầu tính
+     *
+     * @param generation Thế hệ lấy từ getGeneration() trước khi tính giá trị
+     */
+    public synchronized void put(String key, V value, long generation) {
+        put(key, value, generation, null);
+    }
+
+    /**
+     * Lưu giá trị chỉ phụ thuộc các sản phẩm chứa một trong các từ khóa cho trước
+     *
+     * @param terms Từ khóa (đã bỏ dấu) của truy vấn, null nếu giá trị phụ thuộc toàn bộ danh mục
+     */
+    public synchronized void put(String key, V value, long generation, Collection<String> terms) {
+        if (generation != this.generation) {
+            return;
+        }
+        entries.put(key, new CacheEntry<>(value, System.nanoTime(),
+                terms == null ? null : terms.toArray(new String[0])));
+
+        // Loại các mục ít dùng nhất khi vượt quá giới hạn
+        Iterator<Map.Entry<String, CacheEntry<V>>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Xóa toàn bộ bộ nhớ đệm (khi danh mục thay đổi)
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        generation++;
+    }
+
+    /**
+     * Xóa các mục có thể bị ảnh hưởng khi một số sản phẩm thay đổi: mục có từ khóa thuộc văn bản
+     * cũ hoặc mới của các sản phẩm đó, và mục phụ thuộc toàn bộ danh mục
+     *
+     * @param changedTerms Từ khóa trong văn bản trước và sau khi sửa của các sản phẩm thay đổi
+     */
+    public synchronized void invalidate(Set<String> changedTerms) {
+        Iterator<CacheEntry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().dependsOn(changedTerms)) {
+                it.remove();
+            }
+        }
+        generation++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private static class CacheEntry<V> {
+        private final V value;
+        private final long createdAt;
+        // null: phụ thuộc toàn bộ danh mục
+        private final String[] terms;
+
+        CacheEntry(V value, long createdAt, String[] terms) {
+            this.value = value;
+            this.createdAt = createdAt;
+            this.terms = terms;
+        }
+
+        boolean dependsOn(Set<String> changedTerms) {
+            if (terms == null) {
+                return true;
+            }
+            for (String term : terms) {
+                if (changedTerms.contains(term)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+
+import java.util.*;
+
+/**
+ * Kế hoạch truy vấn: kết quả phân tích câu truy vấn, được tạo một lần cho mỗi yêu cầu.
+ * Chứa từ khóa đã chuẩn hóa, khoảng giá, xuất xứ và số người sử dụng được nhắc tới.
+ */
+public class QueryPlan {
+    private final String normalizedQuery;
+    private final String[] keywords;
+    private final long maxPrice;
+    private final long minPrice;
+    // Mặt nạ bit theo mã trong ProductAttributes (bit thứ n = mã n)
+    private final int originMask;
+    private final int householdSizeMask;
+    // Bộ lọc giá tường minh từ tham số minPrice/maxPrice (khác với gợi ý giá trong câu truy vấn)
+    private final long filterMinPrice;
+    private final long filterMaxPrice;
+    // Bộ lọc thuộc tính tường minh (type, origin, ...): thuộc tính -> giá trị đã chuẩn hóa
+    private final SortedMap<String, String[]> attributeFilters;
+
+    private QueryPlan(String normalizedQuery, String[] keywords, long maxPrice, long minPrice,
+            int originMask, int householdSizeMask, long filterMinPrice, long filterMaxPrice,
+            SortedMap<String, String[]> attributeFilters) {
+        this.normalizedQuery = normalizedQuery;
+        this.keywords = keywords;
+        this.maxPrice = maxPrice;
+        this.minPrice = minPrice;
+        this.originMask = originMask;
+        this.householdSizeMask = householdSizeMask;
+        this.filterMinPrice = filterMinPrice;
+        this.filterMaxPrice = filterMaxPrice;
+        this.attributeFilters = attributeFilters;
+    }
+
+    /**
+     * Phân tích câu truy vấn thành kế hoạch truy vấn
+     *
+     * @param query Câu truy vấn người dùng nhập
+     * @return Kế hoạch truy vấn
+     */
+    public static QueryPlan parse(String query) {
+        // Chuẩn hóa một lần: chữ thường, bỏ dấu ("dưới" -> "duoi")
+        String folded = TextAnalyzer.fold(query == null ? "" : query.trim()).replaceAll("\\s+", " ");
+        String[] keywords = TextAnalyzer.tokenize(folded);
+
+        // Khoảng giá
+        long maxPrice = 0;
+        if (folded.contains("duoi") || folded.contains("nho hon") || folded.contains("it hon")) {
+            maxPrice = extractPriceFromQuery(folded, "duoi", "nho hon", "it hon");
+        }
+        long minPrice = 0;
+        if (folded.contains("tren") || folded.contains("lon hon")) {
+            minPrice = extractPriceFromQuery(folded, "tren", "lon hon");
+        }
+
+        // Số người sử dụng
+        int householdSizeMask = 0;
+        if (folded.contains("nguoi")) {
+            if ((folded.contains("2") || folded.contains("hai")) &&
+                    (folded.contains("3") || folded.contains("ba"))) {
+                householdSizeMask |= 1 << ProductAttributes.HOUSEHOLD_2_3;
+            }
+            if ((folded.contains("4") || folded.contains("bon")) &&
+                    (folded.contains("5") || folded.contains("nam"))) {
+                householdSizeMask |= 1 << ProductAttributes.HOUSEHOLD_4_5;
+            }
+            if (folded.contains("5") || folded.contains("nam") || folded.contains("nhieu")) {
+                householdSizeMask |= 1 << ProductAttributes.HOUSEHOLD_OVER_5;
+            }
+        }
+
+        // Xuất xứ
+        int originMask = 0;
+        if (folded.contains("viet nam")) {
+            originMask |= 1 << ProductAttributes.ORIGIN_VIETNAM;
+        }
+        if (folded.contains("thai lan")) {
+            originMask |= 1 << ProductAttributes.ORIGIN_THAILAND;
+        }
+        if (folded.contains("trung quoc") || folded.contains("tau")) {
+            originMask |= 1 << ProductAttributes.ORIGIN_CHINA;
+        }
+
+        return new QueryPlan(folded, keywords, maxPrice, minPrice, originMask, householdSizeMask,
+                0, Long.MAX_VALUE, Collections.emptySortedMap());
+    }
+
+    /**
+     * Tạo kế hoạch mới có thêm bộ lọc giá tường minh
+     *
+     * @param filterMinPrice Giá tối thiểu (bao gồm)
+     * @param filterMaxPrice Giá tối đa (bao gồm)
+     * @return Kế hoạch truy vấn có bộ lọc giá
+     */
+    public QueryPlan withPriceFilter(long filterMinPrice, long filterMaxPrice) {
+        return new QueryPlan(normalizedQuery, keywords, maxPrice, minPrice, originMask, householdSizeMask,
+                Math.max(0, filterMinPrice), filterMaxPrice, attributeFilters);
+    }
+
+    /**
+     * Tạo kế hoạch mới có thêm bộ lọc thuộc tính tường minh
+     *
+     * @param attribute Tên thuộc tính (xem AttributeFilterIndex.ATTRIBUTES)
+     * @param values    Giá trị cần lọc, nhiều giá trị cách nhau bởi dấu phẩy
+     * @return Kế hoạch truy vấn có bộ lọc, hoặc chính kế hoạch này nếu không có giá trị nào
+     */
+    public QueryPlan withAttributeFilter(String attribute, String values) {
+        if (values == null) {
+            return this;
+        }
+        // Sắp xếp giá trị để khóa bộ nhớ đệm không phụ thuộc thứ tự người dùng nhập
+        SortedSet<String> normalized = new TreeSet<>();
+        for (String value : values.split(",")) {
+            String key = AttributeFilterIndex.normalizeValue(value);
+            if (!key.isEmpty()) {
+                normalized.add(key);
+            }
+        }
+        if (normalized.isEmpty()) {
+            return this;
+        }
+
+        SortedMap<String, String[]> filters = new TreeMap<>(attributeFilters);
+        filters.put(attribute, normalized.toArray(new String[0]));
+        return new QueryPlan(normalizedQuery, keywords, maxPrice, minPrice, originMask, householdSizeMask,
+                filterMinPrice, filterMaxPrice, Collections.unmodifiableSortedMap(filters));
+    }
+
+    /**
+     * Khóa bộ nhớ đệm: câu truy vấn đã chuẩn hóa cùng các bộ lọc
+     */
+    public String getCacheKey() {
+        StringBuilder key = new StringBuilder(normalizedQuery)
+                .append('|').append(filterMinPrice).append('|').append(filterMaxPrice);
+        for (Map.Entry<String, String[]> filter : attributeFilters.entrySet()) {
+            key.append('|').append(filter.getKey()).append('=').append(String.join(",", filter.getValue()));
+        }
+        return key.toString();
+    }
+
+    public boolean isEmpty() {
+        return normalizedQuery.isEmpty();
+    }
+
+    public String[] getKeywords() {
+        return keywords;
+    }
+
+    /**
+     * @return Giá tối đa ("dưới X"), 0 nếu không có
+     */
+    public long getMaxPrice() {
+        return maxPrice;
+    }
+
+    /**
+     * @return Giá tối thiểu ("trên X"), 0 nếu không có
+     */
+    public long getMinPrice() {
+        return minPrice;
+    }
+
+    /**
+     * Kiểm tra mã xuất xứ có được nhắc tới trong truy vấn không
+     */
+    public boolean matchesOrigin(byte originCode) {
+        return (originMask & (1 << originCode)) != 0;
+    }
+
+    /**
+     * Kiểm tra mã số người sử dụng có phù hợp với truy vấn không
+     */
+    public boolean matchesHouseholdSize(byte householdSizeCode) {
+        return (householdSizeMask & (1 << householdSizeCode)) != 0;
+    }
+
+    /**
+     * Kiểm tra câu truy vấn có gợi ý về số người hoặc xuất xứ không
+     */
+    public boolean hasAttributeHints() {
+        return originMask != 0 || householdSizeMask != 0;
+    }
+
+    public boolean hasPriceFilter() {
+        return filterMinPrice > 0 || filterMaxPrice < Long.MAX_VALUE;
+    }
+
+    public boolean hasAttributeFilters() {
+        return !attributeFilters.isEmpty();
+    }
+
+    public Map<String, String[]> getAttributeFilters() {
+        return attributeFilters;
+    }
+
+    public long getFilterMinPrice() {
+        return filterMinPrice;
+    }
+
+    public long getFilterMaxPrice() {
+        return filterMaxPrice;
+    }
+
+    /**
+     * Trích xuất giá trị giá tiền từ câu truy vấn (đã bỏ dấu)
+     */
+    private static long extractPriceFromQuery(String query, String... priceKeywords) {
+        // Tìm các từ khóa giá tiền trong truy vấn
+        int startPos = -1;
+        for (String keyword : priceKeywords) {
+            if (query.contains(keyword)) {
+                int pos = query.indexOf(keyword);
+                if (startPos == -1 || pos < startPos) {
+                    startPos = pos + keyword.length();
+                }
+            }
+        }
+
+        if (startPos != -1) {
+            // Tìm số trong truy vấn sau vị trí từ khóa giá tiền
+            StringBuilder priceStr = new StringBuilder();
+            boolean foundDigit = false;
+
+            for (int i = startPos; i < query.length(); i++) {
+                char c = query.charAt(i);
+
+                if (Character.isDigit(c)) {
+                    priceStr.append(c);
+                    foundDigit = true;
+                } else if (foundDigit && c == ',' || c == '.') {
+                    // Bỏ qua các dấu phân cách số
+                    continue;
+                } else if (foundDigit && !Character.isDigit(c)) {
+                    // Nếu đã tìm thấy số và gặp ký tự không phải số, kiểm tra đơn vị
+                    String remainingText = query.substring(i).trim();
+                    if (remainingText.startsWith("trieu")) {
+                        // Nếu đơn vị là triệu, nhân với 1000000
+                        try {
+                            return Long.parseLong(priceStr.toString()) * 1000000;
+                        } catch (NumberFormatException e) {
+                            return 0;
+                        }
+                    } else if (remainingText.startsWith("nghin") || remainingText.startsWith("k")) {
+                        // Nếu đơn vị là nghìn, nhân với 1000
+                        try {
+                            return Long.parseLong(priceStr.toString()) * 1000;
+                        } catch (NumberFormatException e) {
+                            return 0;
+                        }
+                    } else {
+                        // Nếu không có đơn vị rõ ràng, giả định là giá trị đồng
+                        break;
+                    }
+                }
+            }
+
+            // Trả về giá trị tìm được
+            if (priceStr.length() > 0) {
+                try {
+                    return Long.parseLong(priceStr.toString());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,328 @@
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Nén response theo header Accept-Encoding (gzip hoặc deflate).
+ * - Response nhỏ hơn ngưỡng minBytes được gửi nguyên (nén không lợi mà tốn CPU).
+ * - Deflater được dùng lại qua một pool thay vì tạo mới mỗi request (mỗi Deflater giữ
+ *   vùng nhớ native đến khi end()). Số Deflater tối đa bằng số luồng nén cùng lúc.
+ * - Dữ liệu chỉ nén một lần thành luồng deflate thô; gzip và deflate (zlib) chỉ khác
+ *   phần đầu/cuối bao quanh, nên một kết quả nén dùng được cho cả hai.
+ * - Response lớn có thể ghi dạng luồng (chunked) qua openStream() thay vì dựng mảng byte.
+ */
+public class ResponseCompressor {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    // Kích thước bộ đệm khi nén dạng luồng
+    private static final int STREAM_BUFFER_SIZE = 8 * 1024;
+
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final int level;
+    private final int minBytes;
+    private final byte[] zlibHeader;
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param level    Mức nén 1-9 (hoặc -1 cho mặc định của zlib)
+     * @param minBytes Response nhỏ hơn số byte này không được nén
+     */
+    public ResponseCompressor(int level, int minBytes) {
+        if ((level < 1 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Mức nén không hợp lệ: " + level);
+        }
+        this.level = level;
+        this.minBytes = minBytes;
+
+        // Header zlib: CMF = deflate, cửa sổ 32K; FLG ghi mức nén, FCHECK để (CMF*256+FLG) % 31 == 0
+        int levelFlag = level == Deflater.DEFAULT_COMPRESSION || level == 6 ? 2
+                : level == 1 ? 0 : level < 6 ? 1 : 3;
+        int flags = levelFlag << 6;
+        flags += 31 - ((0x78 * 256 + flags) % 31);
+        this.zlibHeader = new byte[] { 0x78, (byte) flags };
+    }
+
+    public int getMinBytes() {
+        return minBytes;
+    }
+
+    /**
+     * Chọn cách nén theo header Accept-Encoding: giá trị q cao nhất, bằng nhau thì ưu tiên gzip.
+     * Nếu client nêu tên identity với q không thấp hơn cách nén tốt nhất thì không nén.
+     *
+     * @return GZIP, DEFLATE hoặc null nếu không nén
+     */
+    public static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        double identity = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals(GZIP) || name.equals("x-gzip")) {
+                gzip = quality;
+            } else if (name.equals(DEFLATE)) {
+                deflate = quality;
+            } else if (name.equals("identity")) {
+                identity = quality;
+            } else if (name.equals("*")) {
+                any = quality;
+            }
+        }
+        // "*" áp dụng cho các cách nén không được nêu tên
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+        if (gzip <= 0 && deflate <= 0 || identity >= Math.max(gzip, deflate)) {
+            return null;
+        }
+        return gzip >= deflate ? GZIP : DEFLATE;
+    }
+
+    /**
+     * Gửi response, nén nếu client chấp nhận và nội dung đủ lớn
+     *
+     * @param exchange HTTP exchange (header Content-Type đã được thiết lập)
+     * @param status   Mã trạng thái HTTP
+     * @param body     Nội dung chưa nén
+     */
+    public void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        String encoding = body.length >= minBytes
+                ? negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"))
+                : null;
+        if (encoding == null) {
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+            return;
+        }
+
+        Compressed compressed = compress(body);
+        exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        exchange.sendResponseHeaders(status, compressed.length(encoding));
+        try (OutputStream os = exchange.getResponseBody()) {
+            compressed.writeTo(os, encoding);
+        }
+    }
+
+    /**
+     * Gửi header với Transfer-Encoding: chunked và trả về luồng ghi nội dung (nén nếu client
+     * chấp nhận). Dùng cho response lớn chưa biết độ dài: không cần giữ cả nội dung trong bộ nhớ,
+     * byte đầu tiên được gửi ngay khi bộ đệm đầy. Ngưỡng minBytes không áp dụng vì độ dài
+     * chưa biết trước. Phải đóng luồng để kết thúc response, hoặc gọi abort() nếu lỗi giữa chừng.
+     *
+     * @param exchange HTTP exchange (header Content-Type đã được thiết lập)
+     * @param status   Mã trạng thái HTTP
+     */
+    public ResponseStream openStream(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        String encoding = negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        if (encoding != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        }
+        exchange.sendResponseHeaders(status, 0);
+        if (encoding == null) {
+            return new ResponseStream(exchange.getResponseBody(), null);
+        }
+        return new ResponseStream(null, new CompressingStream(exchange.getResponseBody(), encoding));
+    }
+
+    /**
+     * Lấy Deflater từ pool; không ghi header zlib, phần bao quanh do nơi gọi tự thêm
+     */
+    private Deflater borrowDeflater() {
+        Deflater deflater = deflaters.poll();
+        return deflater != null ? deflater : new Deflater(level, true);
+    }
+
+    private void returnDeflater(Deflater deflater) {
+        deflater.reset();
+        deflaters.offer(deflater);
+    }
+
+    /**
+     * Nén dữ liệu bằng một Deflater lấy từ pool
+     */
+    public Compressed compress(byte[] data) {
+        Deflater deflater = borrowDeflater();
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, data.length / 4)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            Adler32 adler = new Adler32();
+            adler.update(data);
+            return new Compressed(Arrays.copyOf(buffer, length), (int) crc.getValue(), (int) adler.getValue(),
+                    data.length);
+        } finally {
+            returnDeflater(deflater);
+        }
+    }
+
+    /**
+     * Phần cuối gzip: CRC32 và độ dài gốc (mod 2^32), little-endian
+     */
+    private static byte[] gzipTrailer(int crc, int inputLength) {
+        return new byte[] {
+                (byte) crc, (byte) (crc >>> 8), (byte) (crc >>> 16), (byte) (crc >>> 24),
+                (byte) inputLength, (byte) (inputLength >>> 8),
+                (byte) (inputLength >>> 16), (byte) (inputLength >>> 24) };
+    }
+
+    /**
+     * Phần cuối zlib: Adler-32, big-endian
+     */
+    private static byte[] zlibTrailer(int adler) {
+        return new byte[] { (byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8), (byte) adler };
+    }
+
+    /**
+     * Luồng ghi nội dung response trả về từ openStream(). Gom các lần ghi nhỏ (từng sản phẩm,
+     * dấu phẩy) trước khi gửi hoặc đưa vào Deflater.
+     */
+    public static class ResponseStream extends BufferedOutputStream {
+        private final CompressingStream compressing;
+
+        private ResponseStream(OutputStream plain, CompressingStream compressing) {
+            super(compressing != null ? compressing : plain, STREAM_BUFFER_SIZE);
+            this.compressing = compressing;
+        }
+
+        /**
+         * Bỏ dở response khi lỗi giữa chừng: trả Deflater về pool nhưng không ghi phần cuối
+         * và không đóng luồng (đóng sẽ kết thúc response như thể đã gửi đủ)
+         */
+        public void abort() {
+            if (compressing != null) {
+                compressing.abort();
+            }
+        }
+    }
+
+    /**
+     * Luồng nén gzip/deflate dùng Deflater của pool; trả Deflater về pool khi đóng hoặc khi bị hủy
+     */
+    private class CompressingStream extends DeflaterOutputStream {
+        private final boolean gzip;
+        private final Checksum checksum;
+        private int inputLength;
+        private boolean closed;
+
+        CompressingStream(OutputStream out, String encoding) throws IOException {
+            super(out, borrowDeflater(), STREAM_BUFFER_SIZE);
+            this.gzip = GZIP.equals(encoding);
+            this.checksum = gzip ? new CRC32() : new Adler32();
+            out.write(gzip ? GZIP_HEADER : zlibHeader);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Luồng nén đã đóng");
+            }
+            checksum.update(b, off, len);
+            inputLength += len;
+            super.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                finish();
+                int value = (int) checksum.getValue();
+                out.write(gzip ? gzipTrailer(value, inputLength) : zlibTrailer(value));
+            } finally {
+                returnDeflater(def);
+                out.close();
+            }
+        }
+
+        void abort() {
+            if (!closed) {
+                closed = true;
+                returnDeflater(def);
+            }
+        }
+    }
+
+    /**
+     * Luồng deflate thô kèm checksum, ghi ra được dạng gzip hoặc deflate (zlib)
+     */
+    public class Compressed {
+        private final byte[] deflated;
+        private final int crc;
+        private final int adler;
+        private final int inputLength;
+
+        private Compressed(byte[] deflated, int crc, int adler, int inputLength) {
+            this.deflated = deflated;
+            this.crc = crc;
+            this.adler = adler;
+            this.inputLength = inputLength;
+        }
+
+        /**
+         * @return Số byte khi ghi theo cách nén encoding
+         */
+        public long length(String encoding) {
+            return GZIP.equals(encoding)
+                    ? GZIP_HEADER.length + deflated.length + 8
+                    : zlibHeader.length + deflated.length + 4;
+        }
+
+        public void writeTo(OutputStream out, String encoding) throws IOException {
+            if (GZIP.equals(encoding)) {
+                out.write(GZIP_HEADER);
+                out.write(deflated);
+                out.write(gzipTrailer(crc, inputLength));
+            } else {
+                out.write(zlibHeader);
+                out.write(deflated);
+                out.write(zlibTrailer(adler));
+            }
+        }
+    }
+}
@@ -0,0 +1,415 @@
+
+import java.util.Arrays;
+
+/**
+ * Tập số nguyên nén kiểu Roaring: chia số thứ tự theo 16 bit cao thành các khối 65536 phần tử,
+ * mỗi khối chọn cách lưu nhỏ nhất trong ba loại: mảng (tập thưa), bitmap (tập dày)
+ * hoặc dãy đoạn liên tiếp (run). Không thay đổi sau khi tạo.
+ */
+public class RoaringBitmap {
+    // Khối mảng tối đa 4096 phần tử (8 KB), lớn hơn thì bitmap nhỏ hơn
+    private static final int MAX_ARRAY_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap(new char[0], new Container[0]);
+
+    // 16 bit cao của các khối, tăng dần, và khối tương ứng
+    private final char[] keys;
+    private final Container[] containers;
+
+    private RoaringBitmap(char[] keys, Container[] containers) {
+        this.keys = keys;
+        this.containers = containers;
+    }
+
+    public static RoaringBitmap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Tạo tập từ các số thứ tự tăng dần
+     */
+    public static RoaringBitmap of(int[] sortedValues, int count) {
+        Builder builder = new Builder();
+        for (int i = 0; i < count; i++) {
+            builder.add(sortedValues[i]);
+        }
+        return builder.build();
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (Container container : containers) {
+            count += container.cardinality();
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return containers.length == 0;
+    }
+
+    /**
+     * Giao của hai tập
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        char[] resultKeys = new char[Math.min(keys.length, other.keys.length)];
+        Container[] resultContainers = new Container[resultKeys.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container != null) {
+                    resultKeys[count] = keys[i];
+                    resultContainers[count++] = container;
+                }
+                i++;
+                j++;
+            }
+        }
+        return new RoaringBitmap(Arrays.copyOf(resultKeys, count), Arrays.copyOf(resultContainers, count));
+    }
+
+    /**
+     * Hợp của hai tập
+     */
+    public RoaringBitmap or(RoaringBitmap other) {
+        char[] resultKeys = new char[keys.length + other.keys.length];
+        Container[] resultContainers = new Container[resultKeys.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                resultKeys[count] = keys[i];
+                resultContainers[count++] = containers[i++];
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                resultKeys[count] = other.keys[j];
+                resultContainers[count++] = other.containers[j++];
+            } else {
+                resultKeys[count] = keys[i];
+                resultContainers[count++] = containers[i++].or(other.containers[j++]);
+            }
+        }
+        return new RoaringBitmap(Arrays.copyOf(resultKeys, count), Arrays.copyOf(resultContainers, count));
+    }
+
+    /**
+     * Hiệu của hai tập: các phần tử không có trong tập kia
+     */
+    public RoaringBitmap andNot(RoaringBitmap other) {
+        char[] resultKeys = new char[keys.length];
+        Container[] resultContainers = new Container[keys.length];
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int j = Arrays.binarySearch(other.keys, keys[i]);
+            Container container = j < 0 ? containers[i] : containers[i].andNot(other.containers[j]);
+            if (container != null) {
+                resultKeys[count] = keys[i];
+                resultContainers[count++] = container;
+            }
+        }
+        return new RoaringBitmap(Arrays.copyOf(resultKeys, count), Arrays.copyOf(resultContainers, count));
+    }
+
+    /**
+     * Chuyển sang tập bit phẳng để dùng làm bộ lọc khi chấm điểm
+     */
+    public FixedBitSet toFixedBitSet(int length) {
+        FixedBitSet bits = new FixedBitSet(length);
+        long[] words = new long[BITMAP_WORDS];
+        for (int k = 0; k < keys.length; k++) {
+            Arrays.fill(words, 0L);
+            containers[k].fill(words);
+            int base = keys[k] << 16;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    int value = base + (w << 6) + Long.numberOfTrailingZeros(word);
+                    if (value < length) {
+                        bits.set(value);
+                    }
+                    word &= word - 1;
+                }
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Chọn cách lưu nhỏ nhất cho một khối từ dạng bitmap
+     */
+    private static Container compress(long[] words) {
+        int cardinality = 0;
+        int runs = 0;
+        long previousTopBit = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+            // Số đoạn = số vị trí bit 1 mà bit liền trước là 0
+            runs += Long.bitCount(word & ~((word << 1) | previousTopBit));
+            previousTopBit = word >>> 63;
+        }
+        if (cardinality == 0) {
+            return null;
+        }
+
+        int arrayBytes = cardinality * 2;
+        int runBytes = runs * 4;
+        int bitmapBytes = BITMAP_WORDS * 8;
+        if (runBytes < arrayBytes && runBytes < bitmapBytes) {
+            return RunContainer.fromWords(words, runs);
+        }
+        if (cardinality <= MAX_ARRAY_SIZE) {
+            return ArrayContainer.fromWords(words, cardinality);
+        }
+        return new BitmapContainer(words, cardinality);
+    }
+
+    /**
+     * Một khối 65536 phần tử (16 bit thấp của số thứ tự)
+     */
+    private abstract static class Container {
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        /**
+         * Bật các bit của khối vào mảng 1024 từ
+         */
+        abstract void fill(long[] words);
+
+        Container and(Container other) {
+            // Khối mảng nhỏ: chỉ kiểm tra từng phần tử với khối kia
+            if (this instanceof ArrayContainer) {
+                return ((ArrayContainer) this).filter(other);
+            }
+            if (other instanceof ArrayContainer) {
+                return ((ArrayContainer) other).filter(this);
+            }
+            long[] words = new long[BITMAP_WORDS];
+            long[] otherWords = new long[BITMAP_WORDS];
+            fill(words);
+            other.fill(otherWords);
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] &= otherWords[i];
+            }
+            return compress(words);
+        }
+
+        Container andNot(Container other) {
+            long[] words = new long[BITMAP_WORDS];
+            long[] otherWords = new long[BITMAP_WORDS];
+            fill(words);
+            other.fill(otherWords);
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] &= ~otherWords[i];
+            }
+            return compress(words);
+        }
+
+        Container or(Container other) {
+            long[] words = new long[BITMAP_WORDS];
+            fill(words);
+            other.fill(words);
+            return compress(words);
+        }
+    }
+
+    /**
+     * Khối thưa: các giá trị tăng dần
+     */
+    private static class ArrayContainer extends Container {
+        private final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        static ArrayContainer fromWords(long[] words, int cardinality) {
+            char[] values = new char[cardinality];
+            int count = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    values[count++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values);
+        }
+
+        ArrayContainer filter(Container other) {
+            char[] kept = new char[values.length];
+            int count = 0;
+            for (char value : values) {
+                if (other.contains(value)) {
+                    kept[count++] = value;
+                }
+            }
+            return count == 0 ? null : new ArrayContainer(Arrays.copyOf(kept, count));
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        void fill(long[] words) {
+            for (char value : values) {
+                words[value >>> 6] |= 1L << value;
+            }
+        }
+    }
+
+    /**
+     * Khối dày: 65536 bit
+     */
+    private static class BitmapContainer extends Container {
+        private final long[] words;
+        private final int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void fill(long[] target) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                target[i] |= words[i];
+            }
+        }
+    }
+
+    /**
+     * Khối gồm các đoạn liên tiếp [start, start + length]
+     */
+    private static class RunContainer extends Container {
+        private final char[] starts;
+        private final char[] lengths;
+
+        RunContainer(char[] starts, char[] lengths) {
+            this.starts = starts;
+            this.lengths = lengths;
+        }
+
+        static RunContainer fromWords(long[] words, int runs) {
+            char[] starts = new char[runs];
+            char[] lengths = new char[runs];
+            int count = 0;
+            int value = 0;
+            while (value < BITMAP_WORDS * 64) {
+                if ((words[value >>> 6] & (1L << value)) == 0) {
+                    value++;
+                    continue;
+                }
+                int start = value;
+                while (value < BITMAP_WORDS * 64 && (words[value >>> 6] & (1L << value)) != 0) {
+                    value++;
+                }
+                starts[count] = (char) start;
+                lengths[count++] = (char) (value - 1 - start);
+            }
+            return new RunContainer(starts, lengths);
+        }
+
+        @Override
+        boolean contains(char value) {
+            int index = Arrays.binarySearch(starts, value);
+            if (index >= 0) {
+                return true;
+            }
+            // Đoạn bắt đầu ngay trước giá trị
+            int run = -index - 2;
+            return run >= 0 && value - starts[run] <= lengths[run];
+        }
+
+        @Override
+        int cardinality() {
+            int count = 0;
+            for (char length : lengths) {
+                count += length + 1;
+            }
+            return count;
+        }
+
+        @Override
+        void fill(long[] words) {
+            for (int r = 0; r < starts.length; r++) {
+                int end = starts[r] + lengths[r];
+                for (int value = starts[r]; value <= end; value++) {
+                    words[value >>> 6] |= 1L << value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Xây dựng tập, thêm số thứ tự theo thứ tự tăng dần
+     */
+    public static class Builder {
+        private char[] keys = new char[4];
+        private Container[] containers = new Container[4];
+        private int count;
+        private long[] words;
+        private int currentKey = -1;
+
+        public void add(int value) {
+            int key = value >>> 16;
+            if (key != currentKey) {
+                flush();
+                currentKey = key;
+                words = new long[BITMAP_WORDS];
+            }
+            words[(value & 0xFFFF) >>> 6] |= 1L << value;
+        }
+
+        private void flush() {
+            if (currentKey < 0) {
+                return;
+            }
+            Container container = compress(words);
+            if (container != null) {
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count * 2);
+                    containers = Arrays.copyOf(containers, count * 2);
+                }
+                keys[count] = (char) currentKey;
+                containers[count++] = container;
+            }
+        }
+
+        public RoaringBitmap build() {
+            flush();
+            currentKey = -1;
+            return new RoaringBitmap(Arrays.copyOf(keys, count), Arrays.copyOf(containers, count));
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.*;
+
+/**
+ * Bảng băm không thay đổi sau khi tạo, chia thành các phân đoạn theo mã băm của khóa.
+ * Bản cập nhật (qua Editor) dùng chung các phân đoạn không bị sửa với bản cũ: đổi một khóa chỉ
+ * sao chép phân đoạn chứa nó và mảng con trỏ phân đoạn, không sao chép cả bảng như new HashMap<>(map).
+ * Số phân đoạn xấp xỉ căn bậc hai số phần tử lúc tạo, nên cả hai phần sao chép đều nhỏ.
+ *
+ * @param <K> Kiểu khóa
+ * @param <V> Kiểu giá trị
+ */
+public class SegmentedMap<K, V> {
+    private static final int MIN_SEGMENTS = 16;
+
+    private final HashMap<K, V>[] segments;
+    private final int size;
+
+    private SegmentedMap(HashMap<K, V>[] segments, int size) {
+        this.segments = segments;
+        this.size = size;
+    }
+
+    /**
+     * Tạo bảng chứa các phần tử của map
+     */
+    public static <K, V> SegmentedMap<K, V> of(Map<K, V> map) {
+        int count = Integer.highestOneBit(Math.max(MIN_SEGMENTS, (int) Math.sqrt(map.size())) - 1) << 1;
+        HashMap<K, V>[] segments = newSegments(count);
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            int s = segmentOf(entry.getKey(), count);
+            if (segments[s] == null) {
+                segments[s] = new HashMap<>();
+            }
+            segments[s].put(entry.getKey(), entry.getValue());
+        }
+        return new SegmentedMap<>(segments, map.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> HashMap<K, V>[] newSegments(int count) {
+        return (HashMap<K, V>[]) new HashMap<?, ?>[count];
+    }
+
+    private static int segmentOf(Object key, int segmentCount) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (segmentCount - 1);
+    }
+
+    public V get(K key) {
+        HashMap<K, V> segment = segments[segmentOf(key, segments.length)];
+        return segment == null ? null : segment.get(key);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Tập khóa (chỉ đọc)
+     */
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                List<Iterator<K>> iterators = new ArrayList<>();
+                for (HashMap<K, V> segment : segments) {
+                    if (segment != null) {
+                        iterators.add(Collections.unmodifiableSet(segment.keySet()).iterator());
+                    }
+                }
+                return new Iterator<K>() {
+                    private int current;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (current < iterators.size() && !iterators.get(current).hasNext()) {
+                            current++;
+                        }
+                        return current < iterators.size();
+                    }
+
+                    @Override
+                    public K next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return iterators.get(current).next();
+                    }
+                };
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean contains(Object key) {
+                return get((K) key) != null;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Bắt đầu sửa: các lần ghi chỉ có hiệu lực trên bảng trả về từ Editor.build(), bảng này không đổi
+     */
+    public Editor<K, V> edit() {
+        return new Editor<>(this);
+    }
+
+    /**
+     * Thêm/xóa khóa rồi tạo bảng mới. Phân đoạn được sao chép ở lần ghi đầu tiên vào nó.
+     */
+    public static class Editor<K, V> {
+        private final HashMap<K, V>[] segments;
+        private final boolean[] copied;
+        private int size;
+
+        private Editor(SegmentedMap<K, V> base) {
+            this.segments = base.segments.clone();
+            this.copied = new boolean[segments.length];
+            this.size = base.size;
+        }
+
+        public V get(K key) {
+            HashMap<K, V> segment = segments[segmentOf(key, segments.length)];
+            return segment == null ? null : segment.get(key);
+        }
+
+        /**
+         * @return Giá trị cũ của khóa, null nếu chưa có
+         */
+        public V put(K key, V value) {
+            V old = writable(key).put(key, value);
+            if (old == null) {
+                size++;
+            }
+            return old;
+        }
+
+        /**
+         * @return Giá trị đã xóa, null nếu khóa không có
+         */
+        public V remove(K key) {
+            if (get(key) == null) {
+                return null;
+            }
+            size--;
+            return writable(key).remove(key);
+        }
+
+        private HashMap<K, V> writable(K key) {
+            int s = segmentOf(key, segments.length);
+            if (!copied[s]) {
+                segments[s] = segments[s] == null ? new HashMap<>() : new HashMap<>(segments[s]);
+                copied[s] = true;
+            }
+            return segments[s];
+        }
+
+        public SegmentedMap<K, V> build() {
+            return new SegmentedMap<>(segments.clone(), size);
+        }
+    }
+}
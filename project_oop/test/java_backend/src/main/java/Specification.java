@@ -0,0 +1,21 @@
+
+/**
+ * Lớp biểu diễn một thông số kỹ thuật
+ */
+public class Specification {
+    private final String label;
+    private final String value;
+
+    public Specification(String label, String value) {
+        this.label = label;
+        this.value = value;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,189 @@
+
+import java.util.*;
+
+/**
+ * Trích xuất thông số kỹ thuật từ mô tả bằng một lần duyệt (automaton Aho-Corasick
+ * dựng trên tất cả tiền tố nhãn), thay vì chạy riêng một regex cho mỗi nhãn.
+ *
+ * Hai loại mục:
+ * - Nhãn có giá trị ("Kiểu tủ: "): giá trị là đoạn sau tiền tố đến dấu chấm tiếp theo,
+ *   lấy lần xuất hiện đầu tiên có giá trị khác rỗng (giống regex "Kiểu tủ: ([^\.]+)").
+ * - Cờ ("2 - 3 người"): nhiều cờ cùng tên thông số, cờ khai báo trước được ưu tiên,
+ *   giá trị là chính đoạn văn bản của cờ.
+ * Kết quả theo thứ tự khai báo tên thông số.
+ */
+public class SpecificationScanner {
+    private final String[] slotNames;
+    private final int[] entrySlots;
+    private final String[] entryTexts;
+    private final boolean[] entryFlags;
+
+    // Bảng chuyển trạng thái đầy đủ: transitions[trạng thái * alphabetSize + lớp ký tự]
+    private final char[] charClasses;
+    private final int alphabetSize;
+    private final int[] transitions;
+    // Các mục kết thúc tại mỗi trạng thái (kể cả qua liên kết thất bại)
+    private final int[][] outputs;
+
+    private SpecificationScanner(Builder builder) {
+        int entryCount = builder.texts.size();
+        this.entryTexts = builder.texts.toArray(new String[0]);
+        this.entryFlags = new boolean[entryCount];
+        this.entrySlots = new int[entryCount];
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < entryCount; i++) {
+            entryFlags[i] = builder.flags.get(i);
+            int slot = names.indexOf(builder.names.get(i));
+            if (slot < 0) {
+                slot = names.size();
+                names.add(builder.names.get(i));
+            }
+            entrySlots[i] = slot;
+        }
+        this.slotNames = names.toArray(new String[0]);
+
+        // Lớp ký tự: 0 cho ký tự không có trong tiền tố nào
+        this.charClasses = new char[Character.MAX_VALUE + 1];
+        int classes = 1;
+        for (String text : entryTexts) {
+            for (int i = 0; i < text.length(); i++) {
+                if (charClasses[text.charAt(i)] == 0) {
+                    charClasses[text.charAt(i)] = (char) classes++;
+                }
+            }
+        }
+        this.alphabetSize = classes;
+
+        // Dựng trie
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> stateOutputs = new ArrayList<>();
+        trie.add(new int[alphabetSize]);
+        stateOutputs.add(new ArrayList<>());
+        for (int entry = 0; entry < entryCount; entry++) {
+            int state = 0;
+            for (int i = 0; i < entryTexts[entry].length(); i++) {
+                int c = charClasses[entryTexts[entry].charAt(i)];
+                if (trie.get(state)[c] == 0) {
+                    trie.get(state)[c] = trie.size();
+                    trie.add(new int[alphabetSize]);
+                    stateOutputs.add(new ArrayList<>());
+                }
+                state = trie.get(state)[c];
+            }
+            stateOutputs.get(state).add(entry);
+        }
+
+        // Duyệt theo chiều rộng: tính liên kết thất bại và hoàn thiện bảng chuyển
+        int[] fail = new int[trie.size()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 1; c < alphabetSize; c++) {
+            if (trie.get(0)[c] != 0) {
+                queue.add(trie.get(0)[c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            stateOutputs.get(state).addAll(stateOutputs.get(fail[state]));
+            for (int c = 1; c < alphabetSize; c++) {
+                int next = trie.get(state)[c];
+                if (next != 0) {
+                    fail[next] = trie.get(fail[state])[c];
+                    queue.add(next);
+                } else {
+                    trie.get(state)[c] = trie.get(fail[state])[c];
+                }
+            }
+        }
+
+        this.transitions = new int[trie.size() * alphabetSize];
+        this.outputs = new int[trie.size()][];
+        for (int state = 0; state < trie.size(); state++) {
+            System.arraycopy(trie.get(state), 0, transitions, state * alphabetSize, alphabetSize);
+            outputs[state] = stateOutputs.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Duyệt văn bản một lần và trả về các thông số tìm thấy
+     */
+    public Specification[] scan(String text) {
+        if (text == null || text.isEmpty()) {
+            return new Specification[0];
+        }
+
+        String[] values = new String[slotNames.length];
+        int[] flagEntries = new int[slotNames.length];
+        Arrays.fill(flagEntries, Integer.MAX_VALUE);
+        int found = 0;
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * alphabetSize + charClasses[text.charAt(i)]];
+            for (int entry : outputs[state]) {
+                int slot = entrySlots[entry];
+                if (entryFlags[entry]) {
+                    if (entry < flagEntries[slot]) {
+                        found += values[slot] == null ? 1 : 0;
+                        flagEntries[slot] = entry;
+                        values[slot] = entryTexts[entry];
+                    }
+                } else if (values[slot] == null) {
+                    int end = text.indexOf('.', i + 1);
+                    if (end < 0) {
+                        end = text.length();
+                    }
+                    if (end > i + 1) {
+                        values[slot] = text.substring(i + 1, end).trim();
+                        found++;
+                    }
+                }
+            }
+        }
+
+        Specification[] specifications = new Specification[found];
+        int count = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                specifications[count++] = new Specification(slotNames[slot], values[slot]);
+            }
+        }
+        return specifications;
+    }
+
+    /**
+     * Khai báo các nhãn theo thứ tự kết quả mong muốn
+     */
+    public static class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<String> texts = new ArrayList<>();
+        private final List<Boolean> flags = new ArrayList<>();
+
+        /**
+         * Nhãn có giá trị: giá trị là đoạn sau prefix đến dấu chấm
+         */
+        public Builder label(String name, String prefix) {
+            return add(name, prefix, false);
+        }
+
+        /**
+         * Cờ: thông số name nhận giá trị text nếu text xuất hiện trong văn bản
+         */
+        public Builder flag(String name, String text) {
+            return add(name, text, true);
+        }
+
+        private Builder add(String name, String text, boolean flag) {
+            if (text.isEmpty()) {
+                throw new IllegalArgumentException("Tiền tố nhãn rỗng: " + name);
+            }
+            names.add(name);
+            texts.add(text);
+            flags.add(flag);
+            return this;
+        }
+
+        public SpecificationScanner build() {
+            return new SpecificationScanner(this);
+        }
+    }
+}
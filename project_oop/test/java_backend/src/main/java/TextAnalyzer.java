@@ -0,0 +1,89 @@
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bộ phân tích văn bản tiếng Việt: chuẩn hóa Unicode, chuyển chữ thường,
+ * bỏ dấu và tách từ. Dùng chung cho dữ liệu sản phẩm (lúc tải) và câu truy vấn.
+ */
+public final class TextAnalyzer {
+    private static final String[] EMPTY = new String[0];
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Chuẩn hóa văn bản: chữ thường, không dấu ("Tủ lạnh Việt Nam" -> "tu lanh viet nam")
+     *
+     * @param text Văn bản gốc
+     * @return Văn bản đã bỏ dấu, giữ nguyên dấu câu và khoảng trắng
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+
+        // Tách ký tự có dấu thành ký tự gốc + dấu (NFD) để bỏ dấu trong một lần duyệt
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            folded.append(foldChar(c));
+        }
+
+        return folded.toString();
+    }
+
+    /**
+     * Phân tích văn bản thành danh sách từ đã chuẩn hóa và bỏ dấu
+     *
+     * @param text Văn bản gốc
+     * @return Mảng các từ theo thứ tự xuất hiện
+     */
+    public static String[] analyze(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY;
+        }
+        return tokenize(fold(text));
+    }
+
+    /**
+     * Tách văn bản đã chuẩn hóa thành các từ (bỏ dấu câu)
+     */
+    public static String[] tokenize(String folded) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+
+        for (int i = 0; i < folded.length(); i++) {
+            if (Character.isLetterOrDigit(folded.charAt(i))) {
+                if (start == -1) {
+                    start = i;
+                }
+            } else if (start != -1) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start != -1) {
+            tokens.add(folded.substring(start));
+        }
+
+        return tokens.isEmpty() ? EMPTY : tokens.toArray(EMPTY);
+    }
+
+    private static char foldChar(char c) {
+        // "đ" không phân tách được bằng NFD nên phải xử lý riêng
+        if (c == 'đ' || c == 'Đ') {
+            return 'd';
+        }
+        if (c < 128) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+}
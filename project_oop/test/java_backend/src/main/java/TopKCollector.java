@@ -0,0 +1,120 @@
+
+/**
+ * Bộ chọn K sản phẩm có điểm cao nhất bằng min-heap có kích thước cố định.
+ * Lưu cặp (số thứ tự, điểm) dưới dạng mảng nguyên thủy, không tạo đối tượng cho mỗi sản phẩm.
+ * Khi bằng điểm, sản phẩm có số thứ tự nhỏ hơn được xếp trước.
+ */
+public class TopKCollector {
+    private final int capacity;
+    private final int[] ordinals;
+    private final float[] scores;
+    private int size;
+
+    public TopKCollector(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.ordinals = new int[this.capacity];
+        this.scores = new float[this.capacity];
+    }
+
+    /**
+     * Đưa một sản phẩm vào bộ chọn
+     *
+     * @param ordinal Số thứ tự sản phẩm
+     * @param score   Điểm của sản phẩm
+     */
+    public void collect(int ordinal, float score) {
+        if (capacity == 0) {
+            return;
+        }
+        if (size < capacity) {
+            ordinals[size] = ordinal;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (isBetter(ordinal, score, ordinals[0], scores[0])) {
+            // Thay phần tử kém nhất (gốc heap) bằng phần tử mới
+            ordinals[0] = ordinal;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Đưa toàn bộ phần tử hiện có sang một bộ chọn khác (dùng để gộp kết quả từng phân đoạn)
+     */
+    public void collectInto(TopKCollector target) {
+        for (int i = 0; i < size; i++) {
+            target.collect(ordinals[i], scores[i]);
+        }
+    }
+
+    /**
+     * Lấy danh sách số thứ tự đã sắp xếp theo điểm giảm dần.
+     * Bộ chọn trở về rỗng sau khi gọi.
+     *
+     * @return Mảng số thứ tự, phần tử tốt nhất đứng đầu
+     */
+    public int[] drainSorted() {
+        int[] sorted = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = ordinals[0];
+            size--;
+            ordinals[0] = ordinals[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return sorted;
+    }
+
+    /**
+     * So sánh hai phần tử: điểm cao hơn tốt hơn, bằng điểm thì số thứ tự nhỏ hơn tốt hơn
+     */
+    private static boolean isBetter(int ordinalA, float scoreA, int ordinalB, float scoreB) {
+        if (scoreA != scoreB) {
+            return scoreA > scoreB;
+        }
+        return ordinalA < ordinalB;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!isBetter(ordinals[parent], scores[parent], ordinals[i], scores[i])) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && isBetter(ordinals[left], scores[left], ordinals[right], scores[right])) {
+                worst = right;
+            }
+            if (!isBetter(ordinals[i], scores[i], ordinals[worst], scores[worst])) {
+                break;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int ordinal = ordinals[a];
+        ordinals[a] = ordinals[b];
+        ordinals[b] = ordinal;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
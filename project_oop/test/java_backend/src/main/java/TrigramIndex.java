@@ -0,0 +1,177 @@
+
+import java.util.*;
+
+/**
+ * Chỉ mục trigram trên từ vựng (các từ đã bỏ dấu trong chỉ mục ngược) để tìm kiếm chịu lỗi chính tả.
+ * Một từ khóa gõ sai chỉ được so khoảng cách chỉnh sửa với các từ có đủ trigram chung
+ * và độ dài gần bằng, không so với toàn bộ văn bản sản phẩm.
+ */
+public class TrigramIndex {
+    // Độ dài tối thiểu của từ khóa để tìm từ gần đúng
+    private static final int MIN_TERM_LENGTH = 3;
+
+    private final String[] terms;
+    private final Map<String, int[]> termsByTrigram;
+
+    private TrigramIndex(String[] terms, Map<String, int[]> termsByTrigram) {
+        this.terms = terms;
+        this.termsByTrigram = termsByTrigram;
+    }
+
+    /**
+     * Xây dựng chỉ mục trigram từ tập từ vựng
+     */
+    public static TrigramIndex build(Collection<String> vocabulary) {
+        List<String> terms = new ArrayList<>();
+        for (String term : vocabulary) {
+            if (isFuzzyCandidate(term)) {
+                terms.add(term);
+            }
+        }
+        Collections.sort(terms);
+
+        Map<String, List<Integer>> buffers = new HashMap<>();
+        for (int id = 0; id < terms.size(); id++) {
+            for (String trigram : trigrams(terms.get(id))) {
+                buffers.computeIfAbsent(trigram, k -> new ArrayList<>()).add(id);
+            }
+        }
+
+        Map<String, int[]> termsByTrigram = new HashMap<>(buffers.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : buffers.entrySet()) {
+            List<Integer> ids = entry.getValue();
+            int[] array = new int[ids.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = ids.get(i);
+            }
+            termsByTrigram.put(entry.getKey(), array);
+        }
+
+        return new TrigramIndex(terms.toArray(new String[0]), termsByTrigram);
+    }
+
+    /**
+     * Tìm các từ trong từ vựng gần với từ khóa (khoảng cách chỉnh sửa nhỏ)
+     *
+     * @param keyword  Từ khóa đã bỏ dấu
+     * @param maxTerms Số từ tối đa trả về
+     * @return Danh sách từ gần đúng, gần nhất đứng đầu
+     */
+    public List<FuzzyMatch> expand(String keyword, int maxTerms) {
+        List<FuzzyMatch> matches = new ArrayList<>();
+        if (!isFuzzyCandidate(keyword)) {
+            return matches;
+        }
+
+        int maxEdits = keyword.length() <= 5 ? 1 : 2;
+        Set<String> keywordTrigrams = trigrams(keyword);
+
+        // Đếm số trigram chung cho từng từ trong từ vựng
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String trigram : keywordTrigrams) {
+            int[] ids = termsByTrigram.get(trigram);
+            if (ids != null) {
+                for (int id : ids) {
+                    shared.merge(id, 1, Integer::sum);
+                }
+            }
+        }
+
+        // Thêm/xóa/thay một ký tự làm mất tối đa 3 trigram, đổi chỗ hai ký tự kề nhau mất tối đa 4
+        int minShared = Math.max(1, keywordTrigrams.size() - 4 * maxEdits);
+        for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+            String term = terms[entry.getKey()];
+            if (entry.getValue() < minShared || Math.abs(term.length() - keyword.length()) > maxEdits) {
+                continue;
+            }
+            int distance = editDistance(keyword, term, maxEdits);
+            if (distance > 0 && distance <= maxEdits) {
+                matches.add(new FuzzyMatch(term, distance));
+            }
+        }
+
+        matches.sort((a, b) -> a.distance != b.distance
+                ? Integer.compare(a.distance, b.distance)
+                : a.term.compareTo(b.term));
+        return matches.size() > maxTerms ? new ArrayList<>(matches.subList(0, maxTerms)) : matches;
+    }
+
+    private static boolean isFuzzyCandidate(String term) {
+        if (term.length() < MIN_TERM_LENGTH) {
+            return false;
+        }
+        // Bỏ qua từ có chữ số (mã sản phẩm, kích thước) vì sai một ký tự là khác hẳn nghĩa
+        for (int i = 0; i < term.length(); i++) {
+            if (Character.isDigit(term.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> trigrams(String term) {
+        String padded = "$" + term + "$";
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    /**
+     * Khoảng cách chỉnh sửa (có tính hoán đổi hai ký tự liền kề), dừng sớm khi vượt quá maxEdits
+     *
+     * @return Khoảng cách, hoặc maxEdits + 1 nếu lớn hơn maxEdits
+     */
+    static int editDistance(String a, String b, int maxEdits) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous2;
+            previous2 = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Một từ gần đúng cùng khoảng cách chỉnh sửa tới từ khóa
+     */
+    public static class FuzzyMatch {
+        private final String term;
+        private final int distance;
+
+        FuzzyMatch(String term, int distance) {
+            this.term = term;
+            this.distance = distance;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Nhật ký cập nhật sản phẩm (PUT/DELETE/bulk) cạnh file danh mục, dạng NDJSON:
+ * dòng đầu ghi kích thước và thời điểm sửa của file danh mục mà các cập nhật dựa trên,
+ * mỗi dòng sau là một bản ghi cùng định dạng với POST /api/products/bulk.
+ * Sau mỗi lần tải danh mục từ file, các bản ghi được áp dụng lại theo thứ tự,
+ * nên cập nhật không bị mất khi tải lại hoặc khởi động lại server. Khi file danh mục
+ * đã được thay (dữ liệu nguồn mới), nhật ký của file cũ không còn được áp dụng.
+ */
+public class UpdateJournal {
+
+    private UpdateJournal() {
+    }
+
+    /**
+     * Ghi thêm các bản ghi vào cuối nhật ký và đồng bộ xuống đĩa
+     *
+     * @param source File danh mục đang dùng, ghi vào dòng đầu nếu nhật ký chưa có
+     */
+    public static void append(Path file, SourceVersion source, List<JSONObject> records) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        if (!Files.isRegularFile(file) || Files.size(file) == 0) {
+            lines.append(source.toJson().toString()).append('\n');
+        }
+        for (JSONObject record : records) {
+            lines.append(record.toString()).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Đọc nhật ký; dòng hỏng (ví dụ ghi dở khi server dừng đột ngột) bị bỏ qua
+     *
+     * @param source File danh mục vừa đọc
+     * @return Các bản ghi theo thứ tự ghi, rỗng nếu chưa có nhật ký;
+     *         null nếu nhật ký ghi trên một phiên bản khác của file danh mục
+     */
+    public static List<JSONObject> read(Path file, SourceVersion source) throws IOException {
+        List<JSONObject> records = new ArrayList<>();
+        if (!Files.isRegularFile(file)) {
+            return records;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null) {
+                return records;
+            }
+            if (!source.equals(SourceVersion.parse(line))) {
+                return null;
+            }
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    records.add(new JSONObject(line));
+                } catch (JSONException e) {
+                    System.err.println("Bỏ qua dòng " + lineNumber + " hỏng trong " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Ghi đè nhật ký bằng các bản ghi cho trước (ghi ra file tạm rồi đổi tên)
+     */
+    public static void write(Path file, SourceVersion source, List<JSONObject> records) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(source.toJson().toString());
+            writer.write('\n');
+            for (JSONObject record : records) {
+                writer.write(record.toString());
+                writer.write('\n');
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Gộp các bản ghi cùng mã thành số bản ghi ít nhất cho cùng kết quả khi áp dụng lại:
+     * các lần sửa liên tiếp gộp thành một (trường sau ghi đè trường trước); một lần xóa bỏ
+     * mọi lần sửa trước nó và chỉ còn lại bản ghi xóa, theo sau là lần sửa (đã gộp) sau đó nếu có.
+     *
+     * @return Bản ghi đã gộp, theo thứ tự lần đầu mỗi mã xuất hiện
+     */
+    public static List<JSONObject> compact(List<JSONObject> records) {
+        Map<String, JSONObject[]> byId = new LinkedHashMap<>();
+        for (JSONObject record : records) {
+            String id = record.has("id") ? record.get("id").toString() : "";
+            if (id.isEmpty()) {
+                continue;
+            }
+            // [0]: bản ghi xóa (nếu có), [1]: các lần sửa sau lần xóa cuối, đã gộp
+            JSONObject[] state = byId.computeIfAbsent(id, key -> new JSONObject[2]);
+            if ("delete".equals(record.optString("op"))) {
+                state[0] = new JSONObject().put("id", id).put("op", "delete");
+                state[1] = null;
+                continue;
+            }
+            if (state[1] == null) {
+                state[1] = new JSONObject();
+            }
+            for (String key : record.keySet()) {
+                if (!key.equals("op")) {
+                    state[1].put(key, record.get(key));
+                }
+            }
+        }
+
+        List<JSONObject> compacted = new ArrayList<>();
+        for (JSONObject[] state : byId.values()) {
+            if (state[0] != null) {
+                compacted.add(state[0]);
+            }
+            if (state[1] != null) {
+                compacted.add(state[1]);
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * Phiên bản của file danh mục: kích thước và thời điểm sửa lần cuối
+     */
+    public static class SourceVersion {
+        private final long size;
+        private final long modified;
+
+        public SourceVersion(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+
+        /**
+         * Đọc kích thước và thời điểm sửa hiện tại của file
+         */
+        public static SourceVersion of(Path source) throws IOException {
+            return new SourceVersion(Files.size(source), Files.getLastModifiedTime(source).toMillis());
+        }
+
+        /**
+         * @return Phiên bản trong dòng đầu của nhật ký, null nếu dòng không phải dòng đầu hợp lệ
+         */
+        static SourceVersion parse(String line) {
+            try {
+                JSONObject json = new JSONObject(line);
+                if (!json.has("source_size") || !json.has("source_modified")) {
+                    return null;
+                }
+                return new SourceVersion(json.getLong("source_size"), json.getLong("source_modified"));
+            } catch (JSONException e) {
+                return null;
+            }
+        }
+
+        JSONObject toJson() {
+            return new JSONObject().put("source_size", size).put("source_modified", modified);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof SourceVersion)) {
+                return false;
+            }
+            SourceVersion that = (SourceVersion) other;
+            return size == that.size && modified == that.modified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(modified);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class Bm25ScorerTest {
+
+    private static String[] tokens(String text) {
+        return text.isEmpty() ? new String[0] : text.split(" ");
+    }
+
+    private static float score(InvertedIndex index, String term, int ordinal) {
+        Bm25Scorer scorer = new Bm25Scorer(index);
+        InvertedIndex.Postings postings = index.getPostings(term);
+        return scorer.score(postings, postings.find(ordinal), scorer.idf(postings.size()));
+    }
+
+    @Test
+    void rareTermsWeighMoreThanCommonOnes() {
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        builder.add(tokens("tu lanh aqua"), tokens(""));
+        builder.add(tokens("tu lanh toshiba"), tokens(""));
+        builder.add(tokens("tu lanh samsung"), tokens(""));
+        InvertedIndex index = builder.build();
+        Bm25Scorer scorer = new Bm25Scorer(index);
+
+        assertTrue(scorer.idf(1) > scorer.idf(3));
+        assertTrue(score(index, "aqua", 0) > score(index, "lanh", 0));
+    }
+
+    @Test
+    void nameMatchOutranksDescriptionMatch() {
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        builder.add(tokens("tu lanh inverter"), tokens("ngan da tren"));
+        builder.add(tokens("tu lanh"), tokens("ngan da tren inverter"));
+        builder.add(tokens("may giat"), tokens("long ngang"));
+        InvertedIndex index = builder.build();
+
+        assertTrue(score(index, "inverter", 0) > score(index, "inverter", 1));
+    }
+
+    @Test
+    void shorterFieldsAndRepeatedTermsScoreHigher() {
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        builder.add(tokens("tivi lg"), tokens(""));
+        builder.add(tokens("tivi lg 55 inch oled 4k smart"), tokens(""));
+        builder.add(tokens("tivi lg"), tokens("lg lg lg"));
+        builder.add(tokens("may giat"), tokens(""));
+        InvertedIndex index = builder.build();
+
+        // Cùng số lần xuất hiện: trường ngắn hơn được điểm cao hơn
+        assertTrue(score(index, "lg", 0) > score(index, "lg", 1));
+        // Xuất hiện nhiều lần hơn được điểm cao hơn nhưng không tăng tuyến tính (bão hòa theo K1)
+        float once = score(index, "lg", 0);
+        float repeated = score(index, "lg", 2);
+        assertTrue(repeated > once);
+        assertTrue(repeated < 4 * once);
+    }
+
+    @Test
+    void searchRanksBestMatchFirst() {
+        CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder(1, new ProductStore());
+        String[][] products = {
+                { "Máy giặt LG 9 kg", "Lồng ngang. Có chế độ giặt hơi nước." },
+                { "Tủ lạnh LG Inverter 315 lít", "Ngăn đá trên. Công nghệ Inverter tiết kiệm điện." },
+                { "Tủ lạnh Samsung 236 lít", "Ngăn đá dưới. Sản xuất tại: Việt Nam." },
+                { "Tủ lạnh Aqua 189 lít", "Ngăn đá trên. Không có Inverter." },
+        };
+        for (String[] fields : products) {
+            Product product = new Product(builder.getStore(), fields[0], Product.PLACEHOLDER_IMAGE, "5.000.000₫",
+                    fields[1], "4.5", "10 đánh giá", "dienmayxanh", "Tủ lạnh");
+            product.analyzeText();
+            builder.add(product);
+        }
+        CatalogSnapshot catalog = builder.build();
+        InvertedIndex index = catalog.getIndex();
+
+        // "inverter" trong tên (1) hơn trong mô tả (3); "lg" chỉ cộng cho sản phẩm LG
+        float lgInverter = score(index, "inverter", 1) + score(index, "lg", 1);
+        float aquaInverter = score(index, "inverter", 3);
+        float lgWasher = score(index, "lg", 0);
+        assertTrue(lgInverter > aquaInverter);
+        assertTrue(lgInverter > lgWasher);
+    }
+}
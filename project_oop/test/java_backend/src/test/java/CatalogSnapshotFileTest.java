@@ -0,0 +1,118 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CatalogSnapshotFileTest {
+
+    private static final String CATALOG = "[{\"id\": \"tl-1\", \"Tên sản phẩm\": \"Tủ lạnh Aqua 189 lít\","
+            + " \"Giá\": \"4.590.000₫\", \"Loại sản phẩm\": \"Tủ lạnh\", \"Nguồn dữ liệu\": \"dienmayxanh\","
+            + " \"Mô tả sản phẩm\": \"Kiểu tủ: Ngăn đá trên. Dung tích sử dụng: 189 lít. Sản xuất tại: Việt Nam.\"},"
+            + " {\"Tên sản phẩm\": \"Tivi Samsung 55 inch\", \"Giá\": \"12.990.000₫\", \"Giá cũ\": \"15.990.000₫\","
+            + " \"Mô tả sản phẩm\": \"Kích cỡ màn hình: 55 inch. Năm ra mắt: 2024.\"}]";
+
+    private static Path writeCatalog() throws IOException {
+        Path source = Files.createTempDirectory("snapshot-test").resolve("catalog.json");
+        Files.write(source, CATALOG.getBytes(StandardCharsets.UTF_8));
+        return source;
+    }
+
+    private static CatalogSnapshot load(Path source) throws IOException {
+        ProductSearchService service = new ProductSearchService();
+        service.loadProductsFromJson(source.toString());
+        return service.getSnapshot();
+    }
+
+    @Test
+    void roundTripKeepsProductsAndAnalyzedText() throws IOException {
+        Path source = writeCatalog();
+        CatalogSnapshot original = load(source);
+        List<Product> products = original.getProducts();
+        Path file = CatalogSnapshotFile.latestFile(source);
+        assertEquals("catalog.json.snapshot.1", file.getFileName().toString());
+
+        CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder(1, new ProductStore());
+        assertEquals(2, CatalogSnapshotFile.read(file, source, builder));
+        CatalogSnapshot catalog = builder.build();
+        List<Product> read = catalog.getProducts();
+
+        // Chỉ mục ngược và bảng thuộc tính được đọc từ file, giống hệt bản dựng từ JSON
+        InvertedIndex expectedIndex = original.getIndex();
+        InvertedIndex actualIndex = catalog.getIndex();
+        assertEquals(expectedIndex.getTerms(), actualIndex.getTerms());
+        for (String term : expectedIndex.getTerms()) {
+            InvertedIndex.Postings expected = expectedIndex.getPostings(term);
+            InvertedIndex.Postings actual = actualIndex.getPostings(term);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.ordinalAt(i), actual.ordinalAt(i));
+                assertEquals(expected.nameFrequencyAt(i), actual.nameFrequencyAt(i));
+                assertEquals(expected.descriptionFrequencyAt(i), actual.descriptionFrequencyAt(i));
+            }
+        }
+        assertEquals(expectedIndex.getAverageNameLength(), actualIndex.getAverageNameLength(), 0);
+        assertEquals(expectedIndex.getAverageDescriptionLength(), actualIndex.getAverageDescriptionLength(), 0);
+        for (int i = 0; i < products.size(); i++) {
+            assertEquals(expectedIndex.descriptionLengthAt(i), actualIndex.descriptionLengthAt(i));
+            assertEquals(original.getAttributes().priceAt(i), catalog.getAttributes().priceAt(i));
+            assertEquals(original.getAttributes().originAt(i), catalog.getAttributes().originAt(i));
+            assertEquals(original.getAttributes().householdSizeAt(i), catalog.getAttributes().householdSizeAt(i));
+        }
+
+        assertEquals(products.size(), read.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product expected = products.get(i);
+            Product actual = read.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getPrice(), actual.getPrice());
+            assertEquals(expected.getOldPrice(), actual.getOldPrice());
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getKeyInfo(), actual.getKeyInfo());
+            assertArrayEquals(expected.getNameTokens(), actual.getNameTokens());
+            assertArrayEquals(expected.getDescriptionTokens(), actual.getDescriptionTokens());
+        }
+        assertEquals("tl-1", read.get(0).getId());
+    }
+
+    @Test
+    void staleSnapshotIsIgnored() throws IOException {
+        Path source = writeCatalog();
+        load(source);
+        Files.write(source, " ".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder(1, new ProductStore());
+        assertEquals(-1, CatalogSnapshotFile.read(CatalogSnapshotFile.latestFile(source), source, builder));
+        assertEquals(0, builder.build().getProductCount());
+    }
+
+    @Test
+    void corruptedSnapshotFailsChecksumAndFallsBackToJson() throws IOException {
+        Path source = writeCatalog();
+        CatalogSnapshot original = load(source);
+        Path file = CatalogSnapshotFile.latestFile(source);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 10] ^= 0x55;
+        Files.write(file, bytes);
+        assertThrows(IOException.class,
+                () -> CatalogSnapshotFile.read(file, source, new CatalogSnapshot.Builder(1, new ProductStore())));
+
+        // Nạp lại vẫn thành công từ JSON và ghi ảnh chụp hợp lệ thành thế hệ mới, thế hệ cũ bị xóa
+        CatalogSnapshot reloaded = load(source);
+        assertEquals(original.getProductCount(), reloaded.getProductCount());
+        assertEquals(original.getProducts().get(1).getId(), reloaded.getProducts().get(1).getId());
+        Path rewritten = CatalogSnapshotFile.latestFile(source);
+        assertEquals("catalog.json.snapshot.2", rewritten.getFileName().toString());
+        assertFalse(Files.exists(file));
+        assertEquals(2, CatalogSnapshotFile.read(rewritten, source,
+                new CatalogSnapshot.Builder(1, new ProductStore())));
+    }
+}
@@ -0,0 +1,168 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class CatalogSnapshotTest {
+
+    private static Product product(ProductStore store, String id, String name, String price, String description) {
+        Product product = new Product(store, name, Product.PLACEHOLDER_IMAGE, price, description, "4.5",
+                "10 đánh giá", "dienmayxanh", "Tủ lạnh");
+        product.setId(id);
+        product.analyzeText();
+        return product;
+    }
+
+    private static CatalogSnapshot catalog() {
+        CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder(1, new ProductStore());
+        builder.add(product(builder.getStore(), "a", "Tủ lạnh Aqua 189 lít", "4.590.000₫",
+                "Kiểu tủ: Ngăn đá trên. Sản xuất tại: Việt Nam."));
+        builder.add(product(builder.getStore(), "b", "Tủ lạnh Toshiba 180 lít", "5.290.000₫",
+                "Kiểu tủ: Ngăn đá trên. Sản xuất tại: Thái Lan."));
+        builder.add(product(builder.getStore(), "c", "Tủ lạnh Samsung 236 lít", "6.990.000₫",
+                "Kiểu tủ: Ngăn đá dưới. Sản xuất tại: Việt Nam."));
+        return builder.build();
+    }
+
+    @Test
+    void withChangesUpdatesDeletesAndAppends() {
+        CatalogSnapshot base = catalog();
+        Map<String, Product> changes = new LinkedHashMap<>();
+        changes.put("a", product(base.getStore(), null, "Tủ lạnh Aqua 189 lít", "3.990.000₫",
+                "Kiểu tủ: Ngăn đá trên. Sản xuất tại: Việt Nam."));
+        changes.put("b", null);
+        changes.put("d", product(base.getStore(), null, "Tủ lạnh Hitachi 349 lít", "12.490.000₫",
+                "Kiểu tủ: Ngăn đá trên. Sản xuất tại: Thái Lan."));
+        CatalogSnapshot updated = base.withChanges(changes);
+
+        assertEquals(base.getVersion() + 1, updated.getVersion());
+        assertEquals(3, updated.getProductCount());
+        assertEquals(4, updated.size());
+        assertTrue(updated.hasDeletions());
+
+        // Sửa giữ số thứ tự, xóa để lại chỗ trống, sản phẩm mới nối vào cuối
+        assertEquals("a", updated.productAt(0).getId());
+        assertEquals(3990000, updated.productAt(0).parsePrice());
+        assertNull(updated.productAt(1));
+        assertNull(updated.productById("b"));
+        assertEquals("d", updated.productAt(3).getId());
+        assertFalse(updated.getLiveProducts().get(1));
+        assertTrue(updated.getLiveProducts().get(3));
+
+        assertNull(updated.getIndex().getPostings("toshiba"));
+        assertEquals(3, updated.getIndex().getPostings("hitachi").ordinalAt(0));
+        assertEquals(3, updated.getIndex().getDocumentCount());
+    }
+
+    @Test
+    void withChangesLeavesOriginalUntouched() {
+        CatalogSnapshot base = catalog();
+        Map<String, Product> changes = new LinkedHashMap<>();
+        changes.put("b", null);
+        changes.put("missing", null);
+        base.withChanges(changes);
+
+        assertEquals(3, base.getProductCount());
+        assertEquals("b", base.productById("b").getId());
+        assertEquals(1, base.getIndex().getPostings("toshiba").ordinalAt(0));
+        assertFalse(base.hasDeletions());
+    }
+
+    @Test
+    void updateCountsOnlyExistingDeletes() {
+        CatalogSnapshot base = catalog();
+        Map<String, Product> changes = new LinkedHashMap<>();
+        changes.put("b", null);
+        changes.put("missing", null);
+        changes.put("a", product(base.getStore(), null, "Tủ lạnh Aqua 189 lít", "3.990.000₫", ""));
+        CatalogUpdate update = new CatalogUpdate(base, base.withChanges(changes), changes);
+
+        assertEquals(1, update.getDeletedCount());
+        assertEquals(1, update.getUpsertedCount());
+        assertEquals(2, update.getSnapshot().getProductCount());
+    }
+
+    @Test
+    void withChangesMovesPricesInPriceIndex() {
+        CatalogSnapshot base = catalog();
+        Map<String, Product> changes = new LinkedHashMap<>();
+        changes.put("c", product(base.getStore(), null, "Tủ lạnh Samsung 236 lít", "3.490.000₫", ""));
+        changes.put("b", null);
+        changes.put("d", product(base.getStore(), null, "Tủ lạnh Hitachi 349 lít", "4.990.000₫", ""));
+        CatalogSnapshot updated = base.withChanges(changes);
+
+        List<Integer> ordinals = new ArrayList<>();
+        updated.getPriceIndex().forEachInRange(0, Long.MAX_VALUE, ordinals::add);
+        assertEquals(Arrays.asList(2, 0, 3), ordinals);
+        assertEquals(3, updated.getPriceIndex().size());
+        assertTrue(updated.getPriceIndex().range(4000000, 5000000).get(3));
+        assertFalse(updated.getPriceIndex().range(4000000, 5000000).get(2));
+
+        // Ảnh chụp cũ vẫn giữ giá cũ
+        ordinals.clear();
+        base.getPriceIndex().forEachInRange(0, Long.MAX_VALUE, ordinals::add);
+        assertEquals(Arrays.asList(0, 1, 2), ordinals);
+    }
+
+    @Test
+    void suggestionsAreRebuiltSeparatelyFromUpdates() {
+        CatalogSnapshot base = catalog();
+        Map<String, Product> priceOnly = new LinkedHashMap<>();
+        priceOnly.put("a", product(base.getStore(), null, "Tủ lạnh Aqua 189 lít", "3.990.000₫",
+                "Kiểu tủ: Ngăn đá trên. Sản xuất tại: Việt Nam."));
+        assertFalse(base.withChanges(priceOnly).hasStaleSuggestions());
+
+        Map<String, Product> changes = new LinkedHashMap<>();
+        changes.put("d", product(base.getStore(), null, "Hitachi 349 lít", "12.490.000₫", ""));
+        CatalogSnapshot updated = base.withChanges(changes);
+        assertTrue(updated.hasStaleSuggestions());
+        assertTrue(updated.getSuggester().suggest("hitachi", 5).isEmpty());
+
+        CatalogSnapshot rebuilt = updated.withRebuiltSuggestions();
+        assertFalse(rebuilt.hasStaleSuggestions());
+        assertEquals(updated.getVersion(), rebuilt.getVersion());
+        assertEquals(updated.getLoadedAt(), rebuilt.getLoadedAt());
+        assertFalse(rebuilt.getSuggester().suggest("hitachi", 5).isEmpty());
+        assertEquals("hitachi", rebuilt.getTrigramIndex().expand("hitachy", 1).get(0).getTerm());
+    }
+
+    @Test
+    void productsWithoutIdGetStableContentIds() {
+        CatalogSnapshot.Builder first = new CatalogSnapshot.Builder(1, new ProductStore());
+        first.add(product(first.getStore(), null, "Tivi LG 55 inch", "9.990.000₫", "Năm ra mắt: 2024."));
+        first.add(product(first.getStore(), null, "Tivi Sony 65 inch", "19.990.000₫", "Năm ra mắt: 2023."));
+
+        // Thứ tự khác, giá khác: mã vẫn giữ nguyên
+        CatalogSnapshot.Builder second = new CatalogSnapshot.Builder(1, new ProductStore());
+        second.add(product(second.getStore(), null, "Tivi Sony 65 inch", "18.990.000₫", "Năm ra mắt: 2023."));
+        second.add(product(second.getStore(), null, "Tivi LG 55 inch", "9.990.000₫", "Năm ra mắt: 2024."));
+
+        CatalogSnapshot a = first.build();
+        CatalogSnapshot b = second.build();
+        assertEquals(a.productAt(0).getId(), b.productAt(1).getId());
+        assertEquals(a.productAt(1).getId(), b.productAt(0).getId());
+        assertTrue(a.productAt(0).getId().startsWith("p"));
+        assertNotEquals(a.productAt(0).getId(), a.productAt(1).getId());
+    }
+
+    @Test
+    void duplicateIdsAreSuffixedInsteadOfFailing() {
+        CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder(1, new ProductStore());
+        builder.add(product(builder.getStore(), "7", "Tivi LG 55 inch", "9.990.000₫", ""));
+        builder.add(product(builder.getStore(), "7", "Tivi Sony 65 inch", "19.990.000₫", ""));
+        builder.add(product(builder.getStore(), null, "Tivi TCL 43 inch", "5.990.000₫", ""));
+        builder.add(product(builder.getStore(), null, "Tivi TCL 43 inch", "5.990.000₫", ""));
+        CatalogSnapshot catalog = builder.build();
+
+        assertEquals(4, catalog.getProductCount());
+        assertEquals("7", catalog.productAt(0).getId());
+        assertEquals("7-2", catalog.productAt(1).getId());
+        assertEquals(catalog.productAt(2).getId() + "-2", catalog.productAt(3).getId());
+    }
+}
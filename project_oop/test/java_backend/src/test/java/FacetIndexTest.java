@@ -0,0 +1,87 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class FacetIndexTest {
+    private static final ProductStore STORE = new ProductStore();
+
+    private static Product product(String type) {
+        return new Product(STORE, type + " mẫu", Product.PLACEHOLDER_IMAGE, "", "", "", "", "dienmayxanh", type);
+    }
+
+    private static Specification[] specs(String origin, String household) {
+        return new Specification[] {
+                new Specification("Nơi sản xuất", origin),
+                new Specification("Số người sử dụng", household) };
+    }
+
+    private static FacetIndex sample() {
+        FacetIndex.Builder builder = new FacetIndex.Builder();
+        builder.add(product("Tủ lạnh"), specs("Việt Nam", "Từ 3 - 4 người"), 4_500_000);
+        builder.add(product("Tủ lạnh"), specs("Thái Lan", "Từ 3 - 4 người"), 8_000_000);
+        builder.add(product("Tủ lạnh"), specs("Việt Nam", "Trên 5 người"), 25_000_000);
+        builder.add(product("Máy giặt"), specs("việt nam", ""), 9_900_000);
+        builder.add(product("Máy giặt"), specs("Trung Quốc", ""), 0);
+        return builder.build();
+    }
+
+    @Test
+    void countsWholeCatalogByValueInDescendingOrder() {
+        Map<String, Map<String, Integer>> counts = sample().count(null);
+
+        Map<String, Integer> origin = counts.get(FacetIndex.ORIGIN);
+        assertEquals(3, origin.size());
+        // Cách viết hoa thường khác nhau được gộp, giá trị nhiều nhất đứng đầu
+        assertEquals(3, (int) origin.values().iterator().next());
+        assertEquals(Integer.valueOf(1), origin.get("Trung Quốc"));
+
+        assertEquals(Integer.valueOf(3), counts.get(FacetIndex.TYPE).get("Tủ lạnh"));
+        assertEquals(Integer.valueOf(2), counts.get(FacetIndex.HOUSEHOLD).get("Từ 3 - 4 người"));
+        // Giá rỗng/0 và thông số rỗng không được đếm
+        Map<String, Integer> price = counts.get(FacetIndex.PRICE);
+        assertEquals(4, price.values().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(Integer.valueOf(2), price.get("5 - 10 triệu"));
+        assertEquals(Integer.valueOf(1), price.get("20 - 30 triệu"));
+        assertTrue(counts.get(FacetIndex.YEAR).isEmpty());
+    }
+
+    @Test
+    void countsOnlyMatchingProducts() {
+        FacetIndex index = sample();
+        FixedBitSet matches = new FixedBitSet(index.size());
+        matches.set(1);
+        matches.set(3);
+
+        Map<String, Map<String, Integer>> counts = index.count(matches);
+        assertEquals(Integer.valueOf(1), counts.get(FacetIndex.TYPE).get("Tủ lạnh"));
+        assertEquals(Integer.valueOf(1), counts.get(FacetIndex.TYPE).get("Máy giặt"));
+        assertEquals(Integer.valueOf(2), counts.get(FacetIndex.PRICE).get("5 - 10 triệu"));
+        assertNull(counts.get(FacetIndex.PRICE).get("Dưới 5 triệu"));
+        assertEquals(Arrays.asList(FacetIndex.ORIGIN, FacetIndex.TYPE, FacetIndex.HOUSEHOLD,
+                FacetIndex.SCREEN_SIZE, FacetIndex.YEAR, FacetIndex.PRICE), new ArrayList<>(counts.keySet()));
+    }
+
+    @Test
+    void updaterMovesProductBetweenValuesWithoutChangingBase() {
+        FacetIndex base = sample();
+        FacetIndex.Updater updater = new FacetIndex.Updater(base);
+        updater.remove(1);
+        updater.add(1, product("Tủ lạnh"), specs("Việt Nam", "Từ 3 - 4 người"), 3_000_000);
+        updater.add(5, product("Tivi"), specs("Hàn Quốc", ""), 12_000_000);
+        FacetIndex updated = updater.build();
+
+        assertEquals(6, updated.size());
+        Map<String, Map<String, Integer>> counts = updated.count(null);
+        assertNull(counts.get(FacetIndex.ORIGIN).get("Thái Lan"));
+        assertEquals(Integer.valueOf(2), counts.get(FacetIndex.PRICE).get("Dưới 5 triệu"));
+        assertEquals(Integer.valueOf(1), counts.get(FacetIndex.TYPE).get("Tivi"));
+
+        assertEquals(5, base.size());
+        assertEquals(Integer.valueOf(1), base.count(null).get(FacetIndex.ORIGIN).get("Thái Lan"));
+    }
+}
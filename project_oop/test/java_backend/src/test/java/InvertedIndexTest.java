@@ -0,0 +1,92 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class InvertedIndexTest {
+
+    private static final String[][][] DOCUMENTS = {
+            { { "tu", "lanh", "aqua" }, { "ngan", "da", "tren" } },
+            { { "tivi", "samsung" }, { "man", "hinh", "55", "inch" } },
+            { { "may", "giat", "lg" }, { "long", "ngang", "lg" } },
+    };
+
+    private static InvertedIndex build(String[][]... documents) {
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        for (String[][] document : documents) {
+            builder.add(document[0], document[1]);
+        }
+        return builder.build();
+    }
+
+    private static int[] ordinals(InvertedIndex index, String term) {
+        InvertedIndex.Postings postings = index.getPostings(term);
+        if (postings == null) {
+            return new int[0];
+        }
+        int[] ordinals = new int[postings.size()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = postings.ordinalAt(i);
+        }
+        return ordinals;
+    }
+
+    @Test
+    void updaterMatchesFreshBuild() {
+        InvertedIndex base = build(DOCUMENTS);
+        String[][] replacement = { { "tivi", "lg", "oled" }, { "man", "hinh", "65", "inch" } };
+        String[][] appended = { { "tu", "lanh", "lg" }, { "ngan", "da", "duoi" } };
+
+        InvertedIndex.Updater updater = new InvertedIndex.Updater(base);
+        updater.remove(1, DOCUMENTS[1][0], DOCUMENTS[1][1]);
+        updater.add(1, replacement[0], replacement[1]);
+        updater.add(3, appended[0], appended[1]);
+        InvertedIndex updated = updater.build();
+
+        InvertedIndex expected = build(DOCUMENTS[0], replacement, DOCUMENTS[2], appended);
+        assertEquals(expected.getTerms(), updated.getTerms());
+        for (String term : expected.getTerms()) {
+            assertArrayEquals(ordinals(expected, term), ordinals(updated, term));
+            InvertedIndex.Postings want = expected.getPostings(term);
+            InvertedIndex.Postings got = updated.getPostings(term);
+            for (int i = 0; i < want.size(); i++) {
+                assertEquals(want.nameFrequencyAt(i), got.nameFrequencyAt(i));
+                assertEquals(want.descriptionFrequencyAt(i), got.descriptionFrequencyAt(i));
+            }
+        }
+        assertEquals(expected.getDocumentCount(), updated.getDocumentCount());
+        assertEquals(expected.getAverageNameLength(), updated.getAverageNameLength(), 1e-6);
+        assertEquals(expected.getAverageDescriptionLength(), updated.getAverageDescriptionLength(), 1e-6);
+        assertTrue(updater.isVocabularyChanged());
+    }
+
+    @Test
+    void updaterLeavesBaseUntouched() {
+        InvertedIndex base = build(DOCUMENTS);
+        InvertedIndex.Updater updater = new InvertedIndex.Updater(base);
+        updater.remove(2, DOCUMENTS[2][0], DOCUMENTS[2][1]);
+        InvertedIndex updated = updater.build();
+
+        assertArrayEquals(new int[0], ordinals(updated, "lg"));
+        assertFalse(updated.getTerms().contains("giat"));
+        assertEquals(2, updated.getDocumentCount());
+        assertEquals(0, updated.nameLengthAt(2));
+
+        assertArrayEquals(new int[] { 2 }, ordinals(base, "lg"));
+        assertEquals(3, base.getDocumentCount());
+        assertEquals(3, base.nameLengthAt(2));
+    }
+
+    @Test
+    void updaterSharesUnchangedPostings() {
+        InvertedIndex base = build(DOCUMENTS);
+        InvertedIndex.Updater updater = new InvertedIndex.Updater(base);
+        updater.remove(0, DOCUMENTS[0][0], DOCUMENTS[0][1]);
+        updater.add(0, new String[] { "tu", "lanh", "aqua" }, new String[] { "ngan", "da", "duoi" });
+        InvertedIndex updated = updater.build();
+
+        assertSame(base.getPostings("samsung"), updated.getPostings("samsung"));
+        assertArrayEquals(new int[] { 0 }, ordinals(updated, "duoi"));
+        assertArrayEquals(new int[0], ordinals(updated, "tren"));
+    }
+}
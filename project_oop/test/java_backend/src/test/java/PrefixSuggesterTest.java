@@ -0,0 +1,80 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PrefixSuggesterTest {
+
+    private static PrefixSuggester suggester(String... names) {
+        PrefixSuggester.Builder builder = new PrefixSuggester.Builder();
+        for (String name : names) {
+            builder.addName(name);
+        }
+        return builder.build();
+    }
+
+    private static List<String> texts(List<PrefixSuggester.Suggestion> suggestions) {
+        List<String> texts = new ArrayList<>();
+        for (PrefixSuggester.Suggestion suggestion : suggestions) {
+            texts.add(suggestion.getText());
+        }
+        return texts;
+    }
+
+    @Test
+    void suggestsWordsAndLeadingPhrasesByWeight() {
+        PrefixSuggester suggester = suggester("Tủ lạnh Samsung 236 lít", "Tủ lạnh Toshiba 180 lít",
+                "Tủ lạnh Samsung Inverter", "Tivi Samsung 55 inch");
+
+        List<PrefixSuggester.Suggestion> suggestions = suggester.suggest("tủ", 10);
+        assertEquals("tủ", suggestions.get(0).getText());
+        assertEquals(3, suggestions.get(0).getWeight());
+        assertTrue(texts(suggestions).contains("tủ lạnh samsung"));
+        // Trọng số giảm dần
+        for (int i = 1; i < suggestions.size(); i++) {
+            assertTrue(suggestions.get(i - 1).getWeight() >= suggestions.get(i).getWeight());
+        }
+
+        List<PrefixSuggester.Suggestion> samsung = suggester.suggest("sam", 10);
+        assertEquals("samsung", samsung.get(0).getText());
+        assertEquals(3, samsung.get(0).getWeight());
+    }
+
+    @Test
+    void prefixWithoutAccentsMatchesAccentedSuggestions() {
+        PrefixSuggester suggester = suggester("Máy giặt LG 9 kg", "Máy giặt Toshiba 8 kg", "Máy lọc nước Kangaroo");
+
+        assertEquals(texts(suggester.suggest("máy giặt", 10)), texts(suggester.suggest("MAY GIAT", 10)));
+        assertEquals("máy giặt", suggester.suggest("may gi", 1).get(0).getText());
+        // Khoảng trắng cuối chỉ gợi ý cụm từ có từ tiếp theo
+        List<String> phrases = texts(suggester.suggest("may ", 10));
+        assertEquals(5, phrases.size());
+        assertFalse(phrases.contains("máy"));
+        assertTrue(phrases.contains("máy lọc nước"));
+    }
+
+    @Test
+    void unknownOrEmptyPrefixGivesNothingAndLimitIsRespected() {
+        PrefixSuggester suggester = suggester("Tủ lạnh Aqua", "Tủ lạnh Hitachi", "Tủ lạnh Panasonic");
+
+        assertTrue(suggester.suggest("xyz", 10).isEmpty());
+        assertTrue(suggester.suggest("", 10).isEmpty());
+        assertTrue(suggester.suggest(null, 10).isEmpty());
+        assertTrue(suggester.suggest("tu", 0).isEmpty());
+        assertEquals(2, suggester.suggest("tu", 2).size());
+    }
+
+    @Test
+    void eachNodeKeepsAtMostMaxSuggestions() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            names.add("Bếp từ model" + (char) ('a' + i % 26) + i);
+        }
+        PrefixSuggester suggester = suggester(names.toArray(new String[0]));
+
+        assertEquals(PrefixSuggester.MAX_SUGGESTIONS, suggester.suggest("model", 100).size());
+    }
+}
@@ -0,0 +1,76 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PriceIndexTest {
+
+    private static ProductAttributes attributes(long... prices) {
+        ProductAttributes.Builder builder = new ProductAttributes.Builder();
+        for (int i = 0; i < prices.length; i++) {
+            builder.set(i, prices[i], ProductAttributes.ORIGIN_UNKNOWN, ProductAttributes.HOUSEHOLD_UNKNOWN);
+        }
+        return builder.build();
+    }
+
+    private static List<Integer> inRange(PriceIndex index, long min, long max) {
+        List<Integer> ordinals = new ArrayList<>();
+        index.forEachInRange(min, max, ordinals::add);
+        return ordinals;
+    }
+
+    @Test
+    void rangeIncludesBothBoundsInPriceOrder() {
+        PriceIndex index = PriceIndex.build(attributes(9_990_000, 4_590_000, 12_490_000, 5_000_000, 4_590_000));
+
+        assertEquals(5, index.size());
+        assertEquals(Arrays.asList(1, 4, 3), inRange(index, 4_590_000, 5_000_000));
+        assertEquals(Arrays.asList(1, 4, 3, 0), inRange(index, 0, 10_000_000));
+        assertEquals(Arrays.asList(2), inRange(index, 10_000_001, Long.MAX_VALUE));
+
+        FixedBitSet bits = index.range(5_000_000, 12_490_000);
+        assertEquals(3, bits.cardinality());
+        assertTrue(bits.get(0));
+        assertTrue(bits.get(2));
+        assertTrue(bits.get(3));
+    }
+
+    @Test
+    void emptyAndInvertedRangesMatchNothing() {
+        PriceIndex index = PriceIndex.build(attributes(100, 200, 300));
+
+        assertTrue(inRange(index, 201, 299).isEmpty());
+        assertTrue(inRange(index, 301, 1000).isEmpty());
+        assertTrue(inRange(index, 300, 100).isEmpty());
+        assertEquals(0, index.range(300, 100).cardinality());
+        assertTrue(inRange(PriceIndex.build(attributes()), 0, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void matchesLinearScanAcrossManyBlocks() {
+        Random random = new Random(7);
+        long[] prices = new long[3000];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = random.nextInt(50) * 500_000L;
+        }
+        PriceIndex index = PriceIndex.build(attributes(prices));
+
+        for (int query = 0; query < 50; query++) {
+            long min = random.nextInt(60) * 400_000L;
+            long max = min + random.nextInt(30) * 400_000L;
+            FixedBitSet bits = index.range(min, max);
+            int expected = 0;
+            for (int i = 0; i < prices.length; i++) {
+                boolean inside = prices[i] >= min && prices[i] <= max;
+                assertEquals(inside, bits.get(i));
+                expected += inside ? 1 : 0;
+            }
+            assertEquals(expected, inRange(index, min, max).size());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class ProductAttributesTest {
+
+    private static byte originOf(String description) {
+        return ProductAttributes.originCode(
+                ProductAttributes.Builder.extractOrigin(TextAnalyzer.fold(description)));
+    }
+
+    @Test
+    void extractOriginTakesTextAfterLabel() {
+        assertEquals(" viet nam", ProductAttributes.Builder.extractOrigin(
+                TextAnalyzer.fold("Loại tủ: Ngăn đá trên. Sản xuất tại: Việt Nam. Năm ra mắt: 2024")));
+        assertEquals("", ProductAttributes.Builder.extractOrigin(TextAnalyzer.fold("Loại tủ: Ngăn đá trên.")));
+    }
+
+    @Test
+    void originMatchesKnownCountries() {
+        assertEquals(ProductAttributes.ORIGIN_VIETNAM, originOf("Sản xuất tại: Việt Nam."));
+        assertEquals(ProductAttributes.ORIGIN_THAILAND, originOf("Sản xuất tại: Thái Lan."));
+        assertEquals(ProductAttributes.ORIGIN_CHINA, originOf("Sản xuất tại: Trung Quốc."));
+        assertEquals(ProductAttributes.ORIGIN_OTHER, originOf("Sản xuất tại: Indonesia."));
+        assertEquals(ProductAttributes.ORIGIN_UNKNOWN, originOf("Không có xuất xứ."));
+    }
+
+    @Test
+    void originMatchesByPrefixLikeBaseline() {
+        // Dữ liệu thật: nhiều xuất xứ, hoặc thiếu dấu chấm sau xuất xứ
+        assertEquals(ProductAttributes.ORIGIN_CHINA, originOf("Sản xuất tại: Trung Quốc/Thái Lan."));
+        assertEquals(ProductAttributes.ORIGIN_VIETNAM,
+                originOf("Sản xuất tại: Việt NamCông suất tiêu thụ công bố theo TCVN: ~ 1"));
+    }
+
+    @Test
+    void originNameGroupsKnownCountries() {
+        assertEquals("Việt Nam", ProductAttributes.originName("Việt NamCông suất tiêu thụ"));
+        assertEquals("Trung Quốc", ProductAttributes.originName("Trung Quốc/Thái Lan"));
+        assertEquals("Indonesia", ProductAttributes.originName(" Indonesia "));
+        assertNull(ProductAttributes.originName(null));
+    }
+}
@@ -0,0 +1,88 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+class ProductJsonTest {
+
+    private static List<Product> sampleProducts() {
+        ProductStore store = new ProductStore();
+        List<Product> products = new ArrayList<>();
+        String[][] rows = {
+                { "Tủ lạnh Samsung Inverter 236 lít", "6.490.000₫", "Kiểu tủ: Ngăn đá trên. Dung tích sử dụng: "
+                        + "236 lít. Sản xuất tại: Việt Nam. Số người sử dụng: 2 - 3 người.", "7.990.000₫", "Tủ lạnh" },
+                { "Smart Tivi LG 4K 55 inch", "12.900.000₫", "Kích cỡ màn hình: 55 inch. Độ phân giải: 4K (Ultra HD)."
+                        + " Năm ra mắt: 2023. Nội dung có \"ngoặc kép\" và \\ gạch chéo.", "", "Tivi" },
+                { "Máy giặt không mô tả", "", "", null, "Máy giặt" },
+        };
+        for (String[] row : rows) {
+            Product product = new Product(store, row[0], Product.PLACEHOLDER_IMAGE, row[1], row[2], "4.8",
+                    "120 đánh giá", "dienmayxanh", row[4]);
+            product.setOldPrice(row[3]);
+            product.analyzeText();
+            products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * Cách tuần tự hóa cũ: dựng JSONObject cho từng sản phẩm ở mỗi request rồi chuyển cả mảng thành chuỗi
+     */
+    private static String legacyJson(List<Product> products) {
+        JSONArray array = new JSONArray();
+        for (Product product : products) {
+            JSONObject json = new JSONObject();
+            json.put("id", product.getId());
+            json.put("Tên sản phẩm", product.getName());
+            json.put("Ảnh", product.getImage());
+            json.put("Giá", product.getPrice());
+            json.put("Điểm đánh giá trung bình", product.getRating());
+            json.put("Số lượt đánh giá", product.getRatingCount());
+            json.put("Mô tả sản phẩm", product.getDescription());
+            if (product.getOldPrice() != null && !product.getOldPrice().isEmpty()) {
+                json.put("Giá cũ", product.getOldPrice());
+            }
+            if (product.getSource() != null && !product.getSource().isEmpty()) {
+                json.put("Nguồn dữ liệu", product.getSource());
+            }
+            JSONArray specs = new JSONArray();
+            for (Specification spec : product.getSpecifications()) {
+                specs.put(new JSONObject().put("label", spec.getLabel()).put("value", spec.getValue()));
+            }
+            json.put("specifications", specs);
+            json.put("key_info", product.getKeyInfo());
+            json.put("is_featured", product.isFeatured());
+            array.put(json);
+        }
+        return array.toString();
+    }
+
+    @Test
+    void cachedFragmentsAreByteIdenticalToLegacySerializer() {
+        List<Product> products = sampleProducts();
+        byte[] expected = legacyJson(products).getBytes(StandardCharsets.UTF_8);
+
+        assertArrayEquals(expected, ProductServer.convertProductsToJson(products, ProductView.FULL));
+        // Lần sau dùng lại đoạn JSON đã lưu trong sản phẩm, kết quả không đổi
+        byte[] cached = products.get(0).getCachedJson();
+        assertNotNull(cached);
+        assertArrayEquals(expected, ProductServer.convertProductsToJson(products, ProductView.FULL));
+        assertSame(cached, products.get(0).getCachedJson());
+    }
+
+    @Test
+    void emptyAndSingleProductArrays() {
+        List<Product> products = sampleProducts();
+
+        assertEquals("[]", new String(ProductServer.convertProductsToJson(new ArrayList<>(), ProductView.FULL),
+                StandardCharsets.UTF_8));
+        assertEquals(legacyJson(products.subList(1, 2)), new String(
+                ProductServer.convertProductsToJson(products.subList(1, 2), ProductView.FULL), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,123 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+class ProductSearchServiceTest {
+    private static final String[] BRANDS = { "Aqua", "Toshiba", "Samsung", "LG", "Hitachi", "Panasonic" };
+
+    private static JSONObject product(String id, String name, long price, String description) {
+        return new JSONObject()
+                .put("id", id)
+                .put("Tên sản phẩm", name)
+                .put("Giá", price + "₫")
+                .put("Mô tả sản phẩm", description)
+                .put("Loại sản phẩm", "Tủ lạnh")
+                .put("Nguồn dữ liệu", "dienmayxanh");
+    }
+
+    /**
+     * Danh mục tủ lạnh với hãng, dung tích và giá lặp lại (nhiều sản phẩm bằng điểm)
+     */
+    private static List<JSONObject> fridges(int count) {
+        List<JSONObject> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String brand = BRANDS[i % BRANDS.length];
+            int liters = 150 + (i % 7) * 40;
+            products.add(product("tl-" + i, "Tủ lạnh " + brand + " " + liters + " lít",
+                    3_000_000L + (i % 11) * 1_000_000L,
+                    "Kiểu tủ: Ngăn đá " + (i % 2 == 0 ? "trên" : "dưới") + ". Dung tích: " + liters
+                            + " lít. Sản xuất tại: " + (i % 3 == 0 ? "Việt Nam" : "Thái Lan") + "."));
+        }
+        return products;
+    }
+
+    private static Path writeCatalog(List<JSONObject> products) throws IOException {
+        Path source = Files.createTempDirectory("search-test").resolve("catalog.json");
+        Files.write(source, new JSONArray(products).toString().getBytes(StandardCharsets.UTF_8));
+        return source;
+    }
+
+    private static ProductSearchService load(List<JSONObject> products) throws IOException {
+        ProductSearchService service = new ProductSearchService();
+        service.loadProductsFromJson(writeCatalog(products).toString());
+        return service;
+    }
+
+    /**
+     * Dịch vụ luôn (threshold = 0) hoặc không bao giờ (Integer.MAX_VALUE) chấm điểm song song
+     */
+    private static ProductSearchService loadWithParallelThreshold(Path source, int threshold) throws IOException {
+        System.setProperty("search.parallel.catalogThreshold", String.valueOf(threshold));
+        System.setProperty("search.parallel.matchThreshold", String.valueOf(threshold));
+        try {
+            ProductSearchService service = new ProductSearchService();
+            service.loadProductsFromJson(source.toString());
+            return service;
+        } finally {
+            System.clearProperty("search.parallel.catalogThreshold");
+            System.clearProperty("search.parallel.matchThreshold");
+        }
+    }
+
+    private static List<String> ids(List<Product> products) {
+        List<String> ids = new ArrayList<>();
+        for (Product product : products) {
+            ids.add(product.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void pagesAreConsecutiveSlicesOfTheRanking() throws IOException {
+        ProductSearchService service = load(fridges(120));
+        // Chỉ sản phẩm có từ hiếm (samsung, 190) là ứng viên: 20 + 17 - 3
+        List<String> top = ids(service.searchProducts("tủ lạnh samsung 190 lít", 0, 60));
+        assertEquals(34, top.size());
+
+        List<String> paged = new ArrayList<>();
+        for (int offset = 0; offset < 34; offset += 5) {
+            paged.addAll(ids(service.searchProducts("tủ lạnh samsung 190 lít", offset, 5)));
+        }
+        assertEquals(top, paged);
+        // Sản phẩm khớp nhiều từ nhất đứng đầu
+        assertTrue(service.searchProducts("tủ lạnh samsung 190 lít", 0, 1).get(0).getName().contains("Samsung 190"));
+    }
+
+    @Test
+    void pageBoundsAreClamped() throws IOException {
+        ProductSearchService service = load(fridges(120));
+        assertEquals(ProductSearchService.MAX_RESULT_LIMIT, service.searchProducts("tủ lạnh", 0, 1000).size());
+        assertEquals(20, service.searchProducts("tủ lạnh", 100, 50).size());
+        assertTrue(service.searchProducts("tủ lạnh", 120, 10).isEmpty());
+        assertTrue(service.searchProducts("tủ lạnh", 0, 0).isEmpty());
+        assertEquals(ids(service.searchProducts("tủ lạnh", 0, 5)), ids(service.searchProducts("tủ lạnh", -3, 5)));
+    }
+
+    @Test
+    void parallelScoringReturnsSameResultsAsSerial() throws IOException {
+        // Đủ lớn để được chia thành nhiều phân đoạn
+        Path source = writeCatalog(fridges(10_000));
+        ProductSearchService serial = loadWithParallelThreshold(source, Integer.MAX_VALUE);
+        ProductSearchService parallel = loadWithParallelThreshold(source, 0);
+
+        String[] queries = { "tủ lạnh", "tủ lạnh samsung", "tu lanh toshiba 230 lit", "tủ lạnh dưới 5 triệu",
+                "ngăn đá dưới việt nam", "tủ lạnh cho 4-5 người", "hitachi 390" };
+        for (String query : queries) {
+            for (int offset : new int[] { 0, 37, 9_990 }) {
+                assertEquals(ids(serial.searchProducts(query, offset, 50)),
+                        ids(parallel.searchProducts(query, offset, 50)), query + " @" + offset);
+            }
+            assertEquals(serial.countFacets(QueryPlan.parse(query)), parallel.countFacets(QueryPlan.parse(query)));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+class ProductViewTest {
+
+    private static Product product() {
+        Product product = new Product(new ProductStore(), "Tủ lạnh Aqua 189 lít", Product.PLACEHOLDER_IMAGE,
+                "4.990.000₫", "Kiểu tủ: Ngăn đá trên. Sản xuất tại: Việt Nam.", "4.5", "32 đánh giá",
+                "dienmayxanh", "Tủ lạnh");
+        product.setId("tl-aqua-189");
+        product.setOldPrice("5.490.000₫");
+        product.analyzeText();
+        return product;
+    }
+
+    private static JSONObject render(Product product, ProductView view) {
+        List<Product> products = Collections.singletonList(product);
+        String json = new String(ProductServer.convertProductsToJson(products, view), StandardCharsets.UTF_8);
+        return new JSONArray(json).getJSONObject(0);
+    }
+
+    @Test
+    void parseResolvesPredefinedViewsAndFieldLists() {
+        assertSame(ProductView.FULL, ProductView.parse(null, null));
+        assertSame(ProductView.FULL, ProductView.parse("full", " "));
+        assertSame(ProductView.CARD, ProductView.parse("card", null));
+        // Danh sách trường trùng với view định sẵn dùng lại view đó
+        assertSame(ProductView.CARD, ProductView.parse(null,
+                "id,name,image,price,old_price,rating,rating_count,is_featured"));
+
+        ProductView custom = ProductView.parse("card", "name, Giá,,");
+        assertTrue(custom.includes(ProductView.NAME));
+        assertTrue(custom.includes(ProductView.PRICE));
+        assertFalse(custom.includes(ProductView.DESCRIPTION));
+        assertFalse(custom.isPredefined());
+        assertEquals(custom.getKey(), ProductView.parse(null, "price,name").getKey());
+    }
+
+    @Test
+    void parseRejectsUnknownNames() {
+        assertThrows(IllegalArgumentException.class, () -> ProductView.parse("compact", null));
+        assertThrows(IllegalArgumentException.class, () -> ProductView.parse(null, "name,weight"));
+    }
+
+    @Test
+    void projectionSerializesOnlyRequestedFields() {
+        Product product = product();
+
+        JSONObject card = render(product, ProductView.CARD);
+        assertEquals(8, card.length());
+        assertEquals("tl-aqua-189", card.getString("id"));
+        assertEquals("5.490.000₫", card.getString("Giá cũ"));
+        assertFalse(card.has("Mô tả sản phẩm"));
+        assertFalse(card.has("specifications"));
+        assertFalse(card.has("key_info"));
+
+        JSONObject custom = render(product, ProductView.parse(null, "name,key_info"));
+        assertEquals(2, custom.length());
+        assertEquals("Tủ lạnh Aqua 189 lít", custom.getString("Tên sản phẩm"));
+        assertTrue(custom.getString("key_info").contains("Việt Nam"));
+
+        JSONObject full = render(product, ProductView.FULL);
+        assertEquals(2, full.getJSONArray("specifications").length());
+        // Chỉ view đầy đủ được lưu lại trong sản phẩm
+        assertNotNull(product.getCachedJson());
+        assertEquals(full.toString(), render(product, ProductView.FULL).toString());
+    }
+}
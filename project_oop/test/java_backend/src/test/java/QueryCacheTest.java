@@ -0,0 +1,75 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+
+class QueryCacheTest {
+
+    @Test
+    void invalidateRemovesOnlyEntriesWithChangedTerms() {
+        QueryCache<String> cache = new QueryCache<>(10, 60_000);
+        cache.put("tu lanh", "a", cache.getGeneration(), Arrays.asList("tu", "lanh"));
+        cache.put("tivi", "b", cache.getGeneration(), Collections.singletonList("tivi"));
+        cache.put("duoi 10 trieu", "c", cache.getGeneration());
+
+        long generation = cache.getGeneration();
+        cache.invalidate(new HashSet<>(Arrays.asList("lanh", "aqua")));
+
+        assertNull(cache.get("tu lanh"));
+        assertEquals("b", cache.get("tivi"));
+        // Mục không có từ khóa phụ thuộc toàn bộ danh mục
+        assertNull(cache.get("duoi 10 trieu"));
+
+        // Kết quả bắt đầu tính trước khi xóa không được lưu
+        cache.put("may giat", "d", generation, Collections.singletonList("giat"));
+        assertNull(cache.get("may giat"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        QueryCache<String> cache = new QueryCache<>(2, 60_000);
+        cache.put("a", "1", cache.getGeneration());
+        cache.put("b", "2", cache.getGeneration());
+        // Đọc "a" để "b" trở thành mục ít dùng gần đây nhất
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3", cache.getGeneration());
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void expiredEntriesAreMisses() throws InterruptedException {
+        QueryCache<String> cache = new QueryCache<>(10, 20);
+        cache.put("a", "1", cache.getGeneration());
+        assertEquals("1", cache.get("a"));
+        Thread.sleep(40);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void invalidateAllDropsEntriesAndInFlightResults() {
+        QueryCache<String> cache = new QueryCache<>(10, 60_000);
+        cache.put("a", "1", cache.getGeneration(), Collections.singletonList("tivi"));
+        long generation = cache.getGeneration();
+        cache.invalidateAll();
+
+        assertNull(cache.get("a"));
+        cache.put("b", "2", generation);
+        assertNull(cache.get("b"));
+        cache.put("b", "2", cache.getGeneration());
+        assertEquals("2", cache.get("b"));
+    }
+}
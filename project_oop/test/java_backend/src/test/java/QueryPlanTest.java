@@ -0,0 +1,56 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class QueryPlanTest {
+
+    @Test
+    void parseFoldsQueryAndExtractsPriceHints() {
+        QueryPlan plan = QueryPlan.parse("  Tủ lạnh   DƯỚI 10 triệu ");
+
+        assertTrue(Arrays.asList(plan.getKeywords()).contains("tu"));
+        assertTrue(Arrays.asList(plan.getKeywords()).contains("lanh"));
+        assertEquals(10_000_000L, plan.getMaxPrice());
+        assertEquals(0, plan.getMinPrice());
+        assertFalse(plan.hasPriceFilter());
+
+        assertEquals(500_000L, QueryPlan.parse("nồi cơm trên 500k").getMinPrice());
+        assertEquals(5_000_000L, QueryPlan.parse("máy giặt lớn hơn 5 triệu").getMinPrice());
+    }
+
+    @Test
+    void parseDetectsOriginAndHouseholdHints() {
+        QueryPlan plan = QueryPlan.parse("tủ lạnh cho 4-5 người sản xuất tại Thái Lan");
+
+        assertTrue(plan.hasAttributeHints());
+        assertTrue(plan.matchesOrigin(ProductAttributes.ORIGIN_THAILAND));
+        assertFalse(plan.matchesOrigin(ProductAttributes.ORIGIN_VIETNAM));
+        assertTrue(plan.matchesHouseholdSize(ProductAttributes.HOUSEHOLD_4_5));
+        assertFalse(plan.matchesHouseholdSize(ProductAttributes.HOUSEHOLD_2_3));
+
+        assertFalse(QueryPlan.parse("tivi samsung").hasAttributeHints());
+    }
+
+    @Test
+    void cacheKeyIgnoresCaseAccentsAndFilterValueOrder() {
+        QueryPlan a = QueryPlan.parse("Tủ Lạnh").withAttributeFilter("origin", "Việt Nam,Thái Lan");
+        QueryPlan b = QueryPlan.parse("tu lanh").withAttributeFilter("origin", "thai lan, viet nam");
+        assertEquals(a.getCacheKey(), b.getCacheKey());
+
+        QueryPlan priced = QueryPlan.parse("tu lanh").withPriceFilter(1_000_000, 5_000_000);
+        assertTrue(priced.hasPriceFilter());
+        assertNotEquals(b.getCacheKey(), priced.getCacheKey());
+        // Kế hoạch gốc không bị thay đổi
+        assertFalse(QueryPlan.parse("tu lanh").hasAttributeFilters());
+    }
+
+    @Test
+    void blankQueryIsEmpty() {
+        assertTrue(QueryPlan.parse(null).isEmpty());
+        assertTrue(QueryPlan.parse("   ").isEmpty());
+        assertEquals(0, QueryPlan.parse("").getKeywords().length);
+    }
+}
@@ -0,0 +1,60 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.Test;
+
+class ResponseCompressorTest {
+
+    @Test
+    void negotiatePicksHighestQuality() {
+        assertEquals(ResponseCompressor.GZIP, ResponseCompressor.negotiate("gzip, deflate, br"));
+        assertEquals(ResponseCompressor.DEFLATE, ResponseCompressor.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(ResponseCompressor.GZIP, ResponseCompressor.negotiate("x-gzip"));
+        assertEquals(ResponseCompressor.GZIP, ResponseCompressor.negotiate("*"));
+        assertEquals(ResponseCompressor.DEFLATE, ResponseCompressor.negotiate("gzip;q=0, *;q=0.3"));
+    }
+
+    @Test
+    void negotiateReturnsNullWithoutAcceptableCoding() {
+        assertNull(ResponseCompressor.negotiate(null));
+        assertNull(ResponseCompressor.negotiate(""));
+        assertNull(ResponseCompressor.negotiate("br"));
+        assertNull(ResponseCompressor.negotiate("gzip;q=0, deflate;q=0"));
+        assertNull(ResponseCompressor.negotiate("*;q=0"));
+    }
+
+    @Test
+    void negotiateHonoursIdentity() {
+        assertNull(ResponseCompressor.negotiate("identity;q=1, *;q=0.5"));
+        assertNull(ResponseCompressor.negotiate("identity, gzip"));
+        assertEquals(ResponseCompressor.GZIP, ResponseCompressor.negotiate("identity;q=0.5, gzip"));
+        assertEquals(ResponseCompressor.GZIP, ResponseCompressor.negotiate("identity;q=0, gzip;q=0.1"));
+    }
+
+    @Test
+    void compressedOutputDecodesAsGzipAndDeflate() throws IOException {
+        byte[] data = "[{\"Tên sản phẩm\":\"Tủ lạnh\"},{\"Tên sản phẩm\":\"Tủ lạnh\"}]".repeat(50)
+                .getBytes(StandardCharsets.UTF_8);
+        ResponseCompressor.Compressed compressed = new ResponseCompressor(6, 0).compress(data);
+
+        for (String encoding : new String[] { ResponseCompressor.GZIP, ResponseCompressor.DEFLATE }) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            compressed.writeTo(out, encoding);
+            assertEquals(compressed.length(encoding), (long) out.size());
+
+            ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+            InputStream decoded = ResponseCompressor.GZIP.equals(encoding)
+                    ? new GZIPInputStream(in)
+                    : new InflaterInputStream(in);
+            assertArrayEquals(data, decoded.readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+class RoaringBitmapTest {
+    private static final int UNIVERSE = 200_000;
+
+    /**
+     * Tập ngẫu nhiên gồm đủ ba loại khối: thưa (mảng), dày (bitmap) và đoạn liên tiếp (run)
+     */
+    private static TreeSet<Integer> randomSet(Random random) {
+        TreeSet<Integer> values = new TreeSet<>();
+        for (int i = 0; i < 300; i++) {
+            values.add(random.nextInt(65_536));
+        }
+        for (int i = 0; i < 30_000; i++) {
+            values.add(65_536 + random.nextInt(65_536));
+        }
+        int start = 131_072 + random.nextInt(20_000);
+        for (int i = start; i < start + 25_000; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    private static RoaringBitmap bitmap(TreeSet<Integer> values) {
+        RoaringBitmap.Builder builder = new RoaringBitmap.Builder();
+        for (int value : values) {
+            builder.add(value);
+        }
+        return builder.build();
+    }
+
+    private static void assertSameSet(TreeSet<Integer> expected, RoaringBitmap actual) {
+        assertEquals(expected.size(), actual.cardinality());
+        FixedBitSet bits = actual.toFixedBitSet(UNIVERSE);
+        assertEquals(expected.size(), bits.cardinality());
+        for (int value : expected) {
+            assertTrue(actual.contains(value));
+            assertTrue(bits.get(value));
+        }
+    }
+
+    private static List<Integer> members(RoaringBitmap bitmap) {
+        List<Integer> values = new ArrayList<>();
+        FixedBitSet bits = bitmap.toFixedBitSet(UNIVERSE);
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    @Test
+    void setOperationsMatchTreeSet() {
+        Random random = new Random(11);
+        TreeSet<Integer> a = randomSet(random);
+        TreeSet<Integer> b = randomSet(random);
+        RoaringBitmap left = bitmap(a);
+        RoaringBitmap right = bitmap(b);
+        assertSameSet(a, left);
+
+        TreeSet<Integer> and = new TreeSet<>(a);
+        and.retainAll(b);
+        assertSameSet(and, left.and(right));
+
+        TreeSet<Integer> or = new TreeSet<>(a);
+        or.addAll(b);
+        assertSameSet(or, left.or(right));
+
+        TreeSet<Integer> andNot = new TreeSet<>(a);
+        andNot.removeAll(b);
+        assertSameSet(andNot, left.andNot(right));
+
+        // Tập gốc không bị thay đổi
+        assertSameSet(a, left);
+        assertSameSet(b, right);
+    }
+
+    @Test
+    void emptyResultsAreEmpty() {
+        RoaringBitmap odd = RoaringBitmap.of(new int[] { 1, 3, 5, 70_001 }, 4);
+        RoaringBitmap even = RoaringBitmap.of(new int[] { 2, 4, 6, 70_002 }, 4);
+
+        assertTrue(odd.and(even).isEmpty());
+        assertTrue(odd.andNot(odd).isEmpty());
+        assertTrue(RoaringBitmap.empty().or(RoaringBitmap.empty()).isEmpty());
+        assertEquals(8, odd.or(even).cardinality());
+        assertFalse(odd.contains(2));
+    }
+
+    @Test
+    void attributeFilterUnionsValuesAndIntersectsAttributes() {
+        AttributeFilterIndex.Builder builder = new AttributeFilterIndex.Builder();
+        ProductStore store = new ProductStore();
+        String[][] products = {
+                { "Tivi", "Việt Nam", "4K (Ultra HD)" },
+                { "Tivi", "Thái Lan", "Full HD" },
+                { "Tivi", "Thái Lan", "4K (Ultra HD)" },
+                { "Tủ lạnh", "Việt Nam", null },
+        };
+        for (String[] fields : products) {
+            Product product = new Product(store, fields[0], Product.PLACEHOLDER_IMAGE, "", "", "", "", "dienmayxanh",
+                    fields[0]);
+            Specification[] specifications = fields[2] == null
+                    ? new Specification[] { new Specification("Nơi sản xuất", fields[1]) }
+                    : new Specification[] { new Specification("Nơi sản xuất", fields[1]),
+                            new Specification("Độ phân giải", fields[2]) };
+            builder.add(product, specifications);
+        }
+        AttributeFilterIndex index = builder.build();
+
+        Map<String, String[]> filters = new HashMap<>();
+        filters.put(FacetIndex.ORIGIN, new String[] { "viet nam", "thai lan" });
+        filters.put(AttributeFilterIndex.RESOLUTION, new String[] { "4k" });
+        assertEquals(Arrays.asList(0, 2), members(index.filter(filters)));
+
+        filters.put(FacetIndex.TYPE, new String[] { AttributeFilterIndex.normalizeValue("Tủ lạnh") });
+        assertTrue(index.filter(filters).isEmpty());
+        assertTrue(index.filter(new HashMap<>()).isEmpty());
+    }
+}
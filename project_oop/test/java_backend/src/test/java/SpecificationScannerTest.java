@@ -0,0 +1,102 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class SpecificationScannerTest {
+    private static final String[][] LABELS = {
+            { "Kiểu tủ", "Kiểu tủ" },
+            { "Dung tích", "Dung tích sử dụng" },
+            { "Dung tích tổng", "Dung tích tổng" },
+            { "Kích cỡ màn hình", "Kích cỡ màn hình" },
+            { "Nơi sản xuất", "Sản xuất tại" },
+    };
+    private static final String[] HOUSEHOLDS = { "2 - 3 người", "4 - 5 người", "Trên 5 người" };
+
+    // Các mảnh ghép mô tả, có nhãn lặp, nhãn chồng lấn và giá trị rỗng
+    private static final String[] FRAGMENTS = {
+            "Kiểu tủ: Ngăn đá trên. ", "Kiểu tủ: . ", "Kiểu tủ:Side by side. ",
+            "Dung tích sử dụng: 180 lít. ", "Dung tích tổng: 200 lít. ", "Dung tích sử dụng: ",
+            "Kích cỡ màn hình: 55 inch. ", "Sản xuất tại: Việt Nam. ", "Sản xuất tại: Thái Lan",
+            "Phù hợp 4 - 5 người. ", "Trên 5 người dùng. ", "gia đình 2 - 3 người. ",
+            "Tiện ích: làm đá tự động. ", "Công nghệ Inverter. ", "Sản xuất", "tại: ",
+    };
+
+    private static SpecificationScanner scanner() {
+        SpecificationScanner.Builder builder = new SpecificationScanner.Builder();
+        for (String[] label : LABELS) {
+            builder.label(label[0], label[1] + ": ");
+        }
+        for (String household : HOUSEHOLDS) {
+            builder.flag("Số người sử dụng", household);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Cách trích xuất cũ: một regex cho mỗi nhãn, rồi dò lần lượt các cờ số người
+     */
+    private static List<String> regexBaseline(String description) {
+        List<String> result = new ArrayList<>();
+        for (String[] label : LABELS) {
+            Matcher matcher = Pattern.compile(label[1] + ": ([^\\.]+)").matcher(description);
+            if (matcher.find()) {
+                result.add(label[0] + "=" + matcher.group(1).trim());
+            }
+        }
+        for (String household : HOUSEHOLDS) {
+            if (description.contains(household)) {
+                result.add("Số người sử dụng=" + household);
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static List<String> scan(SpecificationScanner scanner, String description) {
+        List<String> result = new ArrayList<>();
+        for (Specification specification : scanner.scan(description)) {
+            result.add(specification.getLabel() + "=" + specification.getValue());
+        }
+        return result;
+    }
+
+    @Test
+    void matchesRegexBaselineOnGeneratedDescriptions() {
+        SpecificationScanner scanner = scanner();
+        Random random = new Random(2024);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder description = new StringBuilder();
+            int fragments = random.nextInt(8);
+            for (int j = 0; j < fragments; j++) {
+                description.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            String text = description.toString();
+            assertEquals(regexBaseline(text), scan(scanner, text), text);
+        }
+    }
+
+    @Test
+    void firstNonEmptyValueAndEarliestDeclaredFlagWin() {
+        List<String> found = scan(scanner(),
+                "Kiểu tủ: . Trên 5 người. Kiểu tủ: Ngăn đá dưới. Dung tích tổng: 250 lít. 2 - 3 người");
+
+        assertEquals("Kiểu tủ=Ngăn đá dưới", found.get(0));
+        assertEquals("Dung tích tổng=250 lít", found.get(1));
+        assertEquals("Số người sử dụng=2 - 3 người", found.get(2));
+        assertEquals(3, found.size());
+    }
+
+    @Test
+    void emptyInputAndEmptyPrefix() {
+        assertEquals(0, scanner().scan(null).length);
+        assertEquals(0, scanner().scan("").length);
+        assertThrows(IllegalArgumentException.class, () -> new SpecificationScanner.Builder().label("Rỗng", ""));
+    }
+}
@@ -0,0 +1,80 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TopKCollectorTest {
+
+    @Test
+    void keepsHighestScoresInDescendingOrder() {
+        TopKCollector collector = new TopKCollector(3);
+        float[] scores = { 1.5f, 7f, 3f, 9f, 0.5f, 4f };
+        for (int i = 0; i < scores.length; i++) {
+            collector.collect(i, scores[i]);
+        }
+
+        assertEquals(3, collector.size());
+        assertArrayEquals(new int[] { 3, 1, 5 }, collector.drainSorted());
+        // Bộ chọn trở về rỗng sau khi lấy kết quả
+        assertEquals(0, collector.size());
+        assertArrayEquals(new int[0], collector.drainSorted());
+    }
+
+    @Test
+    void tiesGoToLowerOrdinalRegardlessOfArrivalOrder() {
+        TopKCollector collector = new TopKCollector(2);
+        collector.collect(8, 2f);
+        collector.collect(5, 2f);
+        collector.collect(1, 1f);
+        collector.collect(2, 2f);
+
+        assertArrayEquals(new int[] { 2, 5 }, collector.drainSorted());
+    }
+
+    @Test
+    void matchesFullSortOnRandomScores() {
+        Random random = new Random(42);
+        int count = 5000;
+        int k = 50;
+        float[] scores = new float[count];
+        TopKCollector collector = new TopKCollector(k);
+        for (int i = 0; i < count; i++) {
+            // Ít giá trị khác nhau để có nhiều điểm bằng nhau
+            scores[i] = random.nextInt(200) / 4f;
+            collector.collect(i, scores[i]);
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            expected.add(i);
+        }
+        expected.sort((a, b) -> scores[a] != scores[b] ? Float.compare(scores[b], scores[a]) : Integer.compare(a, b));
+
+        int[] actual = collector.drainSorted();
+        assertEquals(k, actual.length);
+        for (int i = 0; i < k; i++) {
+            assertEquals((int) expected.get(i), actual[i]);
+        }
+    }
+
+    @Test
+    void mergingSegmentsGivesSameResultAsOneCollector() {
+        TopKCollector whole = new TopKCollector(4);
+        TopKCollector first = new TopKCollector(4);
+        TopKCollector second = new TopKCollector(4);
+        float[] scores = { 3f, 5f, 5f, 1f, 8f, 5f, 2f, 9f };
+        for (int i = 0; i < scores.length; i++) {
+            whole.collect(i, scores[i]);
+            (i < 4 ? first : second).collect(i, scores[i]);
+        }
+
+        TopKCollector merged = new TopKCollector(4);
+        second.collectInto(merged);
+        first.collectInto(merged);
+        assertArrayEquals(whole.drainSorted(), merged.drainSorted());
+    }
+}
@@ -0,0 +1,51 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TrigramIndexTest {
+
+    private static final TrigramIndex INDEX = TrigramIndex.build(Arrays.asList(
+            "abcde", "samsung", "toshiba", "panasonic", "tu", "lanh", "55inch"));
+
+    private static List<String> expand(String keyword) {
+        List<String> terms = new ArrayList<>();
+        for (TrigramIndex.FuzzyMatch match : INDEX.expand(keyword, 10)) {
+            terms.add(match.getTerm());
+        }
+        return terms;
+    }
+
+    @Test
+    void expandFindsTermsWithinEditDistance() {
+        assertEquals(Arrays.asList("samsung"), expand("samsng"));
+        assertEquals(Arrays.asList("toshiba"), expand("toshbia"));
+        assertEquals(Arrays.asList("panasonic"), expand("panasonik"));
+        assertEquals(1, INDEX.expand("samsng", 10).get(0).getDistance());
+    }
+
+    @Test
+    void expandFindsTranspositionSharingOneTrigram() {
+        // "acbde" và "abcde" chỉ chung trigram "de$"
+        assertEquals(Arrays.asList("abcde"), expand("acbde"));
+    }
+
+    @Test
+    void expandSkipsExactShortAndNumericTerms() {
+        assertTrue(expand("samsung").isEmpty());
+        assertTrue(expand("tu").isEmpty());
+        assertTrue(expand("55inc").isEmpty());
+        assertTrue(expand("xyzxyz").isEmpty());
+    }
+
+    @Test
+    void editDistanceCountsTranspositionAsOneEdit() {
+        assertEquals(1, TrigramIndex.editDistance("acbde", "abcde", 2));
+        assertEquals(2, TrigramIndex.editDistance("lanh", "lnah1", 2));
+        assertEquals(3, TrigramIndex.editDistance("samsung", "toshiba", 2));
+    }
+}
@@ -0,0 +1,84 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+class UpdateJournalTest {
+
+    private static JSONObject record(String json) {
+        return new JSONObject(json);
+    }
+
+    @Test
+    void compactMergesUpsertsOfSameProduct() {
+        List<JSONObject> compacted = UpdateJournal.compact(Arrays.asList(
+                record("{\"id\": \"a\", \"Giá\": \"100\"}"),
+                record("{\"id\": \"b\", \"Giá\": \"5\"}"),
+                record("{\"id\": \"a\", \"Giá\": \"90\", \"Giá cũ\": \"100\"}")));
+
+        assertEquals(2, compacted.size());
+        assertEquals("a", compacted.get(0).getString("id"));
+        assertEquals("90", compacted.get(0).getString("Giá"));
+        assertEquals("100", compacted.get(0).getString("Giá cũ"));
+        assertEquals("b", compacted.get(1).getString("id"));
+    }
+
+    @Test
+    void compactKeepsDeleteBeforeLaterUpsert() {
+        List<JSONObject> compacted = UpdateJournal.compact(Arrays.asList(
+                record("{\"id\": \"a\", \"Giá\": \"100\"}"),
+                record("{\"id\": \"a\", \"op\": \"delete\"}"),
+                record("{\"id\": \"a\", \"Tên sản phẩm\": \"Mới\", \"op\": \"upsert\"}"),
+                record("{\"id\": \"b\", \"op\": \"delete\"}")));
+
+        assertEquals(3, compacted.size());
+        assertEquals("delete", compacted.get(0).getString("op"));
+        assertEquals("Mới", compacted.get(1).getString("Tên sản phẩm"));
+        assertFalse(compacted.get(1).has("Giá"));
+        assertFalse(compacted.get(1).has("op"));
+        assertEquals("b", compacted.get(2).getString("id"));
+        assertEquals("delete", compacted.get(2).getString("op"));
+    }
+
+    @Test
+    void appendAndReadSkipBrokenLines() throws IOException {
+        Path file = Files.createTempDirectory("journal-test").resolve("catalog.json.updates");
+        UpdateJournal.SourceVersion source = new UpdateJournal.SourceVersion(100, 1000);
+        UpdateJournal.append(file, source, Arrays.asList(record("{\"id\": \"a\", \"Giá\": \"1\"}")));
+        Files.write(file, "{\"id\": \"b\", \"Gi".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Files.write(file, "\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        UpdateJournal.append(file, source, Arrays.asList(record("{\"id\": \"c\", \"op\": \"delete\"}")));
+
+        List<JSONObject> records = UpdateJournal.read(file, source);
+        assertEquals(2, records.size());
+        assertEquals("a", records.get(0).getString("id"));
+        assertEquals("c", records.get(1).getString("id"));
+
+        UpdateJournal.write(file, source, UpdateJournal.compact(records));
+        assertEquals(2, UpdateJournal.read(file, source).size());
+    }
+
+    @Test
+    void journalOfAnotherCatalogFileIsNotRead() throws IOException {
+        Path file = Files.createTempDirectory("journal-test").resolve("catalog.json.updates");
+        UpdateJournal.append(file, new UpdateJournal.SourceVersion(100, 1000),
+                Arrays.asList(record("{\"id\": \"a\", \"Giá\": \"1\"}")));
+
+        assertNull(UpdateJournal.read(file, new UpdateJournal.SourceVersion(120, 1000)));
+        assertNull(UpdateJournal.read(file, new UpdateJournal.SourceVersion(100, 2000)));
+        assertEquals(1, UpdateJournal.read(file, new UpdateJournal.SourceVersion(100, 1000)).size());
+
+        // Nhật ký không có dòng đầu (ghi bởi phiên bản cũ) cũng không được áp dụng
+        Files.write(file, "{\"id\": \"a\", \"Giá\": \"1\"}\n".getBytes(StandardCharsets.UTF_8));
+        assertNull(UpdateJournal.read(file, new UpdateJournal.SourceVersion(100, 1000)));
+    }
+}